@@ -0,0 +1,88 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the rendering of class documents by ClassDocumentPublisher: type links, the
+ * post-processing of @TYPE@ markers in documentation, and whole documents, over the openEHR
+ * fixtures. Nothing is written; documents are rendered to strings only.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClassDocumentBenchmark {
+
+    // documentation with @TYPE@ markers, as post-processed in each table cell
+    private static final String MARKED_TEXT = "Links to other archetyped structures (data whose root object inherits from @ARCHETYPED@, "
+            + "such as @ENTRY@, @OBSERVATION@ and so on), by @DV_TEXT@ meaning; an @ interval @ such as "
+            + "@DV_INTERVAL@ of @DV_DATE_TIME@ is not a marker if it has spaces, nor is an e-mail@address.";
+
+    private ClassDocumentPublisher documentPublisher;
+    private List<ClassInfo> classes;
+    private ClassInfo observation;
+    private ClassInfo locatable;
+    private ClassInfo dvQuantity;
+    private final StringBuilder out = new StringBuilder();
+
+    @Setup
+    public void setUp() {
+        UmlExportConfig.reset();
+        Formatter formatter = new AsciidocFormatter();
+        FixtureInfoBuilder builder = new FixtureInfoBuilder (formatter, new SymbolTable());
+        OpenEhrFixtures.declare (builder);
+        EntityRegistry allEntities = builder.buildRegistry();
+
+        documentPublisher = new ClassDocumentPublisher (formatter, UmlExportConfig.getInstance(), allEntities, null);
+        classes = allEntities.values();
+        observation = allEntities.get ("org.openehr.rm.composition.OBSERVATION");
+        locatable = allEntities.get ("org.openehr.rm.common.LOCATABLE");
+        dvQuantity = allEntities.get ("org.openehr.rm.data_types.DV_QUANTITY");
+    }
+
+    /**
+     * Link to a class in the same spec, i.e. an internal ref.
+     */
+    @Benchmark
+    public String linkClassNameInternal() {
+        return documentPublisher.linkClassName (locatable, "org.openehr.rm.common.LINK");
+    }
+
+    /**
+     * Link to a class in another component, i.e. an external link to its spec.
+     */
+    @Benchmark
+    public String linkClassNameExternal() {
+        return documentPublisher.linkClassName (locatable, "org.openehr.base.foundation_types.String");
+    }
+
+    @Benchmark
+    public int postProcess() {
+        out.setLength (0);
+        documentPublisher.postProcess (observation, MARKED_TEXT, 0, MARKED_TEXT.length(), out);
+        return out.length();
+    }
+
+    @Benchmark
+    public String renderLocatable() {
+        return documentPublisher.renderClass (locatable);
+    }
+
+    @Benchmark
+    public String renderDvQuantity() {
+        return documentPublisher.renderClass (dvQuantity);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void renderAllClasses (Blackhole blackhole) {
+        for (ClassInfo classInfo : classes)
+            blackhole.consume (documentPublisher.renderClass (classInfo));
+    }
+}
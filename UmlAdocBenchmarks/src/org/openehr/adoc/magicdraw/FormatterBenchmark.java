@@ -0,0 +1,82 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the AsciidocFormatter methods applied to every documentation text, table cell and
+ * link of a class document, over the documentation of the openEHR fixtures.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormatterBenchmark {
+
+    private Formatter formatter;
+
+    // documentation of the classes and features of the fixtures, as the builders produce it
+    private final List<String> documentation = new ArrayList<>();
+
+    // literal values, as of constants and operator aliases
+    private final List<String> literals = new ArrayList<>();
+
+    // names and spec URL paths of the fixture classes
+    private final List<String> classNames = new ArrayList<>();
+    private final List<String> specUrlPaths = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        UmlExportConfig.reset();
+        UmlExportConfig exportConfig = UmlExportConfig.getInstance();
+        formatter = new AsciidocFormatter();
+
+        FixtureInfoBuilder builder = new FixtureInfoBuilder (formatter, new SymbolTable());
+        OpenEhrFixtures.declare (builder);
+        for (ClassInfo classInfo : builder.buildRegistry().values()) {
+            documentation.add (classInfo.getDocumentation());
+            for (ClassFeatureInfo feature : classInfo.getAttributes())
+                documentation.add (feature.getDocumentation());
+            for (ClassFeatureInfo feature : classInfo.getOperations())
+                documentation.add (feature.getDocumentation());
+            classNames.add (classInfo.getClassName());
+            specUrlPaths.add (classInfo.getSpecUrlPath (exportConfig.getSpecLinkTemplate(), exportConfig.getComponentPackageNamePrefix()));
+        }
+
+        literals.add ("UCUM | ISO 80000");
+        literals.add ("a<=b|*c");
+        literals.add ("+");
+        literals.add ("<=");
+        literals.add ("openEHR-EHR-OBSERVATION.blood_pressure.v2");
+    }
+
+    @Benchmark
+    public void normalizeLines (Blackhole blackhole) {
+        for (String doc : documentation)
+            blackhole.consume (formatter.normalizeLines (doc));
+    }
+
+    @Benchmark
+    public void tableCell (Blackhole blackhole) {
+        for (String doc : documentation)
+            blackhole.consume (formatter.tableCell (doc, 1));
+    }
+
+    @Benchmark
+    public void escapeLiteral (Blackhole blackhole) {
+        for (String literal : literals)
+            blackhole.consume (formatter.escapeLiteral (literal));
+    }
+
+    @Benchmark
+    public void externalLink (Blackhole blackhole) {
+        for (int i = 0; i < classNames.size(); i++)
+            blackhole.consume (formatter.externalLink (classNames.get (i), specUrlPaths.get (i)));
+    }
+}
@@ -0,0 +1,93 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the builders of ClassInfo objects: the name handling shared by the builders, i.e.
+ * InfoBuilderSupport, and the build of all the entities of a model, through XmiInfoBuilder over the
+ * openEHR fixtures in XMI, i.e. the model of XmiAdocExporterTest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InfoBuilderBenchmark {
+
+    private static final String FIXTURES_XMI = "xmi/openehr_fixtures.xmi";
+
+    private static final String[] UML_QUALIFIED_NAMES = {
+            OpenEhrFixtures.STRING,
+            OpenEhrFixtures.LOCATABLE,
+            OpenEhrFixtures.DV_DATE_TIME,
+            OpenEhrFixtures.OBSERVATION,
+            OpenEhrFixtures.HISTORY + "<ITEM_STRUCTURE>",
+            "T"
+    };
+
+    private XmiModel model;
+    private XmiInfoBuilder builder;
+    private int packageDepth;
+
+    @Setup
+    public void setUp() throws IOException {
+        UmlExportConfig.reset();
+        packageDepth = UmlExportConfig.getInstance().getPackageDepth();
+
+        Path xmiFile = Files.createTempFile ("openehr_fixtures", ".xmi");
+        try (InputStream in = OpenEhrFixtures.class.getResourceAsStream (FIXTURES_XMI)) {
+            Files.copy (in, xmiFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        try {
+            model = XmiModel.read (xmiFile);
+        }
+        finally {
+            Files.delete (xmiFile);
+        }
+        builder = new XmiInfoBuilder (new AsciidocFormatter(), model, new SymbolTable());
+    }
+
+    @Benchmark
+    public void packageQualifiedClassName (Blackhole blackhole) {
+        for (String umlQualifiedName : UML_QUALIFIED_NAMES)
+            blackhole.consume (builder.packageQualifiedClassName (umlQualifiedName, packageDepth));
+    }
+
+    @Benchmark
+    public void setHierarchy (Blackhole blackhole) {
+        for (String umlQualifiedName : UML_QUALIFIED_NAMES) {
+            ClassInfo classInfo = new ClassInfo ("Class");
+            builder.setHierarchy (umlQualifiedName, packageDepth, classInfo);
+            blackhole.consume (classInfo);
+        }
+    }
+
+    /**
+     * Resolution of a bound generic type, e.g. as the type of an attribute, from its template binding.
+     */
+    @Benchmark
+    public TypeExpression convertGenericType() {
+        return builder.convertToQualified (OpenEhrFixtures.DV_INTERVAL + "<DV_DATE_TIME>");
+    }
+
+    /**
+     * Traversal of the model, build of all its classes, interfaces and enumerations and their merge,
+     * with a new builder and symbol table, as for an export.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public EntityRegistry buildEntities() {
+        XmiAdocExporter exporter = new XmiAdocExporter();
+        exporter.buildEntities (model);
+        return exporter.getAllEntities();
+    }
+}
@@ -0,0 +1,314 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Harness measuring how a full export scales with the size of the model: for each class count,
+ * generates a model with SyntheticModelGenerator, exports it with XmiAdocExporter to a scratch
+ * folder, and records the wall time of each phase of the export and the peak heap. The results
+ * are written to scaling.csv, and plotted on log-log axes in scaling.svg, with a line of linear
+ * growth from the smallest size; a phase growing faster than the model, e.g. the build of classes
+ * with their inherited features, or the merge into the entity registry, bends away from it.
+ * <p>
+ * Usage: ScalingBenchmark [-o folder] [--sizes 1000,2000,...] [--depth n] [--generic-density d]
+ * [--attributes n] [--operations n] [--doc-words n] [--threads n] [--keep]
+ * <p>
+ * The sizes are run smallest first in one JVM, after a warm-up run, with a full GC before each;
+ * run with a maximum heap large enough for the largest, e.g. -Xmx8g for 100k classes.
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class ScalingBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {1000, 2000, 5000, 10000, 20000, 50000, 100000};
+
+    // phases of the export plotted, besides the total
+    private static final String[] PLOTTED_PHASES = {"model load", "build classes", "merge entities", "render classes"};
+    private static final String TOTAL = "total";
+
+    private static final String[] COLOURS = {"#000000", "#1f77b4", "#d62728", "#2ca02c", "#ff7f0e", "#9467bd"};
+
+    private final SyntheticModelGenerator generator = new SyntheticModelGenerator();
+    private int[] sizes = DEFAULT_SIZES;
+    private int threads = 1;
+    private boolean keep;
+    private Path outputFolder = Paths.get ("out", "scaling");
+
+    // results of each size
+    private final List<Result> results = new ArrayList<>();
+
+    private static class Result {
+        private final int classCount;
+        private final long xmiBytes;
+        private final long totalNanos;
+        private final long peakHeapBytes;
+
+        // wall time of each phase, in the order first run
+        private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+
+        private Result (int classCount, long xmiBytes, long totalNanos, long peakHeapBytes) {
+            this.classCount = classCount;
+            this.xmiBytes = xmiBytes;
+            this.totalNanos = totalNanos;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+
+        private double millis (String phase) {
+            return (TOTAL.equals (phase) ? totalNanos : phaseNanos.getOrDefault (phase, 0L)) / 1e6;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        ScalingBenchmark benchmark = new ScalingBenchmark();
+        benchmark.parseArgs (args);
+        benchmark.run();
+    }
+
+    private void run() throws IOException, InterruptedException {
+        Files.createDirectories (outputFolder);
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter (pool -> pool.getType() == MemoryType.HEAP)
+                .collect (Collectors.toList());
+
+        System.out.println ("Model: " + generator.setClassCount (sizes[0]).describe().replaceFirst ("^\\d+ classes, ", ""));
+        System.out.println ("Warm-up at " + sizes[0] + " classes");
+        export (sizes[0], heapPools);
+        results.clear();
+
+        System.out.printf ("%10s %10s %10s %12s%n", "classes", "total ms", "us/class", "peak heap MB");
+        for (int size : sizes) {
+            Result result = export (size, heapPools);
+            results.add (result);
+            System.out.printf ("%10d %10.0f %10.1f %12.1f%n", size, result.millis (TOTAL), result.millis (TOTAL) * 1000 / size,
+                    result.peakHeapBytes / 1048576.0);
+        }
+
+        writeCsv (outputFolder.resolve ("scaling.csv"));
+        writeSvg (outputFolder.resolve ("scaling.svg"));
+        System.out.println ("Results written to " + outputFolder.resolve ("scaling.csv") + " and " + outputFolder.resolve ("scaling.svg"));
+    }
+
+    // generate and export a model of a number of classes, measuring the export only
+    private Result export (int classCount, List<MemoryPoolMXBean> heapPools) throws IOException, InterruptedException {
+        Path sizeFolder = outputFolder.resolve ("classes_" + classCount);
+        Path docsFolder = sizeFolder.resolve ("docs");
+        Files.createDirectories (docsFolder);
+        Path xmiFile = sizeFolder.resolve ("model.xmi");
+        generator.setClassCount (classCount).write (xmiFile);
+
+        UmlExportConfig.reset();
+        UmlExportConfig exportConfig = UmlExportConfig.getInstance();
+        exportConfig.getComponentPackageNames().add (SyntheticModelGenerator.COMPONENT);
+        exportConfig.setQualifiedClassNames (true);
+        exportConfig.setThreads (threads);
+
+        System.gc();
+        heapPools.forEach (MemoryPoolMXBean::resetPeakUsage);
+        long startTime = System.nanoTime();
+        XmiAdocExporter exporter = new XmiAdocExporter();
+        exporter.exportModel (docsFolder.toFile(), xmiFile);
+        long totalNanos = System.nanoTime() - startTime;
+        long peakHeapBytes = heapPools.stream().mapToLong (pool -> pool.getPeakUsage().getUsed()).sum();
+
+        if (exporter.getAllEntities().size() < classCount)
+            throw new UmlAdocExporterException ("Only " + exporter.getAllEntities().size() + " of " + classCount + " classes were exported!");
+
+        Result result = new Result (classCount, Files.size (xmiFile), totalNanos, peakHeapBytes);
+        for (ExportMetrics.Phase phase : exporter.getExportMetrics().getPhases())
+            result.phaseNanos.put (phase.getName(), phase.getWallNanos());
+
+        if (!keep)
+            delete (sizeFolder);
+        return result;
+    }
+
+    private void writeCsv (Path csvFile) throws IOException {
+        List<String> phases = results.stream().flatMap (r -> r.phaseNanos.keySet().stream()).distinct().collect (Collectors.toList());
+        StringBuilder sb = new StringBuilder ("classes,xmi_bytes,total_ms");
+        for (String phase : phases)
+            sb.append (',').append (phase.replace (' ', '_')).append ("_ms");
+        sb.append (",peak_heap_mb").append (System.lineSeparator());
+        for (Result result : results) {
+            sb.append (result.classCount).append (',').append (result.xmiBytes).append (',').append (String.format (Locale.ROOT, "%.1f", result.millis (TOTAL)));
+            for (String phase : phases)
+                sb.append (',').append (String.format (Locale.ROOT, "%.1f", result.millis (phase)));
+            sb.append (',').append (String.format (Locale.ROOT, "%.1f", result.peakHeapBytes / 1048576.0)).append (System.lineSeparator());
+        }
+        Files.write (csvFile, sb.toString().getBytes (StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Plot the wall time of the export and its main phases, and the peak heap, against the
+     * number of classes, side by side on log-log axes.
+     */
+    private void writeSvg (Path svgFile) throws IOException {
+        Map<String, double[]> timeSeries = new LinkedHashMap<>();
+        timeSeries.put (TOTAL, results.stream().mapToDouble (r -> r.millis (TOTAL)).toArray());
+        for (String phase : PLOTTED_PHASES)
+            timeSeries.put (phase, results.stream().mapToDouble (r -> r.millis (phase)).toArray());
+        Map<String, double[]> heapSeries = new LinkedHashMap<>();
+        heapSeries.put ("peak heap", results.stream().mapToDouble (r -> r.peakHeapBytes / 1048576.0).toArray());
+        double[] classCounts = results.stream().mapToDouble (r -> r.classCount).toArray();
+
+        StringBuilder svg = new StringBuilder();
+        svg.append ("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"1160\" height=\"460\" font-family=\"sans-serif\" font-size=\"11\">\n");
+        svg.append ("<rect width=\"100%\" height=\"100%\" fill=\"white\"/>\n");
+        plot (svg, 0, "Export time (ms)", classCounts, timeSeries);
+        plot (svg, 580, "Peak heap (MB)", classCounts, heapSeries);
+        svg.append (String.format ("<text x=\"20\" y=\"450\" fill=\"#555\">%s</text>\n", escape (generator.describe().replaceFirst ("^\\d+ classes, ", "synthetic model: "))));
+        svg.append ("</svg>\n");
+        Files.write (svgFile, svg.toString().getBytes (StandardCharsets.UTF_8));
+    }
+
+    // one panel of the plot, with a dashed line of linear growth from the first point of the first series
+    private static void plot (StringBuilder svg, int left, String title, double[] xs, Map<String, double[]> series) {
+        int plotLeft = left + 70, plotTop = 40, plotWidth = 460, plotHeight = 340;
+        double minX = Math.floor (Math.log10 (Arrays.stream (xs).min().orElse (1)));
+        double maxX = Math.ceil (Math.log10 (Arrays.stream (xs).max().orElse (10)));
+        double minY = Math.floor (Math.log10 (Math.max (1e-3, series.values().stream().flatMapToDouble (Arrays::stream).filter (v -> v > 0).min().orElse (1))));
+        double[] first = series.values().iterator().next();
+        double maxY = Math.ceil (Math.log10 (Math.max (series.values().stream().flatMapToDouble (Arrays::stream).max().orElse (10),
+                first[0] * xs[xs.length - 1] / xs[0])));
+        if (maxX == minX)
+            maxX++;
+        if (maxY == minY)
+            maxY++;
+
+        double x0 = minX, x1 = maxX, y0 = minY, y1 = maxY;
+        java.util.function.DoubleUnaryOperator px = x -> plotLeft + (Math.log10 (x) - x0) / (x1 - x0) * plotWidth;
+        java.util.function.DoubleUnaryOperator py = y -> plotTop + plotHeight - (Math.log10 (y) - y0) / (y1 - y0) * plotHeight;
+
+        svg.append (String.format ("<text x=\"%d\" y=\"24\" font-size=\"14\" font-weight=\"bold\">%s</text>\n", plotLeft, escape (title)));
+        svg.append (String.format ("<rect x=\"%d\" y=\"%d\" width=\"%d\" height=\"%d\" fill=\"none\" stroke=\"#888\"/>\n", plotLeft, plotTop, plotWidth, plotHeight));
+        for (double d = minX; d <= maxX; d++) {
+            double x = px.applyAsDouble (Math.pow (10, d));
+            svg.append (String.format (Locale.ROOT, "<line x1=\"%.1f\" y1=\"%d\" x2=\"%.1f\" y2=\"%d\" stroke=\"#ddd\"/>\n", x, plotTop, x, plotTop + plotHeight));
+            svg.append (String.format (Locale.ROOT, "<text x=\"%.1f\" y=\"%d\" text-anchor=\"middle\">%s</text>\n", x, plotTop + plotHeight + 16, tickLabel (d)));
+        }
+        for (double d = minY; d <= maxY; d++) {
+            double y = py.applyAsDouble (Math.pow (10, d));
+            svg.append (String.format (Locale.ROOT, "<line x1=\"%d\" y1=\"%.1f\" x2=\"%d\" y2=\"%.1f\" stroke=\"#ddd\"/>\n", plotLeft, y, plotLeft + plotWidth, y));
+            svg.append (String.format (Locale.ROOT, "<text x=\"%d\" y=\"%.1f\" text-anchor=\"end\">%s</text>\n", plotLeft - 6, y + 4, tickLabel (d)));
+        }
+        svg.append (String.format ("<text x=\"%d\" y=\"%d\" text-anchor=\"middle\">classes</text>\n", plotLeft + plotWidth / 2, plotTop + plotHeight + 34));
+
+        // linear growth from the first point of the first series
+        if (first[0] > 0)
+            svg.append (String.format (Locale.ROOT, "<line x1=\"%.1f\" y1=\"%.1f\" x2=\"%.1f\" y2=\"%.1f\" stroke=\"#999\" stroke-dasharray=\"5,4\"/>\n",
+                    px.applyAsDouble (xs[0]), py.applyAsDouble (first[0]),
+                    px.applyAsDouble (xs[xs.length - 1]), py.applyAsDouble (first[0] * xs[xs.length - 1] / xs[0])));
+
+        int colour = 0;
+        int legendY = plotTop + 14;
+        for (Map.Entry<String, double[]> entry : series.entrySet()) {
+            StringBuilder points = new StringBuilder();
+            for (int i = 0; i < xs.length; i++)
+                if (entry.getValue()[i] > 0)
+                    points.append (String.format (Locale.ROOT, "%.1f,%.1f ", px.applyAsDouble (xs[i]), py.applyAsDouble (entry.getValue()[i])));
+            String stroke = COLOURS[colour++ % COLOURS.length];
+            svg.append (String.format ("<polyline points=\"%s\" fill=\"none\" stroke=\"%s\" stroke-width=\"2\"/>\n", points.toString().trim(), stroke));
+            svg.append (String.format ("<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"%s\" stroke-width=\"2\"/>", plotLeft + 10, legendY - 4, plotLeft + 30, legendY - 4, stroke));
+            svg.append (String.format ("<text x=\"%d\" y=\"%d\">%s</text>\n", plotLeft + 36, legendY, escape (entry.getKey())));
+            legendY += 16;
+        }
+        svg.append (String.format ("<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"#999\" stroke-dasharray=\"5,4\"/>", plotLeft + 10, legendY - 4, plotLeft + 30, legendY - 4));
+        svg.append (String.format ("<text x=\"%d\" y=\"%d\">linear</text>\n", plotLeft + 36, legendY));
+    }
+
+    // label of a decade, e.g. 1k for 3
+    private static String tickLabel (double decade) {
+        long value = Math.round (Math.pow (10, decade));
+        if (decade < 0)
+            return String.valueOf (Math.pow (10, decade));
+        return value >= 1_000_000 ? value / 1_000_000 + "M" : value >= 1000 ? value / 1000 + "k" : String.valueOf (value);
+    }
+
+    private static String escape (String text) {
+        return text.replace ("&", "&amp;").replace ("<", "&lt;").replace (">", "&gt;");
+    }
+
+    private static void delete (Path folder) throws IOException {
+        try (Stream<Path> paths = Files.walk (folder)) {
+            for (Path path : paths.sorted (Comparator.reverseOrder()).collect (Collectors.toList()))
+                Files.delete (path);
+        }
+    }
+
+    private void parseArgs (String[] cmdLineArgs) {
+        for (Iterator<String> iterator = Arrays.asList(cmdLineArgs).iterator(); iterator.hasNext(); ) {
+            String arg = iterator.next();
+            switch (arg) {
+                case "-o":
+                    outputFolder = Paths.get (getParameterValue (iterator, arg));
+                    break;
+
+                case "--sizes":
+                    sizes = Arrays.stream (getParameterValue (iterator, arg).split (",")).mapToInt (s -> parseInt (arg, s)).sorted().toArray();
+                    if (sizes.length == 0 || sizes[0] < 1)
+                        throw new UmlAdocExporterException ("Invalid argument for --sizes (expected positive class counts)!");
+                    break;
+
+                case "--depth":
+                    generator.setInheritanceDepth (Math.max (1, parseInt (arg, getParameterValue (iterator, arg))));
+                    break;
+
+                case "--generic-density":
+                    String density = getParameterValue (iterator, arg);
+                    try {
+                        generator.setGenericDensity (Double.parseDouble (density));
+                    } catch (NumberFormatException ignored) {
+                        throw new UmlAdocExporterException ("Invalid argument for --generic-density: " + density + " (expected 0 to 1)!");
+                    }
+                    break;
+
+                case "--attributes":
+                    generator.setAttributeCount (parseInt (arg, getParameterValue (iterator, arg)));
+                    break;
+
+                case "--operations":
+                    generator.setOperationCount (parseInt (arg, getParameterValue (iterator, arg)));
+                    break;
+
+                case "--doc-words":
+                    generator.setDocumentationWords (Math.max (1, parseInt (arg, getParameterValue (iterator, arg))));
+                    break;
+
+                case "--threads":
+                    threads = Math.max (1, parseInt (arg, getParameterValue (iterator, arg)));
+                    break;
+
+                case "--keep":  // keep the generated models and documents
+                    keep = true;
+                    break;
+
+                default:
+                    throw new UmlAdocExporterException ("Unknown argument " + arg + '!');
+            }
+        }
+    }
+
+    private static int parseInt (String arg, String value) {
+        try {
+            return Integer.parseInt (value.trim());
+        } catch (NumberFormatException ignored) {
+            throw new UmlAdocExporterException ("Invalid argument for " + arg + ": " + value + " (expected numeric)!");
+        }
+    }
+
+    private static String getParameterValue (Iterator<String> iterator, String arg) {
+        if (!iterator.hasNext())
+            throw new UmlAdocExporterException ("Missing value for " + arg + '!');
+        return iterator.next();
+    }
+}
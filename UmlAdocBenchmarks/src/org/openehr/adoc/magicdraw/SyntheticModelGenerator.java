@@ -0,0 +1,372 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Generator of synthetic UML models shaped like the openEHR models, written as XMI files that
+ * XmiAdocExporter reads as it reads a model exported from MagicDraw, for measuring how an export
+ * scales with the size of the model.
+ * <p>
+ * The model has a BASE component of primitive types and the generic List&lt;T&gt; and
+ * Interval&lt;T&gt;, and an RM component of packages of classes. Classes form inheritance chains
+ * of the configured depth, with parents in the same or earlier packages; each class has the
+ * configured numbers of attributes and operations, whose operations redefine those of its
+ * ancestors, as openEHR classes do. Attributes are typed by primitive types or other classes,
+ * some multi-valued, and a given fraction by bound generic classes, e.g. Interval&lt;CLASS_000042&gt;.
+ * Documentation is made of words from a small lexicon, with the '&lt;=', '|' and @TYPE@ markers
+ * the formatter has to handle. The same settings and seed always generate the same model.
+ */
+class SyntheticModelGenerator {
+
+    static final String COMPONENT = "RM";
+
+    private static final String XMI_NS = "http://www.omg.org/spec/XMI/20131001";
+    private static final String UML_NS = "http://www.omg.org/spec/UML/20131001";
+
+    private static final String[] PRIMITIVE_TYPES = {"String", "Integer", "Boolean", "Real", "Any"};
+
+    private static final String[] LEXICON = {"the", "archetyped", "node", "of", "a", "clinical", "record", "is", "value",
+            "in", "which", "time", "path", "identifier", "structure", "entry", "used", "to", "terminology", "code",
+            "and", "may", "be", "any", "item", "data", "`Void`", "e.g.", "<=", "|", "+\n", "\n\n", "i.e.", "set"};
+
+    private int classCount = 1000;
+    private int classesPerPackage = 50;
+    private int inheritanceDepth = 5;
+    private double genericDensity = 0.2;
+    private int attributeCount = 6;
+    private int operationCount = 3;
+    private int documentationWords = 40;
+    private long seed = 42;
+
+    private Random random;
+    private XMLStreamWriter writer;
+    private int nextId;
+
+    // ids of the bound generic classes by generic class name and actual parameter, and the
+    // bindings to be written, as {id, name, generic class name, actual parameter id}
+    private final Map<String, String> boundClassIds = new HashMap<>();
+    private final List<String[]> bindings = new ArrayList<>();
+
+    SyntheticModelGenerator setClassCount (int classCount) {
+        this.classCount = classCount;
+        return this;
+    }
+
+    SyntheticModelGenerator setClassesPerPackage (int classesPerPackage) {
+        this.classesPerPackage = classesPerPackage;
+        return this;
+    }
+
+    /**
+     * @param inheritanceDepth number of classes in each chain of inheritance; 1 for no inheritance.
+     */
+    SyntheticModelGenerator setInheritanceDepth (int inheritanceDepth) {
+        this.inheritanceDepth = inheritanceDepth;
+        return this;
+    }
+
+    /**
+     * @param genericDensity fraction of attributes typed by a bound generic class, from 0 to 1.
+     */
+    SyntheticModelGenerator setGenericDensity (double genericDensity) {
+        this.genericDensity = genericDensity;
+        return this;
+    }
+
+    SyntheticModelGenerator setAttributeCount (int attributeCount) {
+        this.attributeCount = attributeCount;
+        return this;
+    }
+
+    SyntheticModelGenerator setOperationCount (int operationCount) {
+        this.operationCount = operationCount;
+        return this;
+    }
+
+    /**
+     * @param documentationWords number of words in the documentation of a class; features have a third as many.
+     */
+    SyntheticModelGenerator setDocumentationWords (int documentationWords) {
+        this.documentationWords = documentationWords;
+        return this;
+    }
+
+    SyntheticModelGenerator setSeed (long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * A description of the settings, e.g. for a report.
+     */
+    String describe() {
+        return String.format ("%d classes, %d per package, inheritance depth %d, generic density %.2f, %d attributes, %d operations, %d words of documentation",
+                classCount, classesPerPackage, inheritanceDepth, genericDensity, attributeCount, operationCount, documentationWords);
+    }
+
+    static String className (int index) {
+        return String.format ("CLASS_%06d", index);
+    }
+
+    static String packageName (int index) {
+        return String.format ("pkg_%04d", index);
+    }
+
+    /**
+     * Generate the model and write it to an XMI file.
+     */
+    void write (Path xmiFile) {
+        random = new Random (seed);
+        nextId = 0;
+        boundClassIds.clear();
+        bindings.clear();
+
+        try (OutputStream out = new BufferedOutputStream (Files.newOutputStream (xmiFile), 1 << 16)) {
+            writer = XMLOutputFactory.newInstance().createXMLStreamWriter (out, "UTF-8");
+            writer.writeStartDocument ("UTF-8", "1.0");
+            writer.writeStartElement ("xmi", "XMI", XMI_NS);
+            writer.writeNamespace ("xmi", XMI_NS);
+            writer.writeNamespace ("uml", UML_NS);
+            writer.writeAttribute ("xmi", XMI_NS, "version", "2.5");
+
+            writer.writeStartElement ("uml", "Model", UML_NS);
+            writer.writeAttribute ("xmi", XMI_NS, "id", "model");
+            writer.writeAttribute ("name", "openEHR");
+
+            // BASE is written last, since it holds the bound generic classes used in RM
+            writeRmComponent();
+            writeBaseComponent();
+
+            writer.writeEndElement();
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+        } catch (IOException | XMLStreamException e) {
+            throw new UmlAdocExporterException ("Unable to write the synthetic model " + xmiFile + '!', e);
+        }
+    }
+
+    // BASE::org::openehr::base::foundation_types, holding the primitive and generic types, and the
+    // bound generic classes beside the classes they bind, as the qualified names of their types
+    // are resolved from them
+    private void writeBaseComponent() throws XMLStreamException {
+        startPackage ("base_component", "BASE");
+        startPackage ("base_org", "org");
+        startPackage ("base_openehr", "openehr");
+        startPackage ("base_base", "base");
+        startPackage ("foundation_types", "foundation_types");
+        for (String primitiveType : PRIMITIVE_TYPES) {
+            startElement ("packagedElement", "uml:Class", primitiveType, primitiveType);
+            writeComment (documentation (documentationWords / 3));
+            writer.writeEndElement();
+        }
+        writeGenericClass ("List");
+        writeGenericClass ("Interval");
+        for (String[] binding : bindings)
+            writeBoundClass (binding[0], binding[1], binding[2], binding[3]);
+        for (int i = 0; i < 5; i++)
+            writer.writeEndElement();
+    }
+
+    private void writeGenericClass (String name) throws XMLStreamException {
+        startElement ("packagedElement", "uml:Class", name, name);
+        writeComment (documentation (documentationWords));
+        startElement ("ownedTemplateSignature", "uml:RedefinableTemplateSignature", name + "_signature", null);
+        startElement ("ownedParameter", "uml:ClassifierTemplateParameter", name + "_T", null);
+        writer.writeAttribute ("parameteredElement", name + "_T_class");
+        startElement ("ownedParameteredElement", "uml:Class", name + "_T_class", "T");
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.writeEndElement();
+    }
+
+    // RM::org::openehr::rm::pkg_nnnn, holding the classes
+    private void writeRmComponent() throws XMLStreamException {
+        startPackage ("rm_component", COMPONENT);
+        startPackage ("rm_org", "org");
+        startPackage ("rm_openehr", "openehr");
+        startPackage ("rm_rm", "rm");
+
+        int packageCount = (classCount + classesPerPackage - 1) / classesPerPackage;
+        for (int p = 0; p < packageCount; p++) {
+            startPackage ("rm_" + packageName (p), packageName (p));
+            for (int i = p * classesPerPackage; i < Math.min (classCount, (p + 1) * classesPerPackage); i++)
+                writeClass (i);
+            writer.writeEndElement();
+        }
+
+        for (int i = 0; i < 4; i++)
+            writer.writeEndElement();
+    }
+
+    private void writeClass (int index) throws XMLStreamException {
+        int level = index % inheritanceDepth;
+        startElement ("packagedElement", "uml:Class", classId (index), className (index));
+        if (level == 0 && inheritanceDepth > 1)
+            writer.writeAttribute ("isAbstract", "true");
+        writeComment (documentation (documentationWords));
+
+        // the parent is a class of the level above, in the same or an earlier package
+        if (level > 0) {
+            int parent = index - 1 - inheritanceDepth * random.nextInt (Math.min (8, (index - 1) / inheritanceDepth + 1));
+            startElement ("generalization", "uml:Generalization", newId(), null);
+            writer.writeAttribute ("general", classId (parent));
+            writer.writeEndElement();
+        }
+
+        for (int a = 0; a < attributeCount; a++)
+            writeAttribute (level, a);
+
+        // operations of the same names at each level, so that each redefines or effects those of its ancestors
+        for (int o = 0; o < operationCount; o++)
+            writeOperation (level, o);
+
+        if (random.nextInt (4) == 0) {
+            startElement ("ownedRule", "uml:Constraint", newId(), "Invariant_" + index);
+            writer.writeAttribute ("constrainedElement", classId (index));
+            startElement ("specification", "uml:OpaqueExpression", newId(), null);
+            writer.writeStartElement ("body");
+            writer.writeCharacters ("attr_" + level + "_0 /= Void implies not attr_" + level + "_0.is_empty");
+            writer.writeEndElement();
+            writer.writeEndElement();
+            writer.writeEndElement();
+        }
+        writer.writeEndElement();
+    }
+
+    private void writeAttribute (int level, int a) throws XMLStreamException {
+        startElement ("ownedAttribute", "uml:Property", newId(), "attr_" + level + '_' + a);
+        String typeId;
+        boolean multiple = false;
+        if (random.nextDouble() < genericDensity)
+            typeId = boundClassId (random.nextBoolean() ? "List" : "Interval", randomTypeId());
+        else {
+            typeId = randomTypeId();
+            multiple = random.nextInt (4) == 0;
+        }
+        writer.writeAttribute ("type", typeId);
+        writeComment (documentation (documentationWords / 3));
+        if (multiple || random.nextInt (3) == 0) {
+            startElement ("lowerValue", "uml:LiteralInteger", newId(), null);
+            writer.writeEndElement();
+        }
+        if (multiple) {
+            startElement ("upperValue", "uml:LiteralUnlimitedNatural", newId(), null);
+            writer.writeAttribute ("value", "*");
+            writer.writeEndElement();
+        }
+        writer.writeEndElement();
+    }
+
+    private void writeOperation (int level, int o) throws XMLStreamException {
+        startElement ("ownedOperation", "uml:Operation", newId(), "op_" + o);
+        if (level == 0 && inheritanceDepth > 1)
+            writer.writeAttribute ("isAbstract", "true");
+        writeComment (documentation (documentationWords / 3) + "\n.Errors\nFails if the value is not valid.");
+        for (int p = 0; p <= o % 3; p++) {
+            startElement ("ownedParameter", "uml:Parameter", newId(), "a_param_" + p);
+            writer.writeAttribute ("type", randomTypeId());
+            writeComment (documentation (5));
+            writer.writeEndElement();
+        }
+        startElement ("ownedParameter", "uml:Parameter", newId(), "");
+        writer.writeAttribute ("direction", "return");
+        writer.writeAttribute ("type", randomTypeId());
+        writer.writeEndElement();
+        if (o == 0) {
+            startElement ("ownedRule", "uml:Constraint", newId(), "Pre_valid");
+            startElement ("specification", "uml:OpaqueExpression", newId(), null);
+            writer.writeStartElement ("body");
+            writer.writeCharacters ("a_param_0 /= Void");
+            writer.writeEndElement();
+            writer.writeEndElement();
+            writer.writeEndElement();
+        }
+        writer.writeEndElement();
+    }
+
+    // a primitive type, or a class of the model
+    private String randomTypeId() {
+        return random.nextInt (5) < 2
+                ? PRIMITIVE_TYPES[random.nextInt (PRIMITIVE_TYPES.length)]
+                : classId (random.nextInt (classCount));
+    }
+
+    // id of the class binding a generic class to an actual parameter, declaring it the first time
+    private String boundClassId (String genericName, String actualId) {
+        return boundClassIds.computeIfAbsent (genericName + '<' + actualId + '>', key -> {
+            String id = "bound_" + boundClassIds.size();
+            String actualName = actualId.startsWith ("c_") ? className (Integer.parseInt (actualId.substring (2))) : actualId;
+            bindings.add (new String[] {id, genericName + '<' + actualName + '>', genericName, actualId});
+            return id;
+        });
+    }
+
+    private void writeBoundClass (String id, String name, String genericName, String actualId) throws XMLStreamException {
+        startElement ("packagedElement", "uml:Class", id, name);
+        startElement ("templateBinding", "uml:TemplateBinding", newId(), null);
+        writer.writeAttribute ("signature", genericName + "_signature");
+        startElement ("parameterSubstitution", "uml:TemplateParameterSubstitution", newId(), null);
+        writer.writeAttribute ("actual", actualId);
+        writer.writeAttribute ("formal", genericName + "_T");
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.writeEndElement();
+    }
+
+    private String documentation (int words) {
+        StringBuilder sb = new StringBuilder ("Synthetic");
+        for (int i = 1; i < words; i++) {
+            sb.append (' ');
+            if (random.nextInt (20) == 0)
+                sb.append ('@').append (className (random.nextInt (classCount))).append ('@');
+            else
+                sb.append (LEXICON[random.nextInt (LEXICON.length)]);
+        }
+        return sb.append ('.').toString();
+    }
+
+    // a comment, with its body as an element, since line breaks in an attribute value are not kept
+    private void writeComment (String body) throws XMLStreamException {
+        startElement ("ownedComment", "uml:Comment", newId(), null);
+        writer.writeStartElement ("body");
+        writer.writeCharacters (body);
+        writer.writeEndElement();
+        writer.writeEndElement();
+    }
+
+    private void startPackage (String id, String name) throws XMLStreamException {
+        startElement ("packagedElement", "uml:Package", id, name);
+    }
+
+    private void startElement (String role, String xmiType, String id, String name) throws XMLStreamException {
+        writer.writeStartElement (role);
+        writer.writeAttribute ("xmi", XMI_NS, "type", xmiType);
+        writer.writeAttribute ("xmi", XMI_NS, "id", id);
+        if (name != null)
+            writer.writeAttribute ("name", name);
+    }
+
+    private static String classId (int index) {
+        return "c_" + index;
+    }
+
+    private String newId() {
+        return "e_" + nextId++;
+    }
+}
@@ -8,32 +8,22 @@ import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
 
 import java.util.*;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * @author Bostjan Lah
  */
-public abstract class AbstractInfoBuilder<T> extends UmlExporterDefinitions {
-
-    static String DOC_ERROR_DELIM = ".Errors";
-
-    // The following are names of attributes in the openEHR profile stereotypes
-    // <<Operator>> and <<Symbolic_operator>> respectively, which become UML 'tags'
-    // in the Operation elements to which those stereotypes are applied. These
-    // stereotypes have the effect of adding two possible meta-attributes, i.e.
-    // ops and sym_ops, both defined as List<String>, which may contain string
-    // names of operators (e.g. "+") to be associated with the operation (e.g. add()).
-    static List<String> stereotypeTagNames = Arrays.asList("ops", "sym_ops");
-
-    protected final Formatter formatter;
+public abstract class AbstractInfoBuilder<T> extends InfoBuilderSupport {
 
     protected final Function<String, Class> getUMLClassByQualifiedName;
 
-    protected AbstractInfoBuilder (Formatter formatter, Function<String, Class> getUMLClassByQualifiedName) {
-        this.formatter = formatter;
+    /**
+     * @param parsedComments cache of parsed comments by element, shared by the builders of an export.
+     * @param symbolTable symbols of the export, shared by its builders.
+     */
+    protected AbstractInfoBuilder (Formatter formatter, Function<String, Class> getUMLClassByQualifiedName, Map<Object, ParsedComment> parsedComments,
+            SymbolTable symbolTable) {
+        super(formatter, parsedComments, symbolTable);
         this.getUMLClassByQualifiedName = getUMLClassByQualifiedName;
     }
 
@@ -41,48 +31,27 @@ public abstract class AbstractInfoBuilder<T> extends UmlExporterDefinitions {
      * Extract comment text, but remove any section starting with the line
      * ".Error"; this is split out by getErrorDocumentation()
      */
-    @SuppressWarnings("HardcodedLineSeparator")
     protected String getDocumentation(Element element, Formatter formatter) {
-        List<String> allLines = element.getOwnedComment().stream()
-                .map(Comment::getBody)
-                .flatMap(body -> Stream.of(body.split("\n")))
-                .map(formatter::escape)
-                .collect(Collectors.toList());
-        List<String> resultLines = new ArrayList<>();
-        for (String s: allLines) {
-            if (s.equalsIgnoreCase(DOC_ERROR_DELIM))
-                break;
-            resultLines.add(s);
-        }
-        return String.join(System.lineSeparator(), resultLines);
-
+        return getParsedComment (element).getDocumentation();
     }
 
     /**
      * Extract error comment text, which is delimited by a line containing
      * ".Error", if it exists.
-     * The delimiter line is not included in the result. If there is no
-     * error text, the result is an empty string.
      */
-    @SuppressWarnings("HardcodedLineSeparator")
     protected String getErrorDocumentation(Element element, Formatter formatter) {
-        List<String> allLines = element.getOwnedComment().stream()
+        return getParsedComment (element).getErrorDocumentation();
+    }
+
+    // elements without comments, i.e. most, are not cached
+    private ParsedComment getParsedComment (Element element) {
+        return element.getOwnedComment().isEmpty() ? ParsedComment.EMPTY : getParsedComment (element, AbstractInfoBuilder::commentBodies);
+    }
+
+    private static List<String> commentBodies (Element element) {
+        return element.getOwnedComment().stream()
                 .map(Comment::getBody)
-                .flatMap(body -> Stream.of(body.split("\n")))
-                .map(formatter::escape)
                 .collect(Collectors.toList());
-        List<String> resultLines = new ArrayList<>();
-        boolean found = false;
-        for (String s: allLines) {
-            if (found)
-                resultLines.add(s);
-            if (s.equalsIgnoreCase(DOC_ERROR_DELIM))
-                found = true;
-        }
-        if (!resultLines.isEmpty())
-            return String.join(System.lineSeparator(), resultLines);
-        else
-            return "";
     }
 
     /**
@@ -92,10 +61,6 @@ public abstract class AbstractInfoBuilder<T> extends UmlExporterDefinitions {
      */
     public abstract ClassInfo build (T element);
 
-    protected Formatter getFormatter() {
-        return formatter;
-    }
-
     // Add class- or routine-level constraints
     protected void addConstraints (List<ConstraintInfo> constraints, Collection<Constraint> constraintOfConstrainedElement) {
         for (Constraint constraint : constraintOfConstrainedElement) {
@@ -104,498 +69,196 @@ public abstract class AbstractInfoBuilder<T> extends UmlExporterDefinitions {
     }
 
     private String formatConstraint (Constraint constraint) {
-        StringBuilder builder = new StringBuilder(formatter.italic(constraint.getName())).append(": ");
+        List<String> bodyLines = Collections.emptyList();
         if (constraint.getSpecification() instanceof OpaqueExpression) {
             OpaqueExpression opaqueExpression = (OpaqueExpression)constraint.getSpecification();
-            if (opaqueExpression.hasBody()) {
-                boolean add = false;
-                for (String line : opaqueExpression.getBody()) {
-                    if (add)
-                        builder.append(formatter.hardLineBreak());
-                    builder.append(formatter.monospace(formatter.escape(line)));
-                    add = true;
-                }
-            }
+            if (opaqueExpression.hasBody())
+                bodyLines = opaqueExpression.getBody();
         }
-        return builder.toString();
+        return formatConstraint (constraint.getName(), bodyLines);
     }
 
     protected void addAttributes (List<ClassFeatureInfo> attributes, List<Property> properties, Map<String, Property> superClassAttributes) {
-        properties.stream()
-                .filter(p -> !superClassAttributes.containsKey(p.getName()))        // if not in inherited properties, it's 'new'
-                .filter(p -> !p.isReadOnly())                                       // treat as a constant; do below
-                .forEach(p -> addAttribute(attributes, p, OperationStatus.DEFINED));// group 'new' properties here
-        properties.stream()
-                .filter(p -> superClassAttributes.containsKey(p.getName()))         // if in inherited properties, it's a redefine
-                .filter(p -> !p.isReadOnly())
-                .forEach(p -> addAttribute(attributes, p, OperationStatus.REDEFINED));// group redefined properties here
+        addProperties (attributes, properties, superClassAttributes, false, NamedElement::getName, StructuralFeature::isReadOnly, this::buildAttribute);
     }
 
     protected void addConstants(List<ClassFeatureInfo> attributes, List<Property> properties, Map<String, Property> superClassAttributes) {
-        properties.stream()
-                .filter(p -> !superClassAttributes.containsKey(p.getName()))
-                .filter(StructuralFeature::isReadOnly)
-                .forEach(p -> addAttribute(attributes, p, OperationStatus.DEFINED));
-        properties.stream()
-                .filter(p -> superClassAttributes.containsKey(p.getName()))
-                .filter(StructuralFeature::isReadOnly)
-                .forEach(p -> addAttribute(attributes, p, OperationStatus.REDEFINED));
+        addProperties (attributes, properties, superClassAttributes, true, NamedElement::getName, StructuralFeature::isReadOnly, this::buildAttribute);
     }
 
     /**
-     * Build a ClassFeatureInfo object for property and add it to the attributes list.
-     * @param attributes List of ClassFeatureInfo objects for this class so far built.
+     * Build a ClassFeatureInfo object for property.
      * @param umlProperty the property to add.
      * @param attrStatus Status of attribute in this class: defined, redefined etc.
      */
-    private void addAttribute (List<ClassFeatureInfo> attributes, Property umlProperty, OperationStatus attrStatus) {
-        // create a ClassFeatureInfo with attribute documentation, occurrences and redefined marker
-        ClassFeatureInfo classFeatureInfo = new ClassFeatureInfo()
-                .setDocumentation(getDocumentation(umlProperty, formatter))
-                .setCardinality(formatSpecialOccurences(umlProperty.getLower(), umlProperty.getUpper()))
-                .setStatus(attrStatus.toString().isEmpty()? "" : "(" + attrStatus + ")");
-
-        // attribute signature
-        StringBuilder sigBuilder = new StringBuilder(formatter.bold(umlProperty.getName()));
-        sigBuilder.append(": ");
-
+    private ClassFeatureInfo buildAttribute (Property umlProperty, OperationStatus attrStatus) {
         // determine the type in qualified form
-        String propertyQualifiedTypeName = "";
-        String propertyUmlQualifiedTypeName = "";
-        if (umlProperty.getType() != null) {
-            propertyUmlQualifiedTypeName = umlProperty.getType().getQualifiedName();
-            propertyQualifiedTypeName = convertToQualified (propertyUmlQualifiedTypeName);
-        }
+        TypeExpression propertyType = TypeExpression.named ("");
+        if (umlProperty.getType() != null)
+            propertyType = convertToQualified (umlProperty.getType().getQualifiedName());
 
         // if there is a qualifier on the property, get it, since this will modify the type
         Property umlQualifier = umlProperty.getAssociation() != null && umlProperty.hasQualifier() ? umlProperty.getQualifier().get(0) : null;
 
-        // Now create a proper type string, with corrections to inject List<> and Hash<> where needed
-        StringBuilder typeInfo = new StringBuilder (correctType (propertyQualifiedTypeName, umlQualifier, umlProperty.getLower(), umlProperty.getUpper()));
+        // Now create a proper type, with corrections to inject List<> and Hash<> where needed
+        Signature typeInfo = new Signature().append (correctType (propertyType,
+                umlQualifier == null ? null : umlQualifier.getName(),
+                umlQualifier == null ? null : convertToQualified (umlQualifier.getType().getQualifiedName()),
+                umlProperty.getLower(), umlProperty.getUpper()));
 
         // If there is a default value defined, attach it to the type, on a new line.
         ValueSpecification defaultValue = umlProperty.getDefaultValue();
-        if (defaultValue != null) {
-            // if the property is a constant, then
-            // output '=' + <default value>; else
-            // output \n {default '=' + <default value>}
-            if (!umlProperty.isReadOnly())
-                typeInfo.append(formatter.hardLineBreak()).append("{default");
+        if (defaultValue != null)
+            addDefaultValue (typeInfo, umlProperty.isReadOnly(), formatDefaultValue (defaultValue));
 
-            if (defaultValue instanceof LiteralString) {
-                LiteralString value = (LiteralString)defaultValue;
-                typeInfo.append("{nbsp}={nbsp}").append(formatter.escapeLiteral(value.getValue()));
-            }
-            else if (defaultValue instanceof LiteralInteger) {
-                LiteralInteger value = (LiteralInteger) defaultValue;
-                typeInfo.append("{nbsp}={nbsp}").append(value.getValue());
-            }
-            else if (defaultValue instanceof LiteralReal) {
-                LiteralReal value = (LiteralReal) defaultValue;
-                typeInfo.append("{nbsp}={nbsp}").append(value.getValue());
-            }
-            else if (defaultValue instanceof LiteralBoolean) {
-                LiteralBoolean value = (LiteralBoolean) defaultValue;
-                typeInfo.append("{nbsp}={nbsp}").append(value.isValue());
-            }
-            else if (defaultValue instanceof EnumerationLiteral) {
-                EnumerationLiteral value = (EnumerationLiteral) defaultValue;
-                typeInfo.append("{nbsp}={nbsp}").append(value);
-            }
-            else if (defaultValue instanceof InstanceValue) {
-                InstanceValue value = (InstanceValue) defaultValue;
-                String spec = value.getInstance().getName();
-                if (spec != null)
-                    typeInfo.append("{nbsp}={nbsp}").append(spec);
-                else
-                    typeInfo.append("{nbsp}={nbsp}(unknown)");
-            }
-            else {
-                // This case is not yet working; idea is to generate the symbol string
-                // for a constant whose 'value' is another property or constant
-                Expression expr = defaultValue.getExpression();
-                if (expr != null)
-                    typeInfo.append("{nbsp}={nbsp}").append(expr.getSymbol());
-            }
+        return buildAttribute (umlProperty.getName(), getDocumentation(umlProperty, formatter), attrStatus, typeInfo,
+                umlProperty.getLower(), umlProperty.getUpper());
+    }
 
-            if (!umlProperty.isReadOnly())
-                typeInfo.append("}");
+    /**
+     * Format the default value of a property.
+     * @return null if the kind of value is not supported.
+     */
+    private String formatDefaultValue (ValueSpecification defaultValue) {
+        if (defaultValue instanceof LiteralString) {
+            LiteralString value = (LiteralString)defaultValue;
+            return formatter.escapeLiteral(value.getValue());
+        }
+        else if (defaultValue instanceof LiteralInteger) {
+            LiteralInteger value = (LiteralInteger) defaultValue;
+            return String.valueOf(value.getValue());
+        }
+        else if (defaultValue instanceof LiteralReal) {
+            LiteralReal value = (LiteralReal) defaultValue;
+            return String.valueOf(value.getValue());
+        }
+        else if (defaultValue instanceof LiteralBoolean) {
+            LiteralBoolean value = (LiteralBoolean) defaultValue;
+            return String.valueOf(value.isValue());
+        }
+        else if (defaultValue instanceof EnumerationLiteral) {
+            EnumerationLiteral value = (EnumerationLiteral) defaultValue;
+            return String.valueOf(value);
+        }
+        else if (defaultValue instanceof InstanceValue) {
+            InstanceValue value = (InstanceValue) defaultValue;
+            return formatInstanceValue (value.getInstance().getName());
+        }
+        else {
+            // This case is not yet working; idea is to generate the symbol string
+            // for a constant whose 'value' is another property or constant
+            Expression expr = defaultValue.getExpression();
+            return expr != null ? expr.getSymbol() : null;
         }
-
-        // If there is any type information, append it
-        if (typeInfo.length() > 0)
-            sigBuilder.append (formatter.monospace (typeInfo.toString()));
-
-        classFeatureInfo.setSignature(sigBuilder.toString());
-
-        attributes.add(classFeatureInfo);
     }
 
     /**
      *  Convert a UML style qualified class name string like
      *      RM::org::openehr::rm::entity::physical_entity::...::class_name
-     *  to a fixed depth form like
+     *  to a type with a fixed depth name like
      *      org.openehr.rm.entity.class_name (for pkgDepth = 4)
      *
-     *  For generic types, the result will be something like
+     *  For generic types, the name will be something like
      *  org.openehr.rm.data_types.DV_INTERVAL<DV_DATE>
-     *  what we need is org.openehr.rm.data_types.DV_INTERVAL<org.openehr.rm.data_types.DV_DATE>;
-     *  So we also inject the qualifiers into the generic parts
-     *
-     *  ASSUMPTION: only one level of generics!
+     *  what we need is a generic type of org.openehr.rm.data_types.DV_INTERVAL applied to
+     *  org.openehr.rm.data_types.DV_DATE; so we build the actual parameters from the template
+     *  bindings, recursing into any that are themselves generic.
      */
-    String convertToQualified (String umlQualifiedTypeName) {
+    @Override
+    TypeExpression resolveType (String umlQualifiedTypeName) {
         String qualifiedTypeName = packageQualifiedClassName (umlQualifiedTypeName, UmlExportConfig.getInstance().getPackageDepth());
-        if (qualifiedTypeName.contains("<")) {
-            StringBuilder genericTypeNameSb = new StringBuilder(qualifiedTypeName.substring(0, qualifiedTypeName.indexOf("<")+1));
-            Class typeClass = getUMLClassByQualifiedName.apply(umlQualifiedTypeName);
-            if (typeClass != null) {
-                Collection<TemplateBinding> tplBindings = typeClass.getTemplateBinding();
-                if (!tplBindings.isEmpty()) {
-                    for (TemplateBinding tplBinding: tplBindings) {
-                        List<TemplateParameterSubstitution> tplParamSubsts = new ArrayList<> (tplBinding.getParameterSubstitution());
-                        if (!tplParamSubsts.isEmpty()) {
-                            // We should be using the following line of code instead of the for loop below, but...
-                            // for (TemplateParameterSubstitution tplParamSubst: tplParamSubstsList) {
-                            // TODO: for whatever reasons, the result of tplBinding.getParameterSubstitution() appears to be
-                            // in reverse order to that declared in the UML model. Here we iterate backwards through it.
-                            for (int i = tplParamSubsts.size() - 1; i >= 0 ; i--) {
-                                ParameterableElement pElem = tplParamSubsts.get(i).getActual();
-                                if (pElem == null)
-                                    throw new UmlAdocExporterException("Null actual generic class parameter in " + umlQualifiedTypeName + "; check model");
-                                else if (pElem instanceof NamedElement) {
-                                    String qName = ((NamedElement) pElem).getQualifiedName();
-                                    if (qName.contains("<"))
-                                        genericTypeNameSb.append (convertToQualified (qName));
-                                    else if (pElem instanceof Class)
-                                        genericTypeNameSb.append (packageQualifiedClassName(((Class) pElem).getQualifiedName(), UmlExportConfig.getInstance().getPackageDepth()));
-                                    else
-                                        genericTypeNameSb.append (((NamedElement) pElem).getName());
-
-                                    genericTypeNameSb.append(", ");
-                                }
-                                else
-                                    throw new UmlAdocExporterException("Couldn't find meta-type for generic class parameter in " +
-                                            umlQualifiedTypeName + "; Java type " + pElem.getClass() + "; check model");
-                            }
-                            // Replace final trailing ', ' with final '>'
-                            genericTypeNameSb.delete(genericTypeNameSb.lastIndexOf(", "), genericTypeNameSb.length()).append(">");
-                        }
-                        else
-                            throw new UmlAdocExporterException("Couldn't find any template param substitutions for generic class " + umlQualifiedTypeName);
-                    }
-                }
+        if (!qualifiedTypeName.contains("<"))
+            return TypeExpression.named (qualifiedTypeName);
+
+        Class typeClass = getUMLClassByQualifiedName.apply(umlQualifiedTypeName);
+        if (typeClass == null)
+            throw new UmlAdocExporterException("Couldn't find MD UML Class object for type: " + umlQualifiedTypeName);
+
+        Collection<TemplateBinding> tplBindings = typeClass.getTemplateBinding();
+        if (tplBindings.isEmpty())
+            throw new UmlAdocExporterException("Couldn't find any template bindings for generic class " + umlQualifiedTypeName);
+
+        List<TypeExpression> parameters = new ArrayList<>();
+        for (TemplateBinding tplBinding: tplBindings) {
+            List<TemplateParameterSubstitution> tplParamSubsts = new ArrayList<> (tplBinding.getParameterSubstitution());
+            if (tplParamSubsts.isEmpty())
+                throw new UmlAdocExporterException("Couldn't find any template param substitutions for generic class " + umlQualifiedTypeName);
+
+            // We should be using the following line of code instead of the for loop below, but...
+            // for (TemplateParameterSubstitution tplParamSubst: tplParamSubstsList) {
+            // TODO: for whatever reasons, the result of tplBinding.getParameterSubstitution() appears to be
+            // in reverse order to that declared in the UML model. Here we iterate backwards through it.
+            for (int i = tplParamSubsts.size() - 1; i >= 0 ; i--) {
+                ParameterableElement pElem = tplParamSubsts.get(i).getActual();
+                if (pElem == null)
+                    throw new UmlAdocExporterException("Null actual generic class parameter in " + umlQualifiedTypeName + "; check model");
+                else if (pElem instanceof NamedElement)
+                    parameters.add (actualParameterType (((NamedElement) pElem).getQualifiedName(), ((NamedElement) pElem).getName(), pElem instanceof Class));
                 else
-                    throw new UmlAdocExporterException("Couldn't find any template bindings for generic class " + umlQualifiedTypeName);
+                    throw new UmlAdocExporterException("Couldn't find meta-type for generic class parameter in " +
+                            umlQualifiedTypeName + "; Java type " + pElem.getClass() + "; check model");
             }
-            else
-                throw new UmlAdocExporterException("Couldn't find MD UML Class object for type: " + umlQualifiedTypeName);
-
-            return genericTypeNameSb.toString();
         }
-        else
-            return qualifiedTypeName;
+        return boundType (qualifiedTypeName, parameters);
     }
 
     protected void addOperations(List<ClassFeatureInfo> features, List<Operation> operations, Map<String, Operation> superClassOperations) {
         for (Operation op : operations) {
-            if (superClassOperations.containsKey(op.getName())) {
-                if (superClassOperations.get(op.getName()).isAbstract())
-                    addOperation(features, op, OperationStatus.EFFECTED);
-                else
-                    addOperation(features, op, OperationStatus.REDEFINED);
-            }
-            else
-                addOperation(features, op, op.isAbstract()? OperationStatus.ABSTRACT : OperationStatus.DEFINED);
+            Operation inheritedOp = superClassOperations.get(op.getName());
+            features.add(buildOperation(op, operationStatus(op.isAbstract(), inheritedOp == null ? null : inheritedOp.isAbstract())));
         }
     }
 
     /**
-     * Build a ClassFeatureInfo for operation, and append it to the features list so far built.
-     * @param features List of class features so far built.
+     * Build a ClassFeatureInfo for operation.
      * @param umlOperation UML operation definition.
      * @param opStatus Status of operation in this class: abstract, effected, defined etc.
      */
-    private void addOperation(List<ClassFeatureInfo> features, Operation umlOperation, OperationStatus opStatus) {
-        // Create the main documentation.
-        StringBuilder opDocBuilder = new StringBuilder(getDocumentation(umlOperation, formatter));
-        opDocBuilder.append(System.lineSeparator());
-
-        // Start building the operation signature
-        // append the operation name, bolded
-        StringBuilder opSigBuilder = new StringBuilder(formatter.bold(umlOperation.getName()));
-
+    private ClassFeatureInfo buildOperation(Operation umlOperation, OperationStatus opStatus) {
         // see if the operation has stereotype <<Operator>>, which has tag ops: List<String>
         // or <<Symbolic_operator>>, which has tag sym_ops: List<String>
         // See comment above for stereotypeTagNames for details
-        StringBuilder opAliasBuilder = new StringBuilder();
-        List<TaggedValue> taggedValues = umlOperation.getTaggedValue();
-
-        Iterator<TaggedValue> taggedValuesIt = taggedValues.iterator();
-        while (taggedValuesIt.hasNext()) {
-            TaggedValue taggedValue = taggedValuesIt.next();
-            Property tagProp = taggedValue.getTagDefinition();
-
-            // Here we check that the slot attribute name is one of the ones we want
-            if (stereotypeTagNames.contains(tagProp.getName()) &&
-                    taggedValue instanceof StringTaggedValue &&
-                    taggedValue.hasValue()) {
-                // Now we know we have the operator tags, we can output the 'alias' line
-                // (Use the first variant to put it on a new line, plus uncomment the
-                // post-loop statement to add another NL)
-                // opSigBuilder.append(formatter.hardLineBreak() + formatter.italic("alias") + " ");
-                if (opAliasBuilder.length() == 0)
-                    opAliasBuilder.append(" " + formatter.italic("alias") + " ");
-
-                StringTaggedValue stringTaggedValue = (StringTaggedValue) taggedValue;
-
-                Iterator<String> stringTaggedValueIt = stringTaggedValue.getValue().iterator();
-                while (stringTaggedValueIt.hasNext()) {
-                    String opStr = stringTaggedValueIt.next();
-                    opAliasBuilder.append(formatter.escapeLiteral(opStr));
-                    if (taggedValuesIt.hasNext() || stringTaggedValueIt.hasNext())
-                        opAliasBuilder.append(", ");
-                }
-            }
+        List<String> tagNames = new ArrayList<>();
+        List<List<String>> tagValues = new ArrayList<>();
+        for (TaggedValue taggedValue : umlOperation.getTaggedValue()) {
+            tagNames.add(taggedValue.getTagDefinition().getName());
+            tagValues.add(taggedValue instanceof StringTaggedValue ? ((StringTaggedValue) taggedValue).getValue() : null);
         }
-        opSigBuilder.append(opAliasBuilder);
 
         // If there are parameters, output them within parentheses; also
         // add the parameter documentation to the documentary text
+        List<Signature> formattedParameters = null;
+        List<String> paramNames = null;
+        List<String> paramComments = null;
         if (umlOperation.hasOwnedParameter()) {
-            addSignatureParameters(opSigBuilder, umlOperation.getOwnedParameter());
-            opDocBuilder.append(System.lineSeparator());
-            addDocumentParameters(opDocBuilder, umlOperation.getOwnedParameter());
-        }
-
-        // If there is a return type, append it to the signature in monospace.
-        String qualifiedTypeName = umlOperation.getType() == null ? "" : convertToQualified (umlOperation.getType().getQualifiedName());
-        StringBuilder fullSigBuilder = qualifiedTypeName.isEmpty()
-                ? new StringBuilder(opSigBuilder)
-                : new StringBuilder(opSigBuilder + ": " + formatter.monospace(correctType(qualifiedTypeName, null, umlOperation.getLower(), umlOperation.getUpper())));
-
-        // Output any operation pre- and post-conditions (UML constraints)
-        addOperationConstraint(umlOperation, fullSigBuilder);
-
-        // Create and set the error documentation, if there is any.
-        String errStr = getErrorDocumentation(umlOperation, formatter);
-        if (!errStr.isEmpty()) {
-            opDocBuilder.append(System.lineSeparator())
-                .append (formatter.errorDelimiterLine())
-                .append (getErrorDocumentation(umlOperation, formatter))
-                .append (System.lineSeparator());
-        }
-
-        ClassFeatureInfo classFeatureInfo = new ClassFeatureInfo()
-                .setCardinality (formatSpecialOccurences(umlOperation.getLower(), umlOperation.getUpper()))
-                .setStatus (opStatus.toString().isEmpty()? "" : "(" + opStatus + ")")
-                .setDocumentation (opDocBuilder.toString())
-                .setSignature (fullSigBuilder.toString());
-
-        features.add(classFeatureInfo);
-    }
-
-    /**
-     * Add parameters for a UML method in a class definition to the operation string.
-     * @param parameters UML parameter definitions.
-     * @param sigBuilder string builder containing method definition as a string.
-     */
-    protected void addSignatureParameters(StringBuilder sigBuilder, List<Parameter> parameters) {
-        List<String> formattedParameters = new ArrayList<>();
-        for (Parameter parameter : parameters) {
-            String paramSignature = parameter.getName();
-            if (!"return".equals(paramSignature) && !paramSignature.isEmpty()) {
-                if (parameter.getType() == null)
-                    formattedParameters.add(paramSignature);
-                else {
-                    formattedParameters.add(
-                            paramSignature + ": " + formatter.monospace(
-                                    correctType(convertToQualified (parameter.getType().getQualifiedName()),
-                                            null, parameter.getLower(), parameter.getUpper()) +
-                                            '[' + formatInlineOccurences (parameter.getLower(), parameter.getUpper()) + ']'
-                            )
-                    );
+            formattedParameters = new ArrayList<>();
+            paramNames = new ArrayList<>();
+            paramComments = new ArrayList<>();
+            for (Parameter parameter : umlOperation.getOwnedParameter()) {
+                String paramName = parameter.getName();
+                if (isSignatureParameter(paramName)) {
+                    formattedParameters.add(formatSignatureParameter(paramName,
+                            parameter.getType() == null ? null : convertToQualified (parameter.getType().getQualifiedName()),
+                            parameter.getLower(), parameter.getUpper()));
+                    paramNames.add(paramName);
+                    paramComments.add(getDocumentation(parameter, formatter));
                 }
             }
         }
 
-        // if there are parameters, put them out on different lines, else just output "()"
-        if (!formattedParameters.isEmpty()) {
-            sigBuilder.append(" (").append(formatter.hardLineBreak());
-            sigBuilder.append(String.join("," + formatter.hardLineBreak(), formattedParameters)).append(formatter.hardLineBreak());
-            sigBuilder.append(')');
-        }
-        else
-            sigBuilder.append(" ()");
-    }
-
-    /**
-     * Add parameters for a UML method in a class definition to the operation string.
-     * @param parameters UML parameter definitions.
-     * @param docBuilder string builder containing parameter documentation.
-     */
-    protected void addDocumentParameters(StringBuilder docBuilder, List<Parameter> parameters) {
-        List<String> formattedParameters = new ArrayList<>();
-        for (Parameter parameter : parameters) {
-            String paramName = parameter.getName();
-            if (!"return".equals(paramName) && !paramName.isEmpty()) {
-                String paramComment = getDocumentation(parameter, formatter);
-                if (!paramComment.isEmpty()) {
-                    formattedParameters.add(System.lineSeparator() + formatter.italicMonospace(paramName)  + ":: " + paramComment);
-                }
-            }
-        }
-        if (!formattedParameters.isEmpty()) {
-            docBuilder.append (".Parameters");
-            docBuilder.append(formatter.hardLineBreak());
-            docBuilder.append ("[horizontal]");
-            docBuilder.append(String.join("\n", formattedParameters));
-        }
-    }
-
-    /**
-     * Add the pre- or post-condition constraints attached to a UML method in a class definition
-     * to the attribute string, each on a new line.
-     * @param operation UML method definition.
-     * @param builder string builder containing method definition as a string.
-     */
-    private void addOperationConstraint(Operation operation, StringBuilder builder) {
-        StringBuilder constraintBuilder = new StringBuilder();
-
-        // Pre-conditions first; match by looking for leading "pre" (case-insensitive)
-        for (Constraint constraint : operation.get_constraintOfConstrainedElement()) {
-            if (constraint.getName().toLowerCase().startsWith("pre"))
-                constraintBuilder.append (formatter.hardLineBreak()).append(formatConstraint(constraint));
-        }
-
-        // Post-conditions
-        for (Constraint constraint : operation.get_constraintOfConstrainedElement()) {
-            if (constraint.getName().toLowerCase().startsWith("post"))
-                constraintBuilder.append (formatter.hardLineBreak()).append(formatConstraint(constraint));
-        }
-
-        // Any others
-        for (Constraint constraint : operation.get_constraintOfConstrainedElement()) {
-            if (!constraint.getName().toLowerCase().matches("(pre|post).*"))
-                constraintBuilder.append (formatter.hardLineBreak()).append(formatConstraint(constraint));
-        }
-
-        // if there were any constraints, first output a blank line, then the constraints
-        if (constraintBuilder.length() > 0) {
-            builder.append (formatter.hardLineBreak());
-            builder.append (constraintBuilder);
-        }
-    }
-
-    /**
-     * Here we will do a trick: we will wrap every type name in @@, e.g.
-     * "@List@<@ITEM@>" in preparation for post processing, which will
-     * replace each "@Type@" with a linked version
-     * @param qualifiedTypeName
-     * @param qualifier
-     * @param lower
-     * @param upper
-     * @return
-     */
-    private String correctType(String qualifiedTypeName, Property qualifier, int lower, int upper) {
-        String result;
-
-        String quotedQualifiedTypeName = qualifiedTypeName.contains("<")? quotedClassNames (qualifiedTypeName) :  quoteTypeName (qualifiedTypeName);
-
-        // if there is no qualifier, output either the UML relation target type or List<target type>
-        if (qualifier == null) {
-            // synthesise List<> wrapper where cardinality indicates a container
-            result = upper == -1 || upper > 1 ? quoteTypeName(UmlExportConfig.getInstance().listClassQualifiedName()) +
-                        '<' + quotedQualifiedTypeName + '>' : quotedQualifiedTypeName;
-        }
-        else {
-            String quotedQualifierType = quoteTypeName (convertToQualified (qualifier.getType().getQualifiedName()));
-            String qualifierName = qualifier.getName();
-
-            // if there is a qualifier, but with no name, the output type is either the UML
-            // qualifier type of List<qualifier type>
-            if (qualifierName == null || qualifierName.isEmpty())
-                result = upper == -1 || upper > 1 ? quoteTypeName (UmlExportConfig.getInstance().listClassQualifiedName()) +
-                        '<' + quotedQualifierType + '>' : quotedQualifierType;
-            // else if there is a qualifier name, it stands for a Hash key, and we output a Hash type sig
-            // This should only occur with multiple relationships.
-            else
-                result = upper == -1 || upper > 1 ? quoteTypeName (UmlExportConfig.getInstance().hashClassQualifiedName()) +
-                        '<' + quotedQualifierType + ',' + quotedQualifiedTypeName + '>' : quotedQualifierType;
+        // Output any operation pre- and post-conditions (UML constraints)
+        List<String> constraintNames = new ArrayList<>();
+        List<String> formattedConstraints = new ArrayList<>();
+        for (Constraint constraint : umlOperation.get_constraintOfConstrainedElement()) {
+            constraintNames.add(constraint.getName());
+            formattedConstraints.add(formatConstraint(constraint));
         }
-        return result;
-    }
-
-    /**
-     * Add "@TypeName@" quoting to each bare type name in a generic type name
-     */
-    private String quotedClassNames (String typeName) {
-        Pattern p = Pattern.compile (BARE_QUOTE_REGEX);
-        Matcher m = p.matcher (typeName);
-        StringBuffer sb = new StringBuffer();
-        while (m.find())
-            m.appendReplacement(sb, quoteTypeName(m.group()));
-        m.appendTail(sb);
-        return sb.toString();
-    }
-
-    /**
-     * Format occurrences in the standard way.
-     * @param lower lower value of occurrences.
-     * @param upper upper value of occurrences.
-     */
-    private String formatInlineOccurences(int lower, int upper) {
-        if (upper == -1)
-            return lower == 0 ? "0..1" : "1";
-        else
-            return lower == upper ? "" + lower : lower + ".." + upper;
-    }
-
-    /**
-     * Format occurrences in a way that accounts for 0..* in UML being represented as List<T>.
-     * @param lower lower value of occurrences.
-     * @param upper upper value of occurrences.
-     */
-    private String formatSpecialOccurences(int lower, int upper) {
-        return upper == -1 ? lower + "..1" : lower + ".." + upper;
-    }
 
-    /**
-     * Extract package information from a string like
-     * "RM::org::openehr::rm::common
-     */
-    protected void setHierarchy (String umlQualifiedName, int pkgDepth, ClassInfo classInfo) {
-        String[] parts = umlQualifiedName.split ("::");
-        int depth = Math.min(parts.length, pkgDepth);
-        if (parts.length > depth) {
-            classInfo.setSpecComponent(parts[0]);
-            classInfo.setClassPackage(parts[depth]);
+        TypeExpression returnType = umlOperation.getType() == null ? null : convertToQualified (umlOperation.getType().getQualifiedName());
+        Signature signature = formatOperationSignature (umlOperation.getName(), formatOperatorAliases(tagNames, tagValues), formattedParameters,
+                returnType, umlOperation.getLower(), umlOperation.getUpper(), constraintNames, formattedConstraints);
 
-            StringBuilder sb = new StringBuilder();
-            for (int i = 1; i < depth; i++)
-                sb.append('.').append (parts[i]);
-            classInfo.setComponentPackage(sb.substring(1));
-        }
+        return buildOperation (formatOperationDocumentation (getParsedComment (umlOperation), paramNames, paramComments),
+                opStatus, signature, umlOperation.getLower(), umlOperation.getUpper());
     }
-
-    /**
-     * Convert a UML style qualified class name string like
-     * "RM::org::openehr::rm::entity::physical_entity::...::class_name
-     * to a fixed depth form like org.openehr.rm.entity.class_name for pkgDepth = 4
-     */
-    protected String packageQualifiedClassName (String umlQualifiedName, int pkgDepth) {
-        String[] parts = umlQualifiedName.split ("::");
-        int depth = Math.min(parts.length, pkgDepth);
-        if (parts.length > depth) {
-            StringBuilder sb = new StringBuilder();
-            for (int i = 1; i <= depth; i++)
-                sb.append('.').append (parts[i]);
-            // now add the class name from the end
-            sb.append('.').append (parts[parts.length-1]);
-            return sb.substring(1);
-        }
-        else
-            return parts[parts.length-1];
-    }
-
 }
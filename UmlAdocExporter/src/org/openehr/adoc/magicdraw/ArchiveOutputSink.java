@@ -0,0 +1,71 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Sink writing the files of an export into one archive, as entries named by their paths in the
+ * output folder, e.g. classes/locatable.adoc, so that nothing is written to the output folder.
+ * Entries are written one at a time, in the order the files are written, and all have the time
+ * the archive was opened; no file system metadata is read or kept.
+ */
+public abstract class ArchiveOutputSink implements OutputSink {
+
+    // folder the archive is laid out as
+    private final Path root;
+
+    // modification time of all entries, in milliseconds
+    protected final long entryTime = System.currentTimeMillis();
+
+    protected ArchiveOutputSink (Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public boolean isFolder() {
+        return false;
+    }
+
+    @Override
+    public void createFolder (Path folder) {
+        // entries are named by their paths, so folders need no entries of their own
+    }
+
+    @Override
+    public synchronized void write (Path path, byte[] content) throws IOException {
+        writeEntry (entryName (path), content);
+    }
+
+    /**
+     * Write a file to a temporary file, then copy it into the archive.
+     */
+    @Override
+    public void write (Path path, FileWriter fileWriter) throws IOException {
+        Path tempFile = Files.createTempFile ("uml-export", null);
+        try {
+            fileWriter.writeTo (tempFile.toFile());
+            write (path, Files.readAllBytes (tempFile));
+        }
+        finally {
+            Files.deleteIfExists (tempFile);
+        }
+    }
+
+    /**
+     * Write an entry to the archive; calls are serialised.
+     * @param name entry name, with '/' separators.
+     */
+    protected abstract void writeEntry (String name, byte[] content) throws IOException;
+
+    // path of a file relative to the root, with '/' separators
+    private String entryName (Path path) {
+        Path relativePath = root.relativize (path.toAbsolutePath().normalize());
+        if (relativePath.startsWith (".."))
+            throw new UmlAdocExporterException ("File " + path + " is outside of the archived folder " + root + '!');
+        return relativePath.toString().replace (File.separatorChar, '/');
+    }
+}
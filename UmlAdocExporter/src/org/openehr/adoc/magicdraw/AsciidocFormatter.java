@@ -161,12 +161,151 @@ public class AsciidocFormatter implements Formatter {
      */
     @Override
     public String tableCell (String text, int mergeCellCount) {
-        return (mergeCellCount > 1 ? String.valueOf(mergeCellCount) + "+" : "") + "|" + escapeColumnSeparator (normalizeLines (text));
+        StringBuilder sb = new StringBuilder (text.length() + 16);
+        appendTableCell (sb, text, mergeCellCount);
+        return sb.toString();
     }
 
     @Override
     public String tableCellPassthrough (String text, int mergeCellCount) {
-        return (mergeCellCount > 1 ? String.valueOf(mergeCellCount) + "+" : "") + "a|" + escapeColumnSeparator (normalizeLines (text));
+        StringBuilder sb = new StringBuilder (text.length() + 16);
+        appendTableCellPassthrough (sb, text, mergeCellCount);
+        return sb.toString();
+    }
+
+    @Override
+    public void appendBold (StringBuilder out, String text) {
+        if (text != null && !isBlank (text))
+            out.append ('*').append (text).append ('*');
+    }
+
+    @Override
+    public void appendMonospace (StringBuilder out, String text) {
+        if (text != null && !isBlank (text))
+            out.append ('`').append (text).append ('`');
+    }
+
+    @Override
+    public void appendItalic (StringBuilder out, String text) {
+        if (text != null && !isBlank (text))
+            out.append ("__").append (text).append ("__");
+    }
+
+    @Override
+    public void appendHeading (StringBuilder out, String text, int headingLevel) {
+        for (int i = 0; i < headingLevel; i++)
+            out.append ('=');
+        out.append (' ').append (text);
+    }
+
+    @Override
+    public void appendExternalLink (StringBuilder out, String text, String url) {
+        out.append ("link:").append (url).append ('[').append (text).append ("^]");
+    }
+
+    @Override
+    public void appendInternalRef (StringBuilder out, String text, String ref) {
+        out.append ("<<").append (ref).append (',').append (text).append (">>");
+    }
+
+    @Override
+    public void appendTableColHeader (StringBuilder out, String text, int mergeCellCount) {
+        appendMergeCellCount (out, mergeCellCount);
+        out.append ("h|");
+        appendBold (out, text);
+    }
+
+    @Override
+    public void appendTableColHeaderCentred (StringBuilder out, String text, int mergeCellCount) {
+        appendMergeCellCount (out, mergeCellCount);
+        out.append ("^h|");
+        appendBold (out, text);
+    }
+
+    @Override
+    public void appendTableCell (StringBuilder out, String text, int mergeCellCount) {
+        appendMergeCellCount (out, mergeCellCount);
+        out.append ('|');
+        appendCellText (out, text);
+    }
+
+    @Override
+    public void appendTableCellPassthrough (StringBuilder out, String text, int mergeCellCount) {
+        appendMergeCellCount (out, mergeCellCount);
+        out.append ("a|");
+        appendCellText (out, text);
+    }
+
+    /**
+     * Append the text of a table cell to out in one pass over its characters, with the result of
+     * escapeColumnSeparator (normalizeLines (text)), i.e. lines trimmed except in literal blocks,
+     * and '|' escaped.
+     */
+    private static void appendCellText (StringBuilder out, String text) {
+        int start = out.length();
+        int length = text.length();
+        boolean inLiteralBlock = false;
+        int lineStart = 0;
+        while (lineStart <= length) {
+            int lineEnd = text.indexOf ('\n', lineStart);
+            if (lineEnd < 0)
+                lineEnd = length;
+
+            // the line without leading and trailing white space, as by String.trim()
+            int trimmedStart = lineStart;
+            int trimmedEnd = lineEnd;
+            while (trimmedStart < trimmedEnd && text.charAt (trimmedStart) <= ' ')
+                trimmedStart++;
+            while (trimmedEnd > trimmedStart && text.charAt (trimmedEnd - 1) <= ' ')
+                trimmedEnd--;
+
+            // a "----" delimiter or a " +" line opens or closes a literal block
+            if (text.startsWith ("----", trimmedStart) && trimmedEnd - trimmedStart >= 4 ||
+                    lineEnd - lineStart == 2 && text.startsWith (" +", lineStart))
+                inLiteralBlock = !inLiteralBlock;
+
+            if (inLiteralBlock)
+                appendEscaped (out, text, lineStart, lineEnd);
+            else
+                appendEscaped (out, text, trimmedStart, trimmedEnd);
+            out.append (System.lineSeparator());
+            lineStart = lineEnd + 1;
+        }
+
+        // trim the whole text
+        int end = out.length();
+        while (end > start && out.charAt (end - 1) <= ' ')
+            end--;
+        out.setLength (end);
+        int textStart = start;
+        while (textStart < end && out.charAt (textStart) <= ' ')
+            textStart++;
+        out.delete (start, textStart);
+    }
+
+    // append characters from start to end of text, escaping '|'
+    private static void appendEscaped (StringBuilder out, String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt (i);
+            if (c == '|')
+                out.append ("&#124;");
+            else
+                out.append (c);
+        }
+    }
+
+    private static void appendMergeCellCount (StringBuilder out, int mergeCellCount) {
+        if (mergeCellCount > 1)
+            out.append (mergeCellCount).append ('+');
+    }
+
+    // as text.trim().isEmpty(), without creating the trimmed string
+    private static boolean isBlank (String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt (i) > ' ')
+                return false;
+        }
+        return true;
     }
 
 }
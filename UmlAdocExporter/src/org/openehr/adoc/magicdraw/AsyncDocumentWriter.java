@@ -0,0 +1,151 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writer of rendered documents to an OutputSink on a small pool of writer threads, so that
+ * rendering and disk I/O overlap. The encoded bytes of documents accepted but not yet written are capped;
+ * callers of write() block while the cap is reached.
+ *
+ * If unchanged documents are skipped, a file whose content is already the same as the document
+ * is not touched, so that its modification time is retained for downstream builds; this only
+ * applies to a sink writing to the output folder.
+ */
+public class AsyncDocumentWriter implements AutoCloseable {
+
+    private final OutputSink outputSink;
+    private final ExecutorService writerPool;
+
+    // budget in bytes of documents accepted but not yet written
+    private final Semaphore bytesInFlight;
+    private final int maxBytesInFlight;
+
+    private final boolean skipUnchanged;
+
+    // all documents passed to write(), and counts of those written and skipped as unchanged
+    private final Set<Path> documentPaths = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger writtenCount = new AtomicInteger();
+    private final AtomicInteger unchangedCount = new AtomicInteger();
+
+    // first failure of any write, rethrown from close()
+    private final AtomicReference<UmlAdocExporterException> failure = new AtomicReference<>();
+
+    /**
+     * @param outputSink sink to write the documents to.
+     * @param writerThreads number of writer threads.
+     * @param maxBytesInFlight cap on the bytes of documents accepted but not yet written.
+     * @param skipUnchanged if set, don't write documents whose file content is unchanged.
+     */
+    public AsyncDocumentWriter (OutputSink outputSink, int writerThreads, int maxBytesInFlight, boolean skipUnchanged) {
+        this.outputSink = outputSink;
+        this.writerPool = Executors.newFixedThreadPool (writerThreads, r -> {
+            Thread thread = new Thread (r, "adoc-writer");
+            thread.setDaemon (true);
+            return thread;
+        });
+        this.maxBytesInFlight = maxBytesInFlight;
+        this.bytesInFlight = new Semaphore (maxBytesInFlight);
+        this.skipUnchanged = skipUnchanged && outputSink.isFolder();
+    }
+
+    /**
+     * Queue a document for writing as UTF-8 to targetPath, replacing any existing file.
+     * Blocks while the cap on bytes in flight is reached.
+     * @param targetPath file to write.
+     * @param text document text.
+     */
+    public void write (Path targetPath, String text) {
+        byte[] bytes = text.getBytes (StandardCharsets.UTF_8);
+        documentPaths.add (targetPath);
+
+        // a document larger than the whole budget takes all of it
+        int permits = Math.min (bytes.length, maxBytesInFlight);
+        bytesInFlight.acquireUninterruptibly (permits);
+        writerPool.execute (() -> {
+            ExporterEvents.WriteDocument event = new ExporterEvents.WriteDocument();
+            event.begin();
+            try {
+                if (failure.get() == null) {
+                    boolean unchanged = skipUnchanged && hasContent (targetPath, bytes);
+                    if (unchanged)
+                        unchangedCount.incrementAndGet();
+                    else {
+                        outputSink.write (targetPath, bytes);
+                        writtenCount.incrementAndGet();
+                    }
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.path = targetPath.toString();
+                        event.size = bytes.length;
+                        event.unchanged = unchanged;
+                        event.commit();
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet (null, new UmlAdocExporterException ("Unable to write to " + targetPath + '!', e));
+            } finally {
+                bytesInFlight.release (permits);
+            }
+        });
+    }
+
+    private static boolean hasContent (Path path, byte[] bytes) throws IOException {
+        return Files.isRegularFile (path) && Files.size (path) == bytes.length && Arrays.equals (Files.readAllBytes (path), bytes);
+    }
+
+    /**
+     * Paths of all documents passed to write().
+     */
+    public Set<Path> getDocumentPaths() {
+        return documentPaths;
+    }
+
+    /**
+     * Number of documents written to file.
+     */
+    public int getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * Number of documents not written because the file content was unchanged.
+     */
+    public int getUnchangedCount() {
+        return unchangedCount.get();
+    }
+
+    /**
+     * Wait for all queued documents to be written.
+     * @exception UmlAdocExporterException if any write failed.
+     */
+    @Override
+    public void close() {
+        writerPool.shutdown();
+        try {
+            while (!writerPool.awaitTermination (1, TimeUnit.MINUTES)) {
+                // keep waiting; writes are bounded by the bytes in flight
+            }
+        } catch (InterruptedException e) {
+            writerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new UmlAdocExporterException ("Interrupted while writing documents", e);
+        }
+
+        if (failure.get() != null)
+            throw failure.get();
+    }
+}
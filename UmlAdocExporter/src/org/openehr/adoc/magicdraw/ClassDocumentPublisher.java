@@ -0,0 +1,579 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Renders a built map of ClassInfo objects as Asciidoctor class files and a class index, and
+ * writes them to an output folder. Uses no MagicDraw API, so that output can be rendered from
+ * a model snapshot without a MagicDraw runtime.
+ */
+public class ClassDocumentPublisher {
+
+    private static final String ADOC_FILE_EXTENSION = ".adoc";
+
+    private static final String CLASSES_FOLDER = "classes";
+
+    // writer threads and cap on rendered bytes waiting to be written, for class files
+    private static final int WRITER_THREADS = 2;
+    private static final int MAX_BYTES_IN_FLIGHT = 16 * 1024 * 1024;
+
+    // component, release, html file, subref classname + type, description
+    private static final String INDEX_LINK_FORMAT = "[.xcode]\n* %s\n";
+
+    private final Formatter formatter;
+    private final UmlExportConfig exportConfig;
+
+    // registry of all ClassInfo keyed by class key
+    private final EntityRegistry allEntities;
+
+    // pool for rendering class documents; null if single-threaded
+    private final ForkJoinPool workerPool;
+
+    // metrics of the export, to which class rendering and index generation are added
+    private final ExportMetrics exportMetrics;
+
+    // counts of class and index documents written, skipped as unchanged, and removed as orphans in the last publish
+    private int documentsWrittenCount;
+    private int documentsUnchangedCount;
+    private int orphansRemovedCount;
+
+    /**
+     * @param formatter output formatter.
+     * @param exportConfig export settings.
+     * @param allEntities registry of all ClassInfo keyed by class key, including those not to be published.
+     * @param workerPool pool to render documents on; null to render on the calling thread.
+     */
+    public ClassDocumentPublisher (Formatter formatter, UmlExportConfig exportConfig, EntityRegistry allEntities, ForkJoinPool workerPool) {
+        this (formatter, exportConfig, allEntities, workerPool, new ExportMetrics());
+    }
+
+    /**
+     * @param exportMetrics metrics of the export, to which class rendering and index generation are added.
+     */
+    public ClassDocumentPublisher (Formatter formatter, UmlExportConfig exportConfig, EntityRegistry allEntities, ForkJoinPool workerPool,
+                                   ExportMetrics exportMetrics) {
+        this.formatter = formatter;
+        this.exportConfig = exportConfig;
+        this.allEntities = allEntities;
+        this.workerPool = workerPool;
+        this.exportMetrics = exportMetrics;
+    }
+
+    /**
+     * Write the class files and class index for the components requested to publish.
+     * @param outputFolder Directory in which to write the index, and the folder of class files.
+     */
+    public void publish (File outputFolder) throws InterruptedException {
+        publish (outputFolder, exportConfig.getComponentPackageNames());
+    }
+
+    /**
+     * Write the class files and class index for some components, to the output folder or the
+     * archive configured for the export.
+     * @param outputFolder Directory in which to write the index, and the folder of class files.
+     * @param componentPackageNames names of the components to publish; all classes if empty.
+     */
+    public void publish (File outputFolder, Set<String> componentPackageNames) throws InterruptedException {
+        try (OutputSink outputSink = OutputSink.open (exportConfig, outputFolder)) {
+            publish (outputFolder, componentPackageNames, outputSink);
+        } catch (IOException e) {
+            throw new UmlAdocExporterException ("Unable to write the export of " + outputFolder + '!', e);
+        }
+    }
+
+    /**
+     * Write the class files and class index for some components to a sink.
+     * @param outputFolder Directory in which to write the index, and the folder of class files.
+     * @param componentPackageNames names of the components to publish; all classes if empty.
+     * @param outputSink sink to write the files to, e.g. shared with the diagrams of the export.
+     */
+    public void publish (File outputFolder, Set<String> componentPackageNames, OutputSink outputSink) throws InterruptedException {
+        File classesFolder = new File(outputFolder, CLASSES_FOLDER);
+        if (!classesFolder.exists()) {
+            try {
+                outputSink.createFolder (classesFolder.toPath());
+            } catch (IOException e) {
+                throw new UmlAdocExporterException("Unable to create folder: " + classesFolder, e);
+            }
+        }
+
+        // Documents are handed to a small pool of writer threads, so that rendering and disk I/O
+        // overlap; in incremental mode, files whose content is unchanged are not touched. The
+        // manifest of documents is only kept in an output folder, not for an archive.
+        ExportManifest exportManifest = outputSink.isFolder() ? new ExportManifest (outputFolder.toPath()) : null;
+        Set<Path> previousDocumentPaths = exportManifest != null ? exportManifest.read() : Collections.emptySet();
+        AsyncDocumentWriter documentWriter = new AsyncDocumentWriter (outputSink, WRITER_THREADS, MAX_BYTES_IN_FLIGHT, exportConfig.isIncremental());
+        try (documentWriter) {
+            // Output the entities, but only those components that were requested to publish,
+            // which equates to some selection of sub-packages of the root package, or maybe all
+            if (!componentPackageNames.isEmpty())
+                exportClasses (allEntities.values()
+                        .stream()
+                        .filter (classInfo -> matchesComponents (classInfo, componentPackageNames))
+                        .collect(Collectors.toList()), classesFolder, documentWriter);
+            else
+                exportClasses (allEntities.values(), classesFolder, documentWriter);
+
+            // Generate the index file
+            generateIndex (outputFolder,
+                    allEntities.values()
+                    .stream()
+                    .filter (classInfo -> matchesComponents (classInfo, componentPackageNames))
+                    .collect(Collectors.toList()),
+                    documentWriter
+            );
+        }
+
+        // in incremental mode, remove documents written by the last export but not this one,
+        // e.g. for classes that no longer exist; the manifest is always kept up to date
+        orphansRemovedCount = exportConfig.isIncremental() && exportManifest != null
+                ? exportManifest.removeOrphans (previousDocumentPaths, documentWriter.getDocumentPaths())
+                : 0;
+        if (exportManifest != null)
+            exportManifest.write (documentWriter.getDocumentPaths());
+        documentsWrittenCount = documentWriter.getWrittenCount();
+        documentsUnchangedCount = documentWriter.getUnchangedCount();
+    }
+
+    /**
+     * Number of class and index documents written to file in the last publish.
+     */
+    public int getDocumentsWrittenCount() {
+        return documentsWrittenCount;
+    }
+
+    /**
+     * Number of class and index documents not written in the last publish because their content was unchanged.
+     */
+    public int getDocumentsUnchangedCount() {
+        return documentsUnchangedCount;
+    }
+
+    /**
+     * Number of documents of a previous export removed in the last publish because they are no longer produced.
+     */
+    public int getOrphansRemovedCount() {
+        return orphansRemovedCount;
+    }
+
+    // run a task on the worker pool and wait for its result, rethrowing any runtime exception it throws
+    private <R> R runOnWorkerPool (Callable<R> task) throws InterruptedException {
+        try {
+            return workerPool.submit(task).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new UmlAdocExporterException(e.getCause());
+        }
+    }
+
+    /**
+     * Export classes as Asciidoctor (.adoc) files to the output folder on the file system.
+     * Documents are rendered on the worker pool if there is one, else on the calling thread.
+     * @param classInfos info objects for the classes.
+     * @param targetFolder Directory in which to write the files.
+     * @param documentWriter writer of the rendered documents.
+     */
+    private void exportClasses (Collection<ClassInfo> classInfos, File targetFolder, AsyncDocumentWriter documentWriter) throws InterruptedException {
+        // where classes map to the same file name, the last one is written, as when each was written in turn
+        Map<Path, ClassInfo> classFiles = new LinkedHashMap<>();
+        for (ClassInfo classInfo : classInfos)
+            classFiles.put (targetFolder.toPath().resolve(fileName(exportConfig.hasQualifiedClassNames()? classInfo.getQualifiedClassName().toLowerCase(): classInfo.getClassName().toLowerCase()) + ADOC_FILE_EXTENSION), classInfo);
+
+        // each class is measured on the thread rendering it
+        ExportMetrics.Phase renderPhase = exportMetrics.phase ("render classes");
+        ExportMetrics.Probe probe = ExportMetrics.Probe.start();
+        if (workerPool == null)
+            classFiles.forEach ((path, classInfo) -> documentWriter.write (path, renderClass (classInfo, renderPhase)));
+        else
+            runOnWorkerPool (() -> {
+                classFiles.entrySet().parallelStream().forEach (e -> documentWriter.write (e.getKey(), renderClass (e.getValue(), renderPhase)));
+                return null;
+            });
+        renderPhase.end (probe.stop());
+    }
+
+    // render a class, adding its measurements to a phase, and recording a RenderClass event
+    private String renderClass (ClassInfo classInfo, ExportMetrics.Phase renderPhase) {
+        ExportMetrics.Probe probe = ExportMetrics.Probe.start();
+        ExporterEvents.RenderClass event = new ExporterEvents.RenderClass();
+        event.begin();
+        String text = renderClass (classInfo);
+        event.end();
+        renderPhase.addItem (classInfo.getQualifiedClassName(), probe.stop());
+        if (event.shouldCommit()) {
+            event.className = classInfo.getQualifiedClassName();
+            event.length = text.length();
+            event.commit();
+        }
+        return text;
+    }
+
+    /**
+     * Render a class as an Asciidoctor (.adoc) document. The document is built in one buffer,
+     * with the streaming methods of the Formatter. Package-private for the tests and benchmarks.
+     * @param classInfo info object for the class.
+     * @return document text.
+     */
+    String renderClass (ClassInfo classInfo) {
+        StringBuilder out = new StringBuilder();
+
+        // buffer for cell text to be post-processed, reused across the features of the class
+        StringBuilder cellText = new StringBuilder();
+
+        formatter.appendHeading (out, classInfo.getClassName() + ' ' + classInfo.getMetaType(), exportConfig.getHeadingLevel());
+        out.append (System.lineSeparator());
+        out.append (System.lineSeparator());
+
+        out.append (formatter.tableDefinition ("1,3,5")).append (System.lineSeparator());
+        out.append (formatter.tableDelimiter()).append (System.lineSeparator());
+        formatter.appendTableColHeader (out, classInfo.getMetaType(), 1);
+        out.append (System.lineSeparator());
+        formatter.appendTableColHeaderCentred (out,
+                (classInfo.isAbstractClass()
+                        ? formatter.italic(classInfo.getClassTypeName() + " (abstract)")
+                        : classInfo.getClassTypeName()),
+                2);
+        out.append (System.lineSeparator());
+        out.append (System.lineSeparator());
+
+        formatter.appendTableColHeader (out, "Description", 1);
+        out.append (System.lineSeparator());
+
+        formatter.appendTableCellPassthrough (out, classInfo.getDocumentation(), 2);
+        out.append (System.lineSeparator());
+        out.append (System.lineSeparator());
+
+        // inheritance parents
+        if (!classInfo.getQualifiedParentClassNames().isEmpty()) {
+            formatter.appendTableColHeader (out, "Inherit", 1);
+            out.append (System.lineSeparator());
+            StringBuilder sb = new StringBuilder();
+            String separator = "";
+            for (String qualifiedParentClassName: classInfo.getQualifiedParentClassNames()) {
+                sb.append (separator);
+                formatter.appendMonospace (sb, linkClassName (classInfo, qualifiedParentClassName));
+                separator = ", ";
+            }
+            formatter.appendTableCell (out, sb.toString(), 2);
+            out.append (System.lineSeparator());
+            out.append (System.lineSeparator());
+        }
+
+        // constants
+        if (!classInfo.getConstants().isEmpty()) {
+            appendFeatureHeaders (out, "Constants");
+            for (ClassFeatureInfo classFeatureInfo : classInfo.getConstants())
+                appendFeature (classInfo, classFeatureInfo, out, cellText);
+        }
+
+        // attributes
+        if (!classInfo.getAttributes().isEmpty()) {
+            appendFeatureHeaders (out, "Attributes");
+            for (ClassFeatureInfo classFeatureInfo : classInfo.getAttributes())
+                appendFeature (classInfo, classFeatureInfo, out, cellText);
+        }
+
+        // operations
+        if (!classInfo.getOperations().isEmpty()) {
+            appendFeatureHeaders (out, "Functions");
+            for (ClassFeatureInfo classFeatureInfo : classInfo.getOperations())
+                appendFeature (classInfo, classFeatureInfo, out, cellText);
+        }
+
+        // invariants
+        if (!classInfo.getConstraints().isEmpty())
+            appendConstraints (classInfo, out, cellText);
+
+        out.append (formatter.tableDelimiter()).append (System.lineSeparator());
+        return out.toString();
+    }
+
+    // column headers of a table section of features, e.g. "Attributes"
+    private void appendFeatureHeaders (StringBuilder out, String title) {
+        formatter.appendTableColHeader (out, title, 1);
+        out.append (System.lineSeparator());
+        formatter.appendTableColHeaderCentred (out, "Signature", 1);
+        out.append (System.lineSeparator());
+        formatter.appendTableColHeaderCentred (out, "Meaning", 1);
+        out.append (System.lineSeparator());
+    }
+
+
+    /**
+     * Generate an HTML file containing a clickable index of Class names that contain links to the location of
+     * the class within the relevant specification.
+     * @param targetFolder Directory in which to write the file.
+     * @param allTypes classes, interfaces, and enumerations to include in index.
+     * @param documentWriter writer of the rendered document.
+     */
+    private void generateIndex(File targetFolder, List<ClassInfo> allTypes, AsyncDocumentWriter documentWriter) {
+        ExportMetrics.Probe probe = ExportMetrics.Probe.start();
+        Collections.sort(allTypes);
+
+        Path targetPath = targetFolder.toPath().resolve("class_index" + ADOC_FILE_EXTENSION);
+        StringWriter stringWriter = new StringWriter();
+        try (PrintWriter printWriter = new PrintWriter(stringWriter)) {
+            String specComponent = "";
+            String specPackage = "";
+            String specSubPackage = "";
+
+            for (ClassInfo classInfo : allTypes) {
+                // The test for className > 2 is to avoid generic parameters like 'T', and
+                // occasionally 'TT' or similar.
+                if (classInfo.getClassName().length() > 2) {
+
+                    // if Component of class has changed since last iteration, output a new header line
+                    if (!specComponent.equals(classInfo.getSpecComponent())) {
+                        printWriter.println();
+                        printWriter.println(formatter.heading ("Component " + classInfo.getSpecComponent(), 2));
+                        specComponent = classInfo.getSpecComponent();
+                    }
+
+                    // if Package of class has changed since last iteration, output a new header line
+                    if (!specPackage.equals(classInfo.getComponentPackage())) {
+                        printWriter.println();
+                        printWriter.println(formatter.heading ("Model " + classInfo.getComponentPackage(), 3));
+                        specPackage = classInfo.getComponentPackage();
+                    }
+
+                    // if Sub-package of class has changed since last iteration, output a new header line
+                    if (!specSubPackage.equals(classInfo.getClassPackage())) {
+                        printWriter.println();
+                        printWriter.println(formatter.heading ("Package " + classInfo.getClassPackage(), 4));
+                        printWriter.println();
+                        specSubPackage = classInfo.getClassPackage();
+                    }
+
+                    // Output the class as a linked text line of the form:
+                    //   [.xcode]
+                    //   * link:/releases/AM/{am_release}/AOM2.html#_c_object_class[C_OBJECT^]
+                    // from the sprintf template string: "[.xcode]\n* %s\n"
+                    printWriter.printf(INDEX_LINK_FORMAT, formatter.externalLink(classInfo.getClassName(),
+                            classInfo.getSpecUrlPath (exportConfig.getSpecLinkTemplate(), exportConfig.getComponentPackageNamePrefix())));
+                }
+            }
+        }
+        documentWriter.write (targetPath, stringWriter.toString());
+
+        ExportMetrics.Phase indexPhase = exportMetrics.phase ("class index");
+        indexPhase.addCount (allTypes.size());
+        indexPhase.end (probe.stop());
+    }
+
+    // note: returns false for empty list - need to check for empty case before using this filter
+    private static boolean matchesComponents (ClassInfo classInfo, Set<String> componentPackageNames) {
+        return componentPackageNames.stream().anyMatch (cn -> classInfo.getSpecComponent().equalsIgnoreCase (cn));
+    }
+
+    /**
+     * Convert a targetClassName like "ELEMENT" that is referenced from originClass
+     * to a link. If the target is in the same package, then it's the same spec,
+     * so use a local ref, else use a full external URL link. Package-private for the tests and benchmarks.
+     * @param originClassInfo
+     * @param targetQualifiedClassName
+     * @return
+     */
+    String linkClassName (ClassInfo originClassInfo, String targetQualifiedClassName) {
+        StringBuilder sb = new StringBuilder();
+        appendLinkedClassName (originClassInfo, targetQualifiedClassName, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Append the link to a class name to out; see linkClassName().
+     */
+    private void appendLinkedClassName (ClassInfo originClassInfo, String targetQualifiedClassName, StringBuilder out) {
+        ClassInfo targetClassInfo = allEntities.get (targetQualifiedClassName);
+        if (targetClassInfo != null) {
+            if (!targetClassInfo.getSpecName().equals (originClassInfo.getSpecName()))
+                formatter.appendExternalLink (out, targetClassInfo.getClassName(),
+                        targetClassInfo.getSpecUrlPath (exportConfig.getSpecLinkTemplate(), exportConfig.getComponentPackageNamePrefix()));
+            else
+                formatter.appendInternalRef (out, targetClassInfo.getClassName(), targetClassInfo.localRef());
+        }
+        else
+            out.append (targetQualifiedClassName, targetQualifiedClassName.lastIndexOf(".")+1, targetQualifiedClassName.length());
+    }
+
+    /**
+     * Post-process formatted text from start to end, appending the result to out:
+     * - replace "@TypeName@" with linked Typenames (removing the @@), where TypeName is one
+     *   or more type name characters
+     * Text between the markers is copied to out without intermediate strings. Package-private for
+     * the tests and benchmarks.
+     */
+    void postProcess (ClassInfo classInfo, CharSequence text, int start, int end, StringBuilder out) {
+        int copiedTo = start;
+        int markStart = indexOf (text, '@', start, end);
+        while (markStart >= 0) {
+            int markEnd = markStart + 1;
+            while (markEnd < end && UmlExporterDefinitions.isTypeNameChar (text.charAt (markEnd)))
+                markEnd++;
+            if (markEnd > markStart + 1 && markEnd < end && text.charAt (markEnd) == '@') {
+                out.append (text, copiedTo, markStart);
+                appendLinkedClassName (classInfo, text.subSequence (markStart + 1, markEnd).toString(), out);
+                copiedTo = markEnd + 1;
+                markStart = indexOf (text, '@', copiedTo, end);
+            }
+            else
+                markStart = indexOf (text, '@', markStart + 1, end);
+        }
+        out.append (text, copiedTo, end);
+    }
+
+    // index of c in text from start up to end; -1 if not found
+    private static int indexOf (CharSequence text, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt (i) == c)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Append all elements of a feature in a class as text of an Asciidoctor (.adoc) file.
+     * @param classInfo info object for the class.
+     * @param classFeatureInfo info object for the feature.
+     * @param cellText buffer for the text of a cell before post-processing.
+     */
+    private void appendFeature (ClassInfo classInfo, ClassFeatureInfo classFeatureInfo, StringBuilder out, StringBuilder cellText) {
+        out.append (System.lineSeparator());
+        formatter.appendTableColHeader (out, classFeatureInfo.getStatus().isEmpty()
+                ? classFeatureInfo.getCardinality()
+                : classFeatureInfo.getCardinality() + " +" + System.lineSeparator() + classFeatureInfo.getStatus(), 1);
+        out.append (System.lineSeparator());
+
+        cellText.setLength (0);
+        formatter.appendTableCell (cellText, classFeatureInfo.getSignature().getTemplate(), 1);
+        appendSignature (classInfo, classFeatureInfo.getSignature(), cellText, out);
+        out.append (System.lineSeparator());
+
+        cellText.setLength (0);
+        formatter.appendTableCellPassthrough (cellText, classFeatureInfo.getDocumentation(), 1);
+        postProcess (classInfo, cellText, 0, cellText.length(), out);
+        out.append (System.lineSeparator());
+    }
+
+    /**
+     * Append the signature of a feature, formatted as a table cell in cellText, rendering each of
+     * its types in place with a TypeLinker. The text between the types, e.g. constraints and
+     * default values, is post-processed like documentation.
+     * @throws UmlAdocExporterException if the formatting lost the mark of a type.
+     */
+    private void appendSignature (ClassInfo classInfo, Signature signature, CharSequence cellText, StringBuilder out) {
+        TypeLinker typeLinker = new TypeLinker (classInfo, out);
+        int copiedTo = 0;
+        for (TypeExpression type : signature.getTypes()) {
+            int typeMark = indexOf (cellText, Signature.TYPE_MARK, copiedTo, cellText.length());
+            if (typeMark < 0)
+                throw new UmlAdocExporterException ("Formatting of a signature of class " + classInfo.getQualifiedClassName()
+                        + " lost the place of type " + type + ": " + cellText);
+            postProcess (classInfo, cellText, copiedTo, typeMark, out);
+            type.accept (typeLinker);
+            copiedTo = typeMark + 1;
+        }
+        postProcess (classInfo, cellText, copiedTo, cellText.length(), out);
+    }
+
+    /**
+     * Visitor appending a type, with each type name linked to its class; see linkClassName().
+     */
+    private class TypeLinker implements TypeExpression.Visitor {
+        private final ClassInfo classInfo;
+        private final StringBuilder out;
+
+        private TypeLinker (ClassInfo classInfo, StringBuilder out) {
+            this.classInfo = classInfo;
+            this.out = out;
+        }
+
+        @Override
+        public void visitNamedType (TypeExpression.NamedType namedType) {
+            String qualifiedName = namedType.getQualifiedName();
+            if (isTypeName (qualifiedName))
+                appendLinkedClassName (classInfo, qualifiedName, out);
+            else
+                // not a name that can be linked, e.g. the empty name of an untyped attribute; written as it always has been
+                out.append ('@').append (qualifiedName).append ('@');
+        }
+
+        @Override
+        public void visitFormalParameter (TypeExpression.FormalParameter formalParameter) {
+            out.append (formalParameter.getName());
+        }
+
+        @Override
+        public void visitGenericType (TypeExpression.GenericType genericType) {
+            genericType.getBase().accept (this);
+            appendParameters (genericType.getParameters(), ", ");
+        }
+
+        @Override
+        public void visitContainerType (TypeExpression.ContainerType containerType) {
+            containerType.getContainer().accept (this);
+            appendParameters (containerType.getParameters(), ",");
+        }
+
+        private void appendParameters (List<TypeExpression> parameters, String separator) {
+            out.append ('<');
+            for (int i = 0; i < parameters.size(); i++) {
+                if (i > 0)
+                    out.append (separator);
+                parameters.get (i).accept (this);
+            }
+            out.append ('>');
+        }
+
+        private boolean isTypeName (String name) {
+            if (name.isEmpty())
+                return false;
+            for (int i = 0; i < name.length(); i++) {
+                if (!UmlExporterDefinitions.isTypeNameChar (name.charAt (i)))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Append all constraints in a class as text (invariants) of an Asciidoctor (.adoc) file.
+     * @param classInfo info object for the class.
+     * @param cellText buffer for the text of a cell before post-processing.
+     */
+    private void appendConstraints (ClassInfo classInfo, StringBuilder out, StringBuilder cellText) {
+        String title = "Invariants";
+        for (ConstraintInfo constraintInfo : classInfo.getConstraints()) {
+            out.append (System.lineSeparator());
+            formatter.appendTableColHeader (out, title, 1);
+            out.append (System.lineSeparator());
+
+            cellText.setLength (0);
+            formatter.appendTableCellPassthrough (cellText, constraintInfo.getDocumentation(), 2);
+            postProcess (classInfo, cellText, 0, cellText.length(), out);
+            out.append (System.lineSeparator());
+            title = "";
+        }
+    }
+
+    /**
+     * Convert a class name to a legal file name.
+     * @param className name of class.
+     * @return filename..
+     */
+    private String fileName(String className) {
+        String name = className.replaceAll("[^a-z0-9.]", "_");
+        return name.replaceAll("^_+", "");
+    }
+}
@@ -6,7 +6,7 @@ package org.openehr.adoc.magicdraw;
 public class ClassFeatureInfo {
     private String cardinality = "";
     private String status = "";
-    private String signature = "";
+    private Signature signature = new Signature();
     private String documentation = "";
 
     public String getCardinality() {
@@ -27,11 +27,11 @@ public class ClassFeatureInfo {
         return this;
     }
 
-    public String getSignature() {
+    public Signature getSignature() {
         return signature;
     }
 
-    public ClassFeatureInfo setSignature(String aSignature) {
+    public ClassFeatureInfo setSignature(Signature aSignature) {
         signature = aSignature;
         return this;
     }
@@ -20,6 +20,7 @@ public class ClassInfo implements Comparable<ClassInfo> {
     private boolean abstractClass;          // True if abstract
 
     private String specUrlPath;        // generated from first call to getSpecUrlPath();
+    private String qualifiedClassName; // generated from first call to getQualifiedClassName();
 
 
     private final List<ClassFeatureInfo> attributes = new ArrayList<>();
@@ -51,6 +52,7 @@ public class ClassInfo implements Comparable<ClassInfo> {
     public ClassInfo setClassTypeName (String aTypeName) {
         classTypeName = aTypeName;
         className = aTypeName.contains("<") ? aTypeName.substring(0, aTypeName.indexOf('<')): aTypeName;
+        qualifiedClassName = null;
         return this;
     }
 
@@ -111,6 +113,7 @@ public class ClassInfo implements Comparable<ClassInfo> {
 
     public void setComponentPackage(String aPackage) {
         componentPackage = aPackage;
+        qualifiedClassName = null;
     }
 
     public String getClassPackage() {
@@ -119,6 +122,7 @@ public class ClassInfo implements Comparable<ClassInfo> {
 
     public void setClassPackage(String aSubPackage) {
         classPackage = aSubPackage;
+        qualifiedClassName = null;
     }
 
     public String getSpecName() {
@@ -130,11 +134,14 @@ public class ClassInfo implements Comparable<ClassInfo> {
     }
 
     public String getQualifiedClassName() {
-        StringBuilder sb = new StringBuilder();
-        sb.append(componentPackage != null? componentPackage + "." : "");
-        sb.append(classPackage != null? classPackage + "." : "");
-        sb.append(className);
-        return sb.toString();
+        if (qualifiedClassName == null) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(componentPackage != null? componentPackage + "." : "");
+            sb.append(classPackage != null? classPackage + "." : "");
+            sb.append(className);
+            qualifiedClassName = sb.toString();
+        }
+        return qualifiedClassName;
     }
 
     // Output a URL for the class of the form:
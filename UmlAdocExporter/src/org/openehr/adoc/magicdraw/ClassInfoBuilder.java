@@ -6,6 +6,7 @@ import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.NamedElement;
 import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Operation;
 import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Property;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
@@ -15,8 +16,15 @@ import java.util.stream.Collectors;
  * @author Bostjan Lah
  */
 public class ClassInfoBuilder extends AbstractInfoBuilder<com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Class> {
-    public ClassInfoBuilder(Formatter formatter, Function<String, Class> getUMLClassByQualifiedName) {
-        super(formatter, getUMLClassByQualifiedName);
+
+    // Inherited attributes and operations of each class visited so far, keyed by class; each entry is
+    // computed once, after those of its ancestors, and shared by all descendants. Since a builder is
+    // created per export, this is a per-export cache, used only on the thread building the export.
+    private final Map<Class, InheritedFeatures> inheritedFeaturesCache = new HashMap<>();
+
+    public ClassInfoBuilder(Formatter formatter, Function<String, Class> getUMLClassByQualifiedName, Map<Object, ParsedComment> parsedComments,
+                            SymbolTable symbolTable) {
+        super(formatter, getUMLClassByQualifiedName, parsedComments, symbolTable);
     }
 
     @Override
@@ -43,14 +51,16 @@ public class ClassInfoBuilder extends AbstractInfoBuilder<com.nomagic.uml2.ext.m
 
         setHierarchy (umlClass.getQualifiedName(), UmlExportConfig.getInstance().getPackageDepth(), classInfo);
 
-        Map<String, Property> superClassAttributes = new HashMap<>();
-        Map<String, Operation> superClassOperations = new HashMap<>();
+        Map<String, Property> superClassAttributes = Collections.emptyMap();
+        Map<String, Operation> superClassOperations = Collections.emptyMap();
 
         if (umlClass.hasSuperClass()) {
             for (Class umlSuperClass: umlClass.getSuperClass())
-                classInfo.addQualifiedParentClassName (convertToQualified (umlSuperClass.getQualifiedName()));
+                classInfo.addQualifiedParentClassName (convertToQualified (umlSuperClass.getQualifiedName()).getQualifiedName());
 
-            getSuperClassData (umlClass, superClassAttributes, superClassOperations);
+            InheritedFeatures inheritedFeatures = getSuperClassData (umlClass);
+            superClassAttributes = inheritedFeatures.attributes;
+            superClassOperations = inheritedFeatures.operations;
         }
 
         if (umlClass.hasOwnedAttribute()) {
@@ -66,13 +76,39 @@ public class ClassInfoBuilder extends AbstractInfoBuilder<com.nomagic.uml2.ext.m
         return classInfo;
     }
 
-    private void getSuperClassData (Class element, Map<String, Property> superClassAttributes, Map<String, Operation> superClassOperations) {
-        for (Class superClass : element.getSuperClass()) {
-            // note that we use the 3-argument form of the toMap() function below, with the 3rd argument providing a clash resolver
-            // to avoid clashing keys, i.e. due to same-named attributes and or operations being put into the Map result.
-            superClassAttributes.putAll (superClass.getOwnedAttribute().stream().collect (Collectors.toMap (NamedElement::getName, p -> p, (p1, p2) -> p1)));
-            superClassOperations.putAll (superClass.getOwnedOperation().stream().collect (Collectors.toMap (NamedElement::getName, p -> p, (p1, p2) -> p1)));
-            getSuperClassData (superClass, superClassAttributes, superClassOperations);
+    /**
+     * Obtain the attributes and operations inherited by a class from all of its ancestors, keyed by name.
+     * Where a name occurs more than once, the definition found last in a depth-first walk of the
+     * ancestors wins, i.e. the further ancestor overrides the nearer one.
+     */
+    private InheritedFeatures getSuperClassData (Class element) {
+        InheritedFeatures inheritedFeatures = inheritedFeaturesCache.get (element);
+        if (inheritedFeatures == null) {
+            Map<String, Property> superClassAttributes = new HashMap<>();
+            Map<String, Operation> superClassOperations = new HashMap<>();
+            for (Class superClass : element.getSuperClass()) {
+                // note that we use the 3-argument form of the toMap() function below, with the 3rd argument providing a clash resolver
+                // to avoid clashing keys, i.e. due to same-named attributes and or operations being put into the Map result.
+                superClassAttributes.putAll (superClass.getOwnedAttribute().stream().collect (Collectors.toMap (NamedElement::getName, p -> p, (p1, p2) -> p1)));
+                superClassOperations.putAll (superClass.getOwnedOperation().stream().collect (Collectors.toMap (NamedElement::getName, p -> p, (p1, p2) -> p1)));
+
+                InheritedFeatures superClassFeatures = getSuperClassData (superClass);
+                superClassAttributes.putAll (superClassFeatures.attributes);
+                superClassOperations.putAll (superClassFeatures.operations);
+            }
+            inheritedFeatures = new InheritedFeatures (Collections.unmodifiableMap (superClassAttributes), Collections.unmodifiableMap (superClassOperations));
+            inheritedFeaturesCache.put (element, inheritedFeatures);
+        }
+        return inheritedFeatures;
+    }
+
+    private static class InheritedFeatures {
+        private final Map<String, Property> attributes;
+        private final Map<String, Operation> operations;
+
+        private InheritedFeatures (Map<String, Property> attributes, Map<String, Operation> operations) {
+            this.attributes = attributes;
+            this.operations = operations;
         }
     }
 }
@@ -0,0 +1,117 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.EnumSet;
+
+/**
+ * Token by which an ExportDaemon accepts jobs only from its own user: made at random when the
+ * daemon starts, and written to a file in the user's home directory that only the user can read,
+ * from which UmlAdocExporterClient reads it. Any other local user can connect to the port, but
+ * can't read the token. Uses no MagicDraw API, so that the client needs no MagicDraw runtime.
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+final class DaemonToken {
+
+    // directory of the token files, relative to the user's home directory
+    private static final String TOKEN_DIRECTORY = ".uml_generate";
+
+    private static final int TOKEN_BYTES = 32;
+
+    private DaemonToken() {}
+
+    /**
+     * File holding the token of the daemon on a port.
+     */
+    static Path tokenFile (int port) {
+        return Paths.get (System.getProperty ("user.home"), TOKEN_DIRECTORY, "daemon-" + port + ".token");
+    }
+
+    /**
+     * Make a new token for the daemon on a port, replacing any token file left by an earlier daemon.
+     * On a POSIX file system, the token file is readable only by the user, in a directory that only
+     * the user can list or change.
+     */
+    static String create (int port) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes (bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString (bytes);
+
+        Path tokenFile = tokenFile (port);
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains ("posix");
+        try {
+            Path directory = tokenFile.getParent();
+            if (Files.isSymbolicLink (directory))
+                throw new UmlAdocExporterException ("Token directory " + directory + " is a symbolic link!");
+            if (!Files.isDirectory (directory, LinkOption.NOFOLLOW_LINKS)) {
+                if (posix)
+                    Files.createDirectory (directory, PosixFilePermissions.asFileAttribute (PosixFilePermissions.fromString ("rwx------")));
+                else
+                    Files.createDirectory (directory);
+            }
+            else if (posix)
+                Files.setPosixFilePermissions (directory, PosixFilePermissions.fromString ("rwx------"));
+
+            // a new file, so that the token is never written through a link or to a file others can open
+            Files.deleteIfExists (tokenFile);
+            FileAttribute<?>[] attributes = posix
+                    ? new FileAttribute<?>[] {PosixFilePermissions.asFileAttribute (PosixFilePermissions.fromString ("rw-------"))}
+                    : new FileAttribute<?>[0];
+            try (SeekableByteChannel channel = Files.newByteChannel (tokenFile, EnumSet.of (StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), attributes)) {
+                channel.write (ByteBuffer.wrap (token.getBytes (StandardCharsets.US_ASCII)));
+            }
+        } catch (IOException e) {
+            throw new UmlAdocExporterException ("Unable to write token file " + tokenFile + '!', e);
+        }
+        return token;
+    }
+
+    /**
+     * Read the token of the daemon on a port.
+     */
+    static String read (int port) {
+        Path tokenFile = tokenFile (port);
+        try {
+            return new String (Files.readAllBytes (tokenFile), StandardCharsets.US_ASCII).trim();
+        } catch (NoSuchFileException e) {
+            throw new UmlAdocExporterException ("No token file " + tokenFile + "; is the export daemon running on port " + port + " as this user?", e);
+        } catch (IOException e) {
+            throw new UmlAdocExporterException ("Unable to read token file " + tokenFile + '!', e);
+        }
+    }
+
+    /**
+     * Remove the token file of the daemon on a port, once it has stopped.
+     */
+    static void delete (int port) {
+        try {
+            Files.deleteIfExists (tokenFile (port));
+        } catch (IOException e) {
+            System.out.println("Warning: unable to remove token file " + tokenFile (port) + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Compare a token sent with a job to the daemon's token, in time independent of where they differ.
+     * @param sent null if none was sent.
+     */
+    static boolean matches (String token, String sent) {
+        return sent != null && MessageDigest.isEqual (token.getBytes (StandardCharsets.UTF_8), sent.getBytes (StandardCharsets.UTF_8));
+    }
+}
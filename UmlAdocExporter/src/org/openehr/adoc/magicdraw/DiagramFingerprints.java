@@ -0,0 +1,225 @@
+package org.openehr.adoc.magicdraw;
+
+import com.nomagic.magicdraw.properties.PropertyManager;
+import com.nomagic.magicdraw.uml.symbols.DiagramPresentationElement;
+import com.nomagic.magicdraw.uml.symbols.PresentationElement;
+import com.nomagic.magicdraw.uml.symbols.paths.PathElement;
+import com.nomagic.uml2.ext.jmi.helpers.StereotypesHelper;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Classifier;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Comment;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Element;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Feature;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.InstanceValue;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.LiteralBoolean;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.LiteralInteger;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.LiteralReal;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.LiteralString;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.MultiplicityElement;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.NamedElement;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.OpaqueExpression;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Operation;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Parameter;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Property;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.TypedElement;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.ValueSpecification;
+import com.nomagic.uml2.ext.magicdraw.mdprofiles.Stereotype;
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+/**
+ * Cache of diagram fingerprints, kept in a manifest next to the diagrams folder, used to skip
+ * the export of diagrams that have not changed since the last export. A fingerprint is a hash
+ * of the diagram's presentation elements, with their bounds, the route points of links and their
+ * style properties, and of the model elements they show, with their names, stereotypes and
+ * features; features with their visibility, types, multiplicities, stereotypes and default values.
+ * Style properties are included if their values are text, numbers, colours or fonts; a change
+ * only to a property of another kind, e.g. a list of elements to show, is not seen.
+ */
+public class DiagramFingerprints {
+
+    static final String CACHE_FILE_NAME = ".diagram_fingerprints";
+
+    private final Path cachePath;
+    private final Properties fingerprints = new Properties();
+
+    /**
+     * Load the fingerprint cache in an export output folder, if there is one.
+     * @param outputFolder export output folder.
+     */
+    public DiagramFingerprints (Path outputFolder) {
+        this.cachePath = outputFolder.resolve (CACHE_FILE_NAME);
+        if (Files.isRegularFile (cachePath)) {
+            try (Reader reader = Files.newBufferedReader (cachePath, StandardCharsets.UTF_8)) {
+                fingerprints.load (reader);
+            } catch (IOException e) {
+                throw new UmlAdocExporterException ("Unable to read " + cachePath + '!', e);
+            }
+        }
+    }
+
+    /**
+     * Fingerprint recorded for a diagram in the last export.
+     * @return null if there is none.
+     */
+    public synchronized String get (String diagramName) {
+        return fingerprints.getProperty (diagramName);
+    }
+
+    public synchronized void put (String diagramName, String fingerprint) {
+        fingerprints.setProperty (diagramName, fingerprint);
+    }
+
+    /**
+     * Write the cache back to the output folder.
+     */
+    public synchronized void save() {
+        try (Writer writer = Files.newBufferedWriter (cachePath, StandardCharsets.UTF_8)) {
+            fingerprints.store (writer, null);
+        } catch (IOException e) {
+            throw new UmlAdocExporterException ("Unable to write to " + cachePath + '!', e);
+        }
+    }
+
+    /**
+     * Remove the cache from the output folder, e.g. after diagrams have been exported without
+     * fingerprinting, so that a later export does not compare against stale fingerprints.
+     */
+    public void delete() {
+        try {
+            Files.deleteIfExists (cachePath);
+        } catch (IOException e) {
+            throw new UmlAdocExporterException ("Unable to delete " + cachePath + '!', e);
+        }
+    }
+
+    /**
+     * Compute the fingerprint of a diagram.
+     * @param diag UML diagram representation.
+     * @return hex string of a SHA-256 hash.
+     */
+    public static String fingerprint (DiagramPresentationElement diag) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance ("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new UmlAdocExporterException (e);
+        }
+
+        diag.ensureLoaded();
+        update (digest, diag.getName());
+        addPresentationElement (digest, diag);
+
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest())
+            sb.append (String.format ("%02x", b));
+        return sb.toString();
+    }
+
+    private static void addPresentationElement (MessageDigest digest, PresentationElement presentationElement) {
+        update (digest, presentationElement.getHumanType());
+        Rectangle bounds = presentationElement.getBounds();
+        if (bounds != null)
+            update (digest, bounds.x + "," + bounds.y + "," + bounds.width + "," + bounds.height);
+        if (presentationElement instanceof PathElement) {
+            for (Point point : ((PathElement) presentationElement).getAllBreakPoints())
+                update (digest, point.x + "," + point.y);
+        }
+        addProperties (digest, presentationElement.getPropertyManager());
+
+        Element element = presentationElement.getElement();
+        if (element != null)
+            addElement (digest, element);
+
+        for (PresentationElement child : presentationElement.getPresentationElements())
+            addPresentationElement (digest, child);
+        update (digest, "/");
+    }
+
+    // add the style properties of a presentation element, by ID, whose values have a stable text form
+    private static void addProperties (MessageDigest digest, PropertyManager propertyManager) {
+        if (propertyManager == null)
+            return;
+        for (com.nomagic.magicdraw.properties.Property property : propertyManager.getProperties()) {
+            Object value = property.getValue();
+            if (value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Enum ||
+                    value instanceof Color || value instanceof Font)
+                update (digest, property.getID() + "=" + value);
+        }
+    }
+
+    // add the name and, for classifiers, the features of the model element shown
+    private static void addElement (MessageDigest digest, Element element) {
+        update (digest, element.getHumanName());
+        addStereotypes (digest, element);
+        if (element instanceof NamedElement)
+            update (digest, ((NamedElement) element).getQualifiedName());
+        if (element instanceof Comment)
+            update (digest, ((Comment) element).getBody());
+
+        if (element instanceof Classifier) {
+            Classifier classifier = (Classifier) element;
+            update (digest, String.valueOf (classifier.isAbstract()));
+            for (Feature feature : classifier.getFeature()) {
+                update (digest, feature.getHumanName());
+                update (digest, String.valueOf (feature.getVisibility()));
+                addStereotypes (digest, feature);
+                if (feature instanceof TypedElement && ((TypedElement) feature).getType() != null)
+                    update (digest, ((TypedElement) feature).getType().getQualifiedName());
+                if (feature instanceof MultiplicityElement)
+                    update (digest, ((MultiplicityElement) feature).getLower() + ".." + ((MultiplicityElement) feature).getUpper());
+                if (feature instanceof Property)
+                    addValue (digest, ((Property) feature).getDefaultValue());
+                if (feature instanceof Operation) {
+                    for (Parameter parameter : ((Operation) feature).getOwnedParameter()) {
+                        update (digest, parameter.getName());
+                        if (parameter.getType() != null)
+                            update (digest, parameter.getType().getQualifiedName());
+                        addValue (digest, parameter.getDefaultValue());
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addStereotypes (MessageDigest digest, Element element) {
+        for (Stereotype stereotype : StereotypesHelper.getStereotypes (element))
+            update (digest, "<<" + stereotype.getName() + ">>");
+    }
+
+    // add a default value, as its text for the kinds of value an export shows
+    private static void addValue (MessageDigest digest, ValueSpecification value) {
+        if (value instanceof LiteralString)
+            update (digest, ((LiteralString) value).getValue());
+        else if (value instanceof LiteralInteger)
+            update (digest, String.valueOf (((LiteralInteger) value).getValue()));
+        else if (value instanceof LiteralReal)
+            update (digest, String.valueOf (((LiteralReal) value).getValue()));
+        else if (value instanceof LiteralBoolean)
+            update (digest, String.valueOf (((LiteralBoolean) value).isValue()));
+        else if (value instanceof InstanceValue && ((InstanceValue) value).getInstance() != null)
+            update (digest, ((InstanceValue) value).getInstance().getName());
+        else if (value instanceof OpaqueExpression)
+            update (digest, String.join ("\n", ((OpaqueExpression) value).getBody()));
+        else if (value != null)
+            update (digest, value.getHumanName());
+    }
+
+    private static void update (MessageDigest digest, String text) {
+        if (text != null)
+            digest.update (text.getBytes (StandardCharsets.UTF_8));
+        digest.update ((byte) '\n');
+    }
+}
@@ -0,0 +1,36 @@
+package org.openehr.adoc.magicdraw;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Sink writing the files of an export to the output folder.
+ */
+public class DirectoryOutputSink implements OutputSink {
+
+    @Override
+    public boolean isFolder() {
+        return true;
+    }
+
+    @Override
+    public void createFolder (Path folder) throws IOException {
+        Files.createDirectories (folder);
+    }
+
+    @Override
+    public void write (Path path, byte[] content) throws IOException {
+        Files.write (path, content);
+    }
+
+    @Override
+    public void write (Path path, FileWriter fileWriter) throws IOException {
+        fileWriter.writeTo (path.toFile());
+    }
+
+    @Override
+    public void close() {
+        // files are closed as written
+    }
+}
@@ -0,0 +1,79 @@
+package org.openehr.adoc.magicdraw;
+
+import java.util.*;
+
+/**
+ * Registry of the ClassInfo objects of an export keyed by class key, ignoring case. Classes are
+ * held in an array indexed by the class ids of a SymbolTable, so that a lookup is a hash of the
+ * key rather than a walk of a sorted tree; they are sorted by class key only when listed.
+ */
+public class EntityRegistry {
+
+    private final SymbolTable symbolTable;
+
+    // classes by class id; null for ids not registered here
+    private ClassInfo[] entities;
+    private int size;
+
+    // classes in order of class key, built on the first call to values() after a change
+    private List<ClassInfo> sortedEntities;
+
+    public EntityRegistry (SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+        this.entities = new ClassInfo[Math.max (16, symbolTable.getClassCount())];
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * @return the class of a class key, ignoring case, or null if there is none.
+     */
+    public ClassInfo get (String classKey) {
+        int id = symbolTable.findClassId (classKey);
+        return id >= 0 && id < entities.length ? entities[id] : null;
+    }
+
+    public boolean containsKey (String classKey) {
+        return get (classKey) != null;
+    }
+
+    /**
+     * Register a class under its class key, replacing any class of the same key.
+     */
+    public void put (ClassInfo classInfo) {
+        int id = symbolTable.classId (classInfo.getClassKey());
+        if (id >= entities.length)
+            entities = Arrays.copyOf (entities, Math.max (id + 1, entities.length * 2));
+        if (entities[id] == null)
+            size++;
+        entities[id] = classInfo;
+        sortedEntities = null;
+    }
+
+    public void clear() {
+        Arrays.fill (entities, null);
+        size = 0;
+        sortedEntities = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * All classes, in order of class key, ignoring case.
+     */
+    public List<ClassInfo> values() {
+        if (sortedEntities == null) {
+            List<ClassInfo> values = new ArrayList<>(size);
+            for (ClassInfo classInfo : entities)
+                if (classInfo != null)
+                    values.add (classInfo);
+            values.sort (Comparator.comparing (ClassInfo::getClassKey, String.CASE_INSENSITIVE_ORDER));
+            sortedEntities = Collections.unmodifiableList (values);
+        }
+        return sortedEntities;
+    }
+}
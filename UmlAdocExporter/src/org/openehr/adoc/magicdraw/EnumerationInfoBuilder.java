@@ -12,8 +12,9 @@ import java.util.function.Function;
  * @author Bostjan Lah
  */
 public class EnumerationInfoBuilder extends AbstractInfoBuilder<Enumeration> {
-    public EnumerationInfoBuilder(Formatter formatter, Function<String, Class> getUMLClassByQualifiedName) {
-        super(formatter, getUMLClassByQualifiedName);
+    public EnumerationInfoBuilder(Formatter formatter, Function<String, Class> getUMLClassByQualifiedName, Map<Object, ParsedComment> parsedComments,
+                            SymbolTable symbolTable) {
+        super(formatter, getUMLClassByQualifiedName, parsedComments, symbolTable);
     }
 
     @Override
@@ -37,7 +38,7 @@ public class EnumerationInfoBuilder extends AbstractInfoBuilder<Enumeration> {
     private void addLiterals(List<ClassFeatureInfo> attributes, List<EnumerationLiteral> ownedLiteral, Formatter formatter) {
         for (EnumerationLiteral literal : ownedLiteral) {
             attributes.add(new ClassFeatureInfo()
-                                   .setSignature(literal.getName())
+                                   .setSignature(new Signature().append(literal.getName()))
                                    .setDocumentation(getDocumentation(literal, formatter)));
         }
     }
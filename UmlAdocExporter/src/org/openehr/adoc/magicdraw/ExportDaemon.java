@@ -0,0 +1,281 @@
+package org.openehr.adoc.magicdraw;
+
+import com.nomagic.magicdraw.core.Application;
+import com.nomagic.magicdraw.core.Project;
+import com.nomagic.magicdraw.core.project.ProjectsManager;
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.io.BufferedReader;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+
+/**
+ * Export daemon, run by UmlAdocExporterCommandLine --daemon, which keeps MagicDraw and recently
+ * used projects loaded between exports, so that a series of exports, e.g. one per component, pays
+ * the start-up and project load cost once. Jobs are sent by UmlAdocExporterClient over a socket on
+ * the loopback interface, and are run one at a time, since MagicDraw has a single active project.
+ *
+ * A job is three lines of UTF-8 text: the daemon's token, the client's working directory, against
+ * which relative paths are resolved, and the command-line arguments of the export, separated by
+ * tabs. A job without the token, which only the user who started the daemon can read (see
+ * DaemonToken), is rejected, since any local user can connect to the port. The output of the
+ * export is sent back, followed by a final status line, STATUS_PREFIX and 0 or 1, which is sent
+ * whatever the job throws. A job whose only argument is --shutdown stops the daemon.
+ *
+ * A loaded project is reused until its file changes, when it is reloaded. The least recently used
+ * projects are closed while the heap in use exceeds HEAP_LIMIT of the maximum heap.
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class ExportDaemon {
+
+    static final String SHUTDOWN_ARGUMENT = "--shutdown";
+
+    // prefix of the final line of the response to a job, followed by the exit status; it starts
+    // with a NUL character, which is removed from the output of the job, so no output line matches it
+    static final String STATUS_PREFIX = "\u0000EXIT ";
+
+    // fraction of the maximum heap above which least recently used projects are closed
+    private static final double HEAP_LIMIT = 0.7;
+
+    private final int port;
+
+    // token that each job must start with; made when the daemon starts listening
+    private String token;
+
+    // loaded projects by real path, least recently used first
+    private final LinkedHashMap<Path, LoadedProject> loadedProjects = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static class LoadedProject {
+        private final Project project;
+        private final FileTime lastModified;
+        private final long size;
+
+        private LoadedProject (Project project, FileTime lastModified, long size) {
+            this.project = project;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        private boolean isCurrent (FileTime lastModified, long size) {
+            return this.lastModified.equals (lastModified) && this.size == size;
+        }
+    }
+
+    /**
+     * @param port port on the loopback interface on which to take jobs.
+     */
+    public ExportDaemon (int port) {
+        this.port = port;
+    }
+
+    /**
+     * Take and run jobs until a job asks the daemon to shut down.
+     */
+    public void run() {
+        try (ServerSocket serverSocket = new ServerSocket (port, 50, InetAddress.getLoopbackAddress())) {
+            token = DaemonToken.create (port);
+            System.out.println("Export daemon listening on " + serverSocket.getInetAddress().getHostAddress() + ':' + serverSocket.getLocalPort()
+                    + ", token in " + DaemonToken.tokenFile (port));
+            boolean running = true;
+            while (running) {
+                try (Socket socket = serverSocket.accept()) {
+                    running = runJob (socket);
+                } catch (IOException e) {
+                    System.out.println("Warning: job connection failed: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new UmlAdocExporterException ("Unable to listen on port " + port + '!', e);
+        } finally {
+            if (token != null)
+                DaemonToken.delete (port);
+            while (!loadedProjects.isEmpty())
+                closeProject (loadedProjects.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Read a job from a connection, run it, and send back its output and exit status.
+     * @return false if the job asked the daemon to shut down.
+     */
+    private boolean runJob (Socket socket) throws IOException {
+        BufferedReader in = new BufferedReader (new InputStreamReader (socket.getInputStream(), StandardCharsets.UTF_8));
+        OutputStream socketOut = socket.getOutputStream();
+        PrintStream out = new PrintStream (new NulFilterOutputStream (socketOut), true, StandardCharsets.UTF_8);
+
+        if (!DaemonToken.matches (token, in.readLine())) {
+            System.out.println("Warning: job rejected: invalid token");
+            out.println ("Error: job rejected: invalid token");
+            sendStatus (out, socketOut, 1);
+            return true;
+        }
+
+        String workingDir = in.readLine();
+        String argsLine = in.readLine();
+        if (workingDir == null || argsLine == null) {
+            out.println ("Error: incomplete job");
+            sendStatus (out, socketOut, 1);
+            return true;
+        }
+        String[] args = argsLine.isEmpty() ? new String[0] : argsLine.split ("\t", -1);
+        if (args.length == 1 && SHUTDOWN_ARGUMENT.equals (args[0])) {
+            System.out.println("Export daemon shutting down");
+            sendStatus (out, socketOut, 0);
+            return false;
+        }
+
+        long startTime = System.nanoTime();
+        int status = 0;
+        try {
+            // each job starts from the default configuration, so that no options carry over
+            UmlExportConfig.reset();
+            ExportJob job = new ExportJob (UmlExportConfig.getInstance(), Paths.get (workingDir), out);
+            job.parse (args);
+            if (job.getDaemonPort() >= 0 || job.getManifestFile() != null)
+                throw new UmlAdocExporterException ("--daemon and --manifest can't be used in a job!");
+            if (UmlExportConfig.getInstance().isArchiveToStdout())
+                throw new UmlAdocExporterException ("--archive - can't be used in a job!");
+
+            if (!job.isHelpOnly()) {
+                // the project may already be loaded, in which case this measures only the check
+                ExportMetrics.Probe loadProbe = ExportMetrics.Probe.start();
+                Project project = getProject (job.getProjectFile().toPath(), out);
+                UmlAdocExporterCommandLine.exportProject (project, job, out, loadProbe.stop());
+                out.println ("Exported in " + (System.nanoTime() - startTime) / 1_000_000 + " ms");
+            }
+        } catch (RuntimeException e) {
+            out.println ("Error: " + e.getMessage());
+            status = 1;
+        } catch (VirtualMachineError e) {
+            // after e.g. an OutOfMemoryError the state of the daemon can't be relied on, so it stops,
+            // once the client has the status of the job
+            out.println ("Error: " + e);
+            System.out.println("Job " + String.join (" ", args) + ": " + e);
+            sendStatus (out, socketOut, 1);
+            throw e;
+        } catch (Throwable e) {
+            // e.g. a NoClassDefFoundError or an AssertionError: only the job fails
+            out.println ("Error: " + e);
+            status = 1;
+        }
+        System.out.println("Job " + String.join (" ", args) + ": exit " + status + " in " + (System.nanoTime() - startTime) / 1_000_000 + " ms");
+
+        try {
+            closeProjectsOverHeapLimit (1, out);
+        } catch (RuntimeException e) {
+            out.println ("Warning: unable to close projects: " + e.getMessage());
+        }
+        sendStatus (out, socketOut, status);
+        return true;
+    }
+
+    // send the final line of the response to a job, past the NUL filter of the job output
+    private static void sendStatus (PrintStream out, OutputStream socketOut, int status) throws IOException {
+        out.flush();
+        socketOut.write ((STATUS_PREFIX + status + '\n').getBytes (StandardCharsets.UTF_8));
+        socketOut.flush();
+    }
+
+    // output stream that drops NUL bytes; in UTF-8 these only ever encode the NUL character
+    private static class NulFilterOutputStream extends FilterOutputStream {
+        private NulFilterOutputStream (OutputStream out) {
+            super (out);
+        }
+
+        @Override
+        public void write (int b) throws IOException {
+            if (b != 0)
+                out.write (b);
+        }
+
+        @Override
+        public void write (byte[] b, int off, int len) throws IOException {
+            int start = off;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == 0) {
+                    out.write (b, start, i - start);
+                    start = i + 1;
+                }
+            }
+            out.write (b, start, off + len - start);
+        }
+    }
+
+    /**
+     * Obtain a project as the active project, loading it if it is not loaded or its file has
+     * changed since it was loaded.
+     */
+    private Project getProject (Path projectPath, PrintStream out) {
+        Path realPath;
+        FileTime lastModified;
+        long size;
+        try {
+            realPath = projectPath.toRealPath();
+            lastModified = Files.getLastModifiedTime (realPath);
+            size = Files.size (realPath);
+        } catch (IOException e) {
+            throw new UmlAdocExporterException ("Unable to read project file " + projectPath + '!', e);
+        }
+
+        ProjectsManager projectsManager = Application.getInstance().getProjectsManager();
+        LoadedProject loadedProject = loadedProjects.get (realPath);
+        if (loadedProject != null) {
+            if (loadedProject.isCurrent (lastModified, size)) {
+                out.println ("Project " + realPath + " already loaded");
+                projectsManager.setActiveProject (loadedProject.project);
+                return loadedProject.project;
+            }
+            out.println ("Project " + realPath + " changed since loaded; reloading");
+            closeProject (realPath);
+        }
+
+        // make room for the project before loading it
+        closeProjectsOverHeapLimit (0, out);
+
+        long startTime = System.nanoTime();
+        Project project = UmlAdocExporterCommandLine.loadProject (realPath.toFile());
+        out.println ("Project " + realPath + " loaded in " + (System.nanoTime() - startTime) / 1_000_000 + " ms");
+
+        loadedProjects.put (realPath, new LoadedProject (project, lastModified, size));
+        return project;
+    }
+
+    // close the least recently used projects, keeping at least minProjects, while the heap in use is over the limit
+    private void closeProjectsOverHeapLimit (int minProjects, PrintStream out) {
+        while (loadedProjects.size() > minProjects && isHeapOverLimit()) {
+            Path eldest = loadedProjects.keySet().iterator().next();
+            out.println ("Closing project " + eldest + " to free memory");
+            closeProject (eldest);
+        }
+    }
+
+    private void closeProject (Path realPath) {
+        LoadedProject loadedProject = loadedProjects.remove (realPath);
+        ProjectsManager projectsManager = Application.getInstance().getProjectsManager();
+        projectsManager.setActiveProject (loadedProject.project);
+        projectsManager.closeProjectNoSave();
+    }
+
+    private static boolean isHeapOverLimit() {
+        Runtime runtime = Runtime.getRuntime();
+        long limit = (long) (HEAP_LIMIT * runtime.maxMemory());
+        if (runtime.totalMemory() - runtime.freeMemory() <= limit)
+            return false;
+
+        // the heap in use includes garbage, so only collect it once the limit appears to be exceeded
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory() > limit;
+    }
+}
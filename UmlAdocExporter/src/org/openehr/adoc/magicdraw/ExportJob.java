@@ -0,0 +1,264 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static java.lang.String.join;
+
+/**
+ * Options of one export, as given on the command line, or in a job sent to ExportDaemon; options
+ * are parsed into the export configuration, and relative paths are resolved against a working
+ * directory.
+ */
+class ExportJob {
+
+    private final UmlExportConfig exportConfig;
+    private final Path workingDir;
+    private final PrintStream out;
+    private File projectFile;
+    private File outFolder;
+
+    // components to publish by output folder, in batch mode; empty otherwise
+    private final Map<File, Set<String>> componentsByOutputFolder = new LinkedHashMap<>();
+    private boolean helpOnly;
+    private int daemonPort = -1;
+    private File manifestFile;
+
+    /**
+     * @param exportConfig configuration to parse the options into.
+     * @param workingDir directory against which relative paths are resolved.
+     * @param out stream to which help is written.
+     */
+    ExportJob (UmlExportConfig exportConfig, Path workingDir, PrintStream out) {
+        this.exportConfig = exportConfig;
+        this.workingDir = workingDir;
+        this.out = out;
+    }
+
+    File getProjectFile() {
+        return projectFile;
+    }
+
+    File getOutFolder() {
+        return outFolder;
+    }
+
+    /**
+     * @return names of the components to publish by output folder, in the order given; empty if
+     * not in batch mode.
+     */
+    Map<File, Set<String>> getComponentsByOutputFolder() {
+        return componentsByOutputFolder;
+    }
+
+    boolean isHelpOnly() {
+        return helpOnly;
+    }
+
+    /**
+     * @return port on which to run as a daemon; -1 if not given.
+     */
+    int getDaemonPort() {
+        return daemonPort;
+    }
+
+    /**
+     * @return manifest of exports to run; null if not given.
+     */
+    File getManifestFile() {
+        return manifestFile;
+    }
+
+    /**
+     * Parse the arguments of an export into the export configuration.
+     * @param cmdLineArgs arguments, as on the command line.
+     */
+    void parse (String[] cmdLineArgs) {
+        for (Iterator<String> iterator = Arrays.asList(cmdLineArgs).iterator(); iterator.hasNext(); ) {
+            String arg = iterator.next();
+            switch (arg) {
+                case "-c":  // short component name(s) - packages under root package to include
+                    exportConfig.getComponentPackageNames().addAll (Pattern.compile(",").splitAsStream (getParameterValue (iterator, "-c")).collect(Collectors.toList()));
+                    break;
+
+                case "-P":  // component name prefix to use in links
+                    exportConfig.setComponentPackageNamePrefix(getParameterValue (iterator, "-P"));
+                    break;
+
+                case "-d":  // Asciidoctor only: Diagram file formats
+                    String imageFormat = getParameterValue(iterator, "-d").toLowerCase();
+                    if (!UmlExporterDefinitions.defaultImageFormats.containsKey(imageFormat)) {
+                        throw new UmlAdocExporterException("Invalid argument for -d: " + imageFormat + " (expected one of " +
+                                join("|", UmlExporterDefinitions.defaultImageFormats.keySet()) + "!");
+                    }
+                    else {
+                        exportConfig.getImageFormats().put(imageFormat, UmlExporterDefinitions.defaultImageFormats.get(imageFormat));
+                    }
+                    break;
+
+                case "-k":  // link template
+                    exportConfig.setSpecLinkTemplate(getParameterValue(iterator, "-k"));
+                    break;
+
+                case "-l":  // Asciidoctor only: heading level
+                    String level = getParameterValue(iterator, "-l");
+                    try {
+                        exportConfig.setHeadingLevel(Integer.parseInt(level));
+                    } catch (NumberFormatException ignored) {
+                        throw new UmlAdocExporterException("Invalid argument for -l: " + level + " (expected numeric)!");
+                    }
+                    break;
+
+                case "-o":  // Output folder
+                    String outputFolder = getParameterValue(iterator, "-o");
+                    Path outputPath = resolve(outputFolder);
+                    if (!Files.isDirectory(outputPath))
+                        throw new UmlAdocExporterException("Output folder " + outputFolder + " doesn't exist!");
+                    outFolder = outputPath.toFile();
+                    break;
+
+                case "--batch":  // components and their output folders, e.g. RM=docs/RM/UML,AM=docs/AM/UML
+                    for (String batchEntry : getParameterValue(iterator, "--batch").split(",")) {
+                        int eqIndex = batchEntry.indexOf('=');
+                        if (eqIndex <= 0 || eqIndex == batchEntry.length() - 1)
+                            throw new UmlAdocExporterException("Invalid argument for --batch: " + batchEntry + " (expected component=output_folder)!");
+                        Path batchPath = resolve(batchEntry.substring(eqIndex + 1));
+                        if (!Files.isDirectory(batchPath))
+                            throw new UmlAdocExporterException("Output folder " + batchEntry.substring(eqIndex + 1) + " doesn't exist!");
+                        componentsByOutputFolder.computeIfAbsent(batchPath.toFile(), f -> new LinkedHashSet<>()).add(batchEntry.substring(0, eqIndex));
+                    }
+                    break;
+
+                case "-q":  // flag to include class-name qualifiers in class file names, i.e. pkg.pkg.class_name.ext
+                    exportConfig.setQualifiedClassNames(true);
+                    break;
+
+                case "-p":  // UML package depth to guarantee uniquely qualified classes
+                    String depth = getParameterValue(iterator, "-p");
+                    try {
+                        exportConfig.setPackageDepth(Integer.parseInt(depth));
+                    } catch (NumberFormatException ignored) {
+                        throw new UmlAdocExporterException("Invalid argument for -p: " + depth + " (expected numeric)!");
+                    }
+                    break;
+
+                case "-r":  // Root package
+                    exportConfig.setRootPackageName (getParameterValue (iterator, "-r"));
+                    break;
+
+                case "--threads":  // number of threads used to render class descriptors
+                    String threads = getParameterValue(iterator, "--threads");
+                    try {
+                        exportConfig.setThreads(Integer.parseInt(threads));
+                    } catch (NumberFormatException ignored) {
+                        throw new UmlAdocExporterException("Invalid argument for --threads: " + threads + " (expected numeric)!");
+                    }
+                    if (exportConfig.getThreads() < 1)
+                        throw new UmlAdocExporterException("Invalid argument for --threads: " + threads + " (expected 1 or more)!");
+                    break;
+
+                case "--incremental":  // only write files whose content has changed; remove orphaned class files; skip unchanged diagrams
+                    exportConfig.setIncremental(true);
+                    break;
+
+                case "--full-traversal":  // walk the whole model, rather than only the root package subtrees
+                    exportConfig.setPrunedTraversal(false);
+                    break;
+
+                case "--snapshot":  // file to save the built model to, for rendering with UmlAdocTextCommandLine
+                    exportConfig.setSnapshotFile(resolve(getParameterValue(iterator, "--snapshot")).toFile());
+                    break;
+
+                case "--archive":  // .zip or .tar file to write all files of the export into, or - for a tar stream to stdout
+                    String archive = getParameterValue(iterator, "--archive");
+                    exportConfig.setArchiveFile(archive.equals(UmlExportConfig.STDOUT_ARCHIVE) ? new File(archive) : resolve(archive).toFile());
+                    break;
+
+                case "--metrics":  // write a JSON report of the metrics of each phase of the export to the output folder
+                    exportConfig.setMetricsReport(true);
+                    break;
+
+                case "--daemon":  // run as a daemon taking export jobs on a local port
+                    String port = getParameterValue(iterator, "--daemon");
+                    try {
+                        daemonPort = Integer.parseInt(port);
+                    } catch (NumberFormatException ignored) {
+                        throw new UmlAdocExporterException("Invalid argument for --daemon: " + port + " (expected numeric)!");
+                    }
+                    break;
+
+                case "--manifest":  // run the exports listed in a manifest file
+                    String manifest = getParameterValue(iterator, "--manifest");
+                    Path manifestPath = resolve(manifest);
+                    if (!Files.isReadable(manifestPath))
+                        throw new UmlAdocExporterException("Manifest file " + manifest + " doesn't exist!");
+                    manifestFile = manifestPath.toFile();
+                    break;
+
+                case "-?":
+                case "-h":
+                    out.println("Usage: uml_generate [-c component_pkg_names] [-P link_component_prefix] [-k link_template] [-d image_formats] [-o output_folder] [-l heading_level]  [-p uml_pkg_depth] [-q] [-r root_package_name] [-i index_release] [--threads N] [--incremental] [--full-traversal] [--snapshot snapshot_file] [--archive archive_file] [--metrics] [--batch component=output_folder,...] <project file>");
+                    out.println("       uml_generate --daemon port");
+                    out.println("       uml_generate --manifest manifest_file");
+                    out.println("       -c: component package name(s) under root package to export (comma-separated)");
+                    out.println("       -P: component name prefix to use in links");
+                    out.println("       -d: image format: " + join("|", UmlExporterDefinitions.defaultImageFormatNames()) + " (default = all)");
+                    out.println("       -k: spec URL template (default = \"" + UmlExporterDefinitions.DEFAULT_SPEC_LINK_TEMPLATE + "\"");
+                    out.println("       -o: output folder (default = current folder)");
+                    out.println("       -l: class headings level (default = 3)");
+                    out.println("       -p: UML package depth for uniqueness (default = " + exportConfig.getPackageDepth() + ")");
+                    out.println("       -q: if set, use package-qualified class-names in output files");
+                    out.println("       -r: root package name to export (default = openehr)");
+                    out.println("       --threads: number of threads used to render class descriptors (default = 1); the model is read on one thread");
+                    out.println("       --incremental: only write class and index files whose content has changed, remove orphaned class files, and skip unchanged diagrams (a change only to a diagram style property whose value is not text, a number, a colour or a font is not seen)");
+                    out.println("       --full-traversal: walk the whole model, not only packages within the root package");
+                    out.println("       --snapshot: file to save the built model to, for rendering again without MagicDraw");
+                    out.println("       --archive: write all files into a .zip or .tar file, laid out as the output folder would be, or - for a tar stream to stdout");
+                    out.println("       --metrics: write the time, CPU time, allocation and item count of each phase of the export to " + ExportMetrics.REPORT_FILE_NAME + " in the output folder");
+                    out.println("       --manifest: run the exports listed in a file, one line of the above options and project file per export");
+                    out.println("       --batch: export each component to its own output folder, building the model once (instead of -c and -o)");
+                    out.println("       --daemon: keep MagicDraw running, taking export jobs from UmlAdocExporterClient on a local port");
+                    helpOnly = true;
+                    break;
+
+                default:
+                    Path projectPath = resolve(arg);
+                    if (!Files.isReadable(projectPath))
+                        throw new UmlAdocExporterException ("Project file " + arg + " doesn't exist!");
+                    projectFile = projectPath.toFile();
+            }
+        }
+        if (!helpOnly && daemonPort < 0 && manifestFile == null) {
+            if (projectFile == null)
+                throw new UmlAdocExporterException ("No project file specified!");
+            if (!componentsByOutputFolder.isEmpty() && (!exportConfig.getComponentPackageNames().isEmpty() || outFolder != null))
+                throw new UmlAdocExporterException ("--batch can't be used with -c or -o!");
+            if (exportConfig.getArchiveFile() != null && !componentsByOutputFolder.isEmpty())
+                throw new UmlAdocExporterException ("--archive can't be used with --batch!");
+            if (exportConfig.getArchiveFile() != null && exportConfig.isIncremental())
+                throw new UmlAdocExporterException ("--archive can't be used with --incremental!");
+            if (exportConfig.getHeadingLevel() <= 0)
+                exportConfig.setHeadingLevel(3);
+            if (outFolder == null)
+                outFolder = resolve(".").toFile();
+        }
+    }
+
+    private String getParameterValue (Iterator<String> iterator, String param) {
+        if (iterator.hasNext())
+            return iterator.next();
+        else
+            throw new UmlAdocExporterException ("Missing parameter for " + param + '!');
+    }
+
+    private Path resolve (String path) {
+        return workingDir.resolve (path).normalize();
+    }
+}
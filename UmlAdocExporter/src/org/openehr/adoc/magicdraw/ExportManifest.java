@@ -0,0 +1,102 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Manifest, kept in the output folder, of the documents written by the last export to that folder.
+ * Used in incremental mode to find and remove documents, e.g. class files, for entities that no
+ * longer exist in the model.
+ */
+public class ExportManifest {
+
+    static final String MANIFEST_FILE_NAME = ".uml_export_manifest";
+
+    private final Path outputFolder;
+    private final Path manifestPath;
+
+    /**
+     * @param outputFolder export output folder.
+     */
+    public ExportManifest (Path outputFolder) {
+        this.outputFolder = outputFolder.toAbsolutePath().normalize();
+        this.manifestPath = this.outputFolder.resolve (MANIFEST_FILE_NAME);
+    }
+
+    /**
+     * Read the documents listed by the last export. Lines that don't resolve to a path within the
+     * output folder, e.g. "../x" or an absolute path, are skipped, since the documents read are
+     * deleted in incremental mode.
+     * @return absolute, normalised paths of the documents; empty if there is no manifest.
+     */
+    public Set<Path> read() {
+        if (!Files.isRegularFile (manifestPath))
+            return new LinkedHashSet<>();
+
+        try {
+            return Files.readAllLines (manifestPath, StandardCharsets.UTF_8).stream()
+                    .filter (line -> !line.isEmpty())
+                    .map (line -> outputFolder.resolve (line).normalize())
+                    .filter (this::isWithinOutputFolder)
+                    .collect (Collectors.toCollection (LinkedHashSet::new));
+        } catch (IOException e) {
+            throw new UmlAdocExporterException ("Unable to read " + manifestPath + '!', e);
+        }
+    }
+
+    /**
+     * Replace the manifest with a list of the documents written by this export.
+     * @param documentPaths paths of the documents, within the output folder.
+     */
+    public void write (Collection<Path> documentPaths) {
+        List<String> lines = documentPaths.stream()
+                .map (p -> outputFolder.relativize (p.toAbsolutePath().normalize()).toString().replace ('\\', '/'))
+                .sorted()
+                .collect (Collectors.toList());
+        try {
+            Files.write (manifestPath, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UmlAdocExporterException ("Unable to write to " + manifestPath + '!', e);
+        }
+    }
+
+    /**
+     * Delete documents listed by the last export that were not written by this one. Paths that are
+     * not within the output folder are never deleted.
+     * @param previousPaths documents listed by the last export, as returned by read().
+     * @param documentPaths documents written by this export.
+     * @return number of documents deleted.
+     */
+    public int removeOrphans (Set<Path> previousPaths, Collection<Path> documentPaths) {
+        Set<Path> currentPaths = documentPaths.stream()
+                .map (p -> p.toAbsolutePath().normalize())
+                .collect (Collectors.toSet());
+        int removedCount = 0;
+        for (Path previousPath : previousPaths) {
+            previousPath = previousPath.toAbsolutePath().normalize();
+            if (isWithinOutputFolder (previousPath) && !currentPaths.contains (previousPath)) {
+                try {
+                    if (Files.deleteIfExists (previousPath))
+                        removedCount++;
+                } catch (IOException e) {
+                    throw new UmlAdocExporterException ("Unable to delete " + previousPath + '!', e);
+                }
+            }
+        }
+        return removedCount;
+    }
+
+    // true if a normalised path is a file within the output folder, other than the manifest itself
+    private boolean isWithinOutputFolder (Path path) {
+        return path.startsWith (outputFolder) && !path.equals (outputFolder) && !path.equals (manifestPath);
+    }
+}
@@ -0,0 +1,283 @@
+package org.openehr.adoc.magicdraw;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wall time, CPU time, allocated bytes and item counts of each phase of an export, e.g. the model
+ * traversal, each builder, class rendering and each diagram format, written as a JSON report for
+ * tracking across model releases.
+ * <p>
+ * Work done on the calling thread is measured by a Probe around the phase. Work spread over a pool,
+ * or overlapping other phases, is measured item by item on the thread doing it, e.g. per class
+ * rendered, and summed; the slowest items of such a phase are kept for the report. CPU time and
+ * allocated bytes are -1 if the JVM can't measure them per thread.
+ */
+public class ExportMetrics {
+
+    static final String REPORT_FILE_NAME = "uml_export_metrics.json";
+
+    // number of the slowest items kept for each phase
+    private static final int SLOWEST_COUNT = 20;
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME_SUPPORTED = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+    private static final boolean ALLOCATION_SUPPORTED = THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemoryEnabled();
+
+    private final Instant startTime = Instant.now();
+    private final long startNanos = System.nanoTime();
+
+    // phases in the order first started
+    private final List<Phase> phases = new CopyOnWriteArrayList<>();
+
+    /**
+     * Wall time, CPU time and bytes allocated by the current thread since a probe was started.
+     */
+    public static class Probe {
+        private final long startWallNanos;
+        private final long startCpuNanos;
+        private final long startAllocatedBytes;
+        private long wallNanos;
+        private long cpuNanos;
+        private long allocatedBytes;
+
+        private Probe() {
+            startCpuNanos = cpuNanos();
+            startAllocatedBytes = allocatedBytes();
+            startWallNanos = System.nanoTime();
+        }
+
+        public static Probe start() {
+            return new Probe();
+        }
+
+        /**
+         * Take the measurements since the probe was started; called on the same thread.
+         */
+        public Probe stop() {
+            wallNanos = System.nanoTime() - startWallNanos;
+            cpuNanos = CPU_TIME_SUPPORTED ? cpuNanos() - startCpuNanos : -1;
+            allocatedBytes = ALLOCATION_SUPPORTED ? allocatedBytes() - startAllocatedBytes : -1;
+            return this;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        private static long cpuNanos() {
+            return CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+        }
+
+        private static long allocatedBytes() {
+            return ALLOCATION_SUPPORTED ? ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).getThreadAllocatedBytes (Thread.currentThread().getId()) : 0;
+        }
+    }
+
+    /**
+     * Measurements of one item of a phase, e.g. a class rendered.
+     */
+    public static class ItemMetrics {
+        private final String name;
+        private final long wallNanos;
+        private final long cpuNanos;
+        private final long allocatedBytes;
+
+        ItemMetrics (String name, Probe probe) {
+            this.name = name;
+            this.wallNanos = probe.wallNanos;
+            this.cpuNanos = probe.cpuNanos;
+            this.allocatedBytes = probe.allocatedBytes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+    }
+
+    /**
+     * Measurements of one phase of an export; a phase run more than once, e.g. for each output
+     * folder, is summed. Items may be added from any thread.
+     */
+    public static class Phase {
+        private final String name;
+        private final LongAdder wallNanos = new LongAdder();
+        private final LongAdder itemWallNanos = new LongAdder();
+        private final LongAdder cpuNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAdder itemCount = new LongAdder();
+        private volatile boolean hasItems;
+        private volatile boolean ended;
+
+        // slowest items, fastest first
+        private final PriorityQueue<ItemMetrics> slowestItems = new PriorityQueue<>(Comparator.comparingLong (ItemMetrics::getWallNanos));
+
+        private Phase (String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Add the measurements of an item, taken on the thread that did it.
+         * @param itemName name of the item, e.g. a class name; null if not to be listed among the slowest.
+         * @param probe stopped probe around the item.
+         */
+        public void addItem (String itemName, Probe probe) {
+            hasItems = true;
+            itemCount.increment();
+            itemWallNanos.add (probe.wallNanos);
+            cpuNanos.add (probe.cpuNanos);
+            allocatedBytes.add (probe.allocatedBytes);
+            if (itemName != null) {
+                synchronized (slowestItems) {
+                    if (slowestItems.size() < SLOWEST_COUNT || probe.wallNanos > slowestItems.peek().getWallNanos()) {
+                        slowestItems.add (new ItemMetrics (itemName, probe));
+                        if (slowestItems.size() > SLOWEST_COUNT)
+                            slowestItems.poll();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Add the number of items of a phase whose items are not measured one by one.
+         */
+        public void addCount (long count) {
+            itemCount.add (count);
+        }
+
+        /**
+         * Add the measurements of a probe around the phase on the calling thread. The wall time is
+         * that of the probe; the CPU time and allocated bytes are those of the items, if any were
+         * added, else of the probe.
+         */
+        public void end (Probe probe) {
+            ended = true;
+            wallNanos.add (probe.wallNanos);
+            if (!hasItems) {
+                cpuNanos.add (probe.cpuNanos);
+                allocatedBytes.add (probe.allocatedBytes);
+            }
+        }
+
+        /**
+         * Wall time of the phase; for a phase never ended, e.g. one overlapping other phases, the
+         * sum of the wall times of its items.
+         */
+        public long getWallNanos() {
+            return ended ? wallNanos.sum() : itemWallNanos.sum();
+        }
+
+        public long getCpuNanos() {
+            return CPU_TIME_SUPPORTED ? cpuNanos.sum() : -1;
+        }
+
+        public long getAllocatedBytes() {
+            return ALLOCATION_SUPPORTED ? allocatedBytes.sum() : -1;
+        }
+
+        public long getItemCount() {
+            return itemCount.sum();
+        }
+
+        /**
+         * Slowest items of the phase, slowest first.
+         */
+        public List<ItemMetrics> getSlowestItems() {
+            synchronized (slowestItems) {
+                List<ItemMetrics> items = new ArrayList<>(slowestItems);
+                items.sort (Comparator.comparingLong (ItemMetrics::getWallNanos).reversed());
+                return items;
+            }
+        }
+    }
+
+    /**
+     * Obtain a phase by name, adding it if it is new.
+     */
+    public synchronized Phase phase (String name) {
+        for (Phase phase : phases)
+            if (phase.getName().equals (name))
+                return phase;
+        Phase phase = new Phase (name);
+        phases.add (phase);
+        return phase;
+    }
+
+    public List<Phase> getPhases() {
+        return phases;
+    }
+
+    /**
+     * Write the report as UTF-8 JSON, e.g.
+     * <pre>
+     * {"started": "...", "wall_ns": ..., "phases": [
+     *   {"name": "render classes", "wall_ns": ..., "cpu_ns": ..., "allocated_bytes": ..., "items": ...,
+     *    "slowest": [{"name": "LOCATABLE", "wall_ns": ..., "cpu_ns": ..., "allocated_bytes": ...}, ...]},
+     *   ...]}
+     * </pre>
+     */
+    public byte[] toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append ("{\n");
+        sb.append ("  \"started\": ").append (quote (startTime.toString())).append (",\n");
+        sb.append ("  \"wall_ns\": ").append (System.nanoTime() - startNanos).append (",\n");
+        sb.append ("  \"threads\": ").append (UmlExportConfig.getInstance().getThreads()).append (",\n");
+        sb.append ("  \"phases\": [");
+        String phaseSeparator = "\n";
+        for (Phase phase : phases) {
+            sb.append (phaseSeparator);
+            sb.append ("    {\"name\": ").append (quote (phase.getName()));
+            sb.append (", \"wall_ns\": ").append (phase.getWallNanos());
+            sb.append (", \"cpu_ns\": ").append (phase.getCpuNanos());
+            sb.append (", \"allocated_bytes\": ").append (phase.getAllocatedBytes());
+            sb.append (", \"items\": ").append (phase.getItemCount());
+            List<ItemMetrics> slowestItems = phase.getSlowestItems();
+            if (!slowestItems.isEmpty()) {
+                sb.append (", \"slowest\": [");
+                String itemSeparator = "\n";
+                for (ItemMetrics item : slowestItems) {
+                    sb.append (itemSeparator);
+                    sb.append ("      {\"name\": ").append (quote (item.name));
+                    sb.append (", \"wall_ns\": ").append (item.wallNanos);
+                    sb.append (", \"cpu_ns\": ").append (item.cpuNanos);
+                    sb.append (", \"allocated_bytes\": ").append (item.allocatedBytes).append ('}');
+                    itemSeparator = ",\n";
+                }
+                sb.append ("\n    ]");
+            }
+            sb.append ('}');
+            phaseSeparator = ",\n";
+        }
+        sb.append ("\n  ]\n}\n");
+        return sb.toString().getBytes (StandardCharsets.UTF_8);
+    }
+
+    // a JSON string literal
+    private static String quote (String s) {
+        StringBuilder sb = new StringBuilder ("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt (i);
+            if (c == '"' || c == '\\')
+                sb.append ('\\').append (c);
+            else if (c < 0x20)
+                sb.append (String.format ("\\u%04x", (int) c));
+            else
+                sb.append (c);
+        }
+        return sb.append ('"').toString();
+    }
+}
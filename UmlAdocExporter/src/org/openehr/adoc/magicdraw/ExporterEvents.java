@@ -0,0 +1,115 @@
+package org.openehr.adoc.magicdraw;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.function.Function;
+
+/**
+ * Java Flight Recorder events for the units of work of an export, e.g. to find the classes and
+ * diagrams that are slow to export in a run with -XX:StartFlightRecording. Each event is timed
+ * from begin() to commit(); its fields are only set if it is to be recorded, so that the cost is
+ * next to nothing when recording is off.
+ */
+public final class ExporterEvents {
+
+    private static final String CATEGORY = "UML Export";
+
+    private ExporterEvents() {}
+
+    @Name("org.openehr.adoc.BuildClassifier")
+    @Label("Build Classifier")
+    @Category(CATEGORY)
+    @Description("Build of the descriptor of a class, interface or enumeration from the model")
+    @StackTrace(false)
+    public static final class BuildClassifier extends Event {
+        @Label("Classifier")
+        String classifier;
+
+        @Label("Meta Type")
+        String metaType;
+
+        @Label("Features")
+        @Description("Number of attributes, constants and operations")
+        int featureCount;
+    }
+
+    @Name("org.openehr.adoc.ResolveType")
+    @Label("Resolve Type")
+    @Category(CATEGORY)
+    @Description("Conversion of a UML qualified type name to a type expression, resolving any generic parameters")
+    @StackTrace(false)
+    public static final class ResolveType extends Event {
+        @Label("UML Type Name")
+        String umlTypeName;
+
+        @Label("Generic")
+        boolean generic;
+    }
+
+    @Name("org.openehr.adoc.RenderClass")
+    @Label("Render Class")
+    @Category(CATEGORY)
+    @Description("Rendering of the document of a class")
+    @StackTrace(false)
+    public static final class RenderClass extends Event {
+        @Label("Class")
+        String className;
+
+        @Label("Characters")
+        int length;
+    }
+
+    @Name("org.openehr.adoc.WriteDocument")
+    @Label("Write Document")
+    @Category(CATEGORY)
+    @Description("Write of a rendered class or index document to the output")
+    @StackTrace(false)
+    public static final class WriteDocument extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("Size")
+        @DataAmount
+        long size;
+
+        @Label("Unchanged")
+        @Description("Set if the file was not written because its content was unchanged")
+        boolean unchanged;
+    }
+
+    @Name("org.openehr.adoc.ExportDiagram")
+    @Label("Export Diagram")
+    @Category(CATEGORY)
+    @Description("Export of a diagram image by MagicDraw")
+    @StackTrace(false)
+    public static final class ExportDiagram extends Event {
+        @Label("Diagram")
+        String diagramName;
+
+        @Label("Format")
+        String formatName;
+    }
+
+    /**
+     * Build the descriptor of an element, recording a BuildClassifier event.
+     */
+    static <T> ClassInfo build (T element, Function<T, ClassInfo> builder) {
+        BuildClassifier event = new BuildClassifier();
+        event.begin();
+        ClassInfo classInfo = builder.apply (element);
+        event.end();
+        if (event.shouldCommit()) {
+            event.classifier = classInfo.getQualifiedClassName();
+            event.metaType = classInfo.getMetaType();
+            event.featureCount = classInfo.getAttributes().size() + classInfo.getConstants().size() + classInfo.getOperations().size();
+            event.commit();
+        }
+        return classInfo;
+    }
+}
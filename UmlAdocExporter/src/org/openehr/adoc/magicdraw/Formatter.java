@@ -20,8 +20,16 @@ public interface Formatter {
 
     String hardLineBreak();
 
+    /**
+     * Escape a literal value occurring in a type signature, e.g. a default value or an operator
+     * alias, including "&lt;=".
+     */
     String escapeLiteral(String value);
 
+    /**
+     * Escape documentation text, e.g. "&lt;=". The builders escape the lines of comments and
+     * constraints by it as they build them.
+     */
     String escape(String value);
 
     String escapeColumnSeparator(String value);
@@ -85,7 +93,9 @@ public interface Formatter {
     String tableDefinition (String colsWidthProportions);
 
     /**
-     * Return a table cell, with optional merged cells
+     * Return a table cell, with optional merged cells. The text is output as
+     * escapeColumnSeparator (normalizeLines (text)), so it is passed escaped as by escape()
+     * or escapeLiteral().
      * @param mergeCellCount == 1 for single cell width
      * @return
      */
@@ -93,9 +103,53 @@ public interface Formatter {
 
     /**
      * Return a table cell, with optional merged cells, and passthrough of the
-     * native formatter marks that may occur in the source text
+     * native formatter marks that may occur in the source text. The text is
+     * escaped as by tableCell().
      * @param mergeCellCount == 1 for single cell width
      * @return
      */
     String tableCellPassthrough (String text, int mergeCellCount);
+
+    // Streaming variants of the above, which append the text to a caller-supplied buffer rather than
+    // returning a new String, for rendering large documents. By default, they append the String result.
+
+    default void appendBold (StringBuilder out, String text) {
+        out.append (bold (text));
+    }
+
+    default void appendMonospace (StringBuilder out, String text) {
+        out.append (monospace (text));
+    }
+
+    default void appendItalic (StringBuilder out, String text) {
+        out.append (italic (text));
+    }
+
+    default void appendHeading (StringBuilder out, String text, int headingLevel) {
+        out.append (heading (text, headingLevel));
+    }
+
+    default void appendExternalLink (StringBuilder out, String text, String url) {
+        out.append (externalLink (text, url));
+    }
+
+    default void appendInternalRef (StringBuilder out, String text, String ref) {
+        out.append (internalRef (text, ref));
+    }
+
+    default void appendTableColHeader (StringBuilder out, String text, int mergeCellCount) {
+        out.append (tableColHeader (text, mergeCellCount));
+    }
+
+    default void appendTableColHeaderCentred (StringBuilder out, String text, int mergeCellCount) {
+        out.append (tableColHeaderCentred (text, mergeCellCount));
+    }
+
+    default void appendTableCell (StringBuilder out, String text, int mergeCellCount) {
+        out.append (tableCell (text, mergeCellCount));
+    }
+
+    default void appendTableCellPassthrough (StringBuilder out, String text, int mergeCellCount) {
+        out.append (tableCellPassthrough (text, mergeCellCount));
+    }
 }
@@ -0,0 +1,533 @@
+package org.openehr.adoc.magicdraw;
+
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Text formatting shared by the builders of ClassInfo objects, whatever the source of the
+ * model, i.e. the MagicDraw API or an XMI file. Uses no MagicDraw API; the model-specific
+ * builders extract names, types and multiplicities, and pass them in here.
+ */
+public abstract class InfoBuilderSupport extends UmlExporterDefinitions {
+
+    static String DOC_ERROR_DELIM = ".Errors";
+
+    // The following are names of attributes in the openEHR profile stereotypes
+    // <<Operator>> and <<Symbolic_operator>> respectively, which become UML 'tags'
+    // in the Operation elements to which those stereotypes are applied. These
+    // stereotypes have the effect of adding two possible meta-attributes, i.e.
+    // ops and sym_ops, both defined as List<String>, which may contain string
+    // names of operators (e.g. "+") to be associated with the operation (e.g. add()).
+    static List<String> stereotypeTagNames = Arrays.asList("ops", "sym_ops");
+
+    protected final Formatter formatter;
+
+    // parsed comments of the elements built so far, keyed by element; may be shared by the builders
+    // of an export, which all run on the thread building the export.
+    private final Map<Object, ParsedComment> parsedComments;
+
+    // interned package and qualified names; may be shared by the builders of an export
+    protected final SymbolTable symbolTable;
+
+    protected InfoBuilderSupport (Formatter formatter) {
+        this (formatter, new HashMap<>(), new SymbolTable());
+    }
+
+    /**
+     * @param parsedComments cache of parsed comments by element, e.g. shared by the builders of an export.
+     * @param symbolTable symbols of the export, in which package and qualified names are interned.
+     */
+    protected InfoBuilderSupport (Formatter formatter, Map<Object, ParsedComment> parsedComments, SymbolTable symbolTable) {
+        this.formatter = formatter;
+        this.parsedComments = parsedComments;
+        this.symbolTable = symbolTable;
+    }
+
+    protected Formatter getFormatter() {
+        return formatter;
+    }
+
+    /**
+     * Obtain the comments of an element split into documentation and error documentation, parsing
+     * them the first time they are asked for in the export.
+     * @param element model element.
+     * @param commentBodies function obtaining the bodies of the comments owned by an element.
+     */
+    protected <E> ParsedComment getParsedComment (E element, Function<E, List<String>> commentBodies) {
+        return parsedComments.computeIfAbsent (element, e -> ParsedComment.parse (commentBodies.apply (element), formatter));
+    }
+
+    /**
+     * Convert a UML style qualified type name to a type expression with fixed depth names, recording
+     * a ResolveType event; see resolveType().
+     */
+    TypeExpression convertToQualified (String umlQualifiedTypeName) {
+        ExporterEvents.ResolveType event = new ExporterEvents.ResolveType();
+        event.begin();
+        TypeExpression type = resolveType (umlQualifiedTypeName);
+        event.end();
+        if (event.shouldCommit()) {
+            event.umlTypeName = umlQualifiedTypeName;
+            event.generic = type instanceof TypeExpression.GenericType;
+            event.commit();
+        }
+        return type;
+    }
+
+    /**
+     * Convert a UML style qualified type name to a type expression with fixed depth names,
+     * resolving the actual parameters of a generic type from the model.
+     */
+    abstract TypeExpression resolveType (String umlQualifiedTypeName);
+
+    /**
+     * Format a constraint as its name, followed by the lines of its body, if it has one.
+     * @param name constraint name.
+     * @param bodyLines lines of an opaque expression body; empty if there is none.
+     */
+    protected String formatConstraint (String name, List<String> bodyLines) {
+        StringBuilder builder = new StringBuilder(formatter.italic(name)).append(": ");
+        boolean add = false;
+        for (String line : bodyLines) {
+            if (add)
+                builder.append(formatter.hardLineBreak());
+            builder.append(formatter.monospace(formatter.escape(line)));
+            add = true;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Add the pre- or post-condition constraints of an operation to the operation string,
+     * each on a new line; pre-conditions first, then post-conditions, then any others.
+     * @param signature signature of the operation so far built.
+     * @param constraintNames names of the constraints.
+     * @param formattedConstraints the constraints, formatted by formatConstraint(), in the same order.
+     */
+    protected void addOperationConstraints (Signature signature, List<String> constraintNames, List<String> formattedConstraints) {
+        StringBuilder constraintBuilder = new StringBuilder();
+
+        // Pre-conditions first; match by looking for leading "pre" (case-insensitive)
+        for (int i = 0; i < constraintNames.size(); i++) {
+            if (constraintNames.get(i).toLowerCase().startsWith("pre"))
+                constraintBuilder.append (formatter.hardLineBreak()).append(formattedConstraints.get(i));
+        }
+
+        // Post-conditions
+        for (int i = 0; i < constraintNames.size(); i++) {
+            if (constraintNames.get(i).toLowerCase().startsWith("post"))
+                constraintBuilder.append (formatter.hardLineBreak()).append(formattedConstraints.get(i));
+        }
+
+        // Any others
+        for (int i = 0; i < constraintNames.size(); i++) {
+            if (!constraintNames.get(i).toLowerCase().matches("(pre|post).*"))
+                constraintBuilder.append (formatter.hardLineBreak()).append(formattedConstraints.get(i));
+        }
+
+        // if there were any constraints, first output a blank line, then the constraints
+        if (constraintBuilder.length() > 0) {
+            signature.append (formatter.hardLineBreak());
+            signature.append (constraintBuilder.toString());
+        }
+    }
+
+    /**
+     * Format the operator aliases of an operation, from the tags of the <<Operator>> and
+     * <<Symbolic_operator>> stereotypes; see stereotypeTagNames.
+     * @param tagNames names of all tags of the operation.
+     * @param tagValues values of each tag in the same order; null for a tag that is not string-valued.
+     * @return e.g. " __alias__ +, plus", or an empty string if there are no aliases.
+     */
+    protected String formatOperatorAliases (List<String> tagNames, List<List<String>> tagValues) {
+        StringBuilder opAliasBuilder = new StringBuilder();
+        for (int i = 0; i < tagNames.size(); i++) {
+            List<String> values = tagValues.get(i);
+
+            // Here we check that the slot attribute name is one of the ones we want
+            if (stereotypeTagNames.contains(tagNames.get(i)) && values != null && !values.isEmpty()) {
+                // Now we know we have the operator tags, we can output the 'alias' line
+                // (Use the first variant to put it on a new line, plus uncomment the
+                // post-loop statement to add another NL)
+                // opSigBuilder.append(formatter.hardLineBreak() + formatter.italic("alias") + " ");
+                if (opAliasBuilder.length() == 0)
+                    opAliasBuilder.append(" " + formatter.italic("alias") + " ");
+
+                Iterator<String> valuesIt = values.iterator();
+                while (valuesIt.hasNext()) {
+                    String opStr = valuesIt.next();
+                    opAliasBuilder.append(formatter.escapeLiteral(opStr));
+                    if (i < tagNames.size() - 1 || valuesIt.hasNext())
+                        opAliasBuilder.append(", ");
+                }
+            }
+        }
+        return opAliasBuilder.toString();
+    }
+
+    /**
+     * Attach the default value of a property to its type: for a constant, as
+     * '=' + <default value>; else on a new line, as {default '=' + <default value>}.
+     * @param typeInfo type of the property.
+     * @param readOnly true if the property is a constant.
+     * @param valueText formatted default value; null if it cannot be formatted.
+     */
+    protected void addDefaultValue (Signature typeInfo, boolean readOnly, String valueText) {
+        if (!readOnly)
+            typeInfo.append(formatter.hardLineBreak()).append("{default");
+
+        if (valueText != null)
+            typeInfo.append("{nbsp}={nbsp}").append(valueText);
+
+        if (!readOnly)
+            typeInfo.append("}");
+    }
+
+    /**
+     * Format an attribute signature as its name, bolded, followed by any type information.
+     */
+    protected Signature formatAttributeSignature (String name, Signature typeInfo) {
+        Signature signature = new Signature().append(formatter.bold(name));
+        signature.append(": ");
+
+        // If there is any type information, append it
+        if (!typeInfo.isEmpty())
+            signature.append (typeInfo.format (formatter::monospace));
+        return signature;
+    }
+
+    /**
+     * Format the status of a feature in a class, e.g. "(redefined)".
+     */
+    protected String formatStatus (OperationStatus status) {
+        return status.toString().isEmpty()? "" : "(" + status + ")";
+    }
+
+    /**
+     * Add the descriptors of the attributes of a class, or of its constants, i.e. its read-only
+     * properties: first those it defines, then those it redefines, i.e. whose names it inherits.
+     * @param superClassProperties properties inherited by the class, keyed by name.
+     * @param constants true to add the read-only properties, false to add the others.
+     * @param buildProperty builds the descriptor of a property with its status in the class.
+     */
+    protected <P> void addProperties (List<ClassFeatureInfo> features, List<P> properties, Map<String, ?> superClassProperties, boolean constants,
+            Function<P, String> getName, Predicate<P> isReadOnly, BiFunction<P, OperationStatus, ClassFeatureInfo> buildProperty) {
+        for (P property : properties) {
+            if (!superClassProperties.containsKey (getName.apply (property)) && isReadOnly.test (property) == constants)
+                features.add (buildProperty.apply (property, OperationStatus.DEFINED));
+        }
+        for (P property : properties) {
+            if (superClassProperties.containsKey (getName.apply (property)) && isReadOnly.test (property) == constants)
+                features.add (buildProperty.apply (property, OperationStatus.REDEFINED));
+        }
+    }
+
+    /**
+     * Status of an operation in a class: effected if it implements an inherited abstract operation,
+     * redefined if it overrides any other inherited one, else abstract or defined.
+     * @param inheritedAbstract whether the inherited operation of the same name is abstract; null if none is inherited.
+     */
+    protected static OperationStatus operationStatus (boolean isAbstract, Boolean inheritedAbstract) {
+        if (inheritedAbstract != null)
+            return inheritedAbstract ? OperationStatus.EFFECTED : OperationStatus.REDEFINED;
+        return isAbstract ? OperationStatus.ABSTRACT : OperationStatus.DEFINED;
+    }
+
+    /**
+     * Build the descriptor of an attribute or constant.
+     * @param typeInfo type of the property, built by correctType(), with any default value added.
+     */
+    protected ClassFeatureInfo buildAttribute (String name, String documentation, OperationStatus status, Signature typeInfo, int lower, int upper) {
+        return buildFeature (documentation, status, formatAttributeSignature (name, typeInfo), lower, upper);
+    }
+
+    /**
+     * Build the descriptor of an operation.
+     * @param documentation documentation formatted by formatOperationDocumentation().
+     * @param signature signature formatted by formatOperationSignature().
+     * @param lower lower value of occurrences of the result.
+     * @param upper upper value of occurrences of the result.
+     */
+    protected ClassFeatureInfo buildOperation (String documentation, OperationStatus status, Signature signature, int lower, int upper) {
+        return buildFeature (documentation, status, signature, lower, upper);
+    }
+
+    private ClassFeatureInfo buildFeature (String documentation, OperationStatus status, Signature signature, int lower, int upper) {
+        return new ClassFeatureInfo()
+                .setDocumentation (documentation)
+                .setCardinality (formatSpecialOccurences (lower, upper))
+                .setStatus (formatStatus (status))
+                .setSignature (signature);
+    }
+
+    /**
+     * Format the documentation of an operation: its description, that of its parameters, and
+     * that of its errors.
+     * @param paramNames names of the signature parameters; null if the operation owns no parameters, not even a return parameter.
+     * @param paramComments documentation of each parameter, in the same order.
+     */
+    protected String formatOperationDocumentation (ParsedComment parsedComment, List<String> paramNames, List<String> paramComments) {
+        StringBuilder opDocBuilder = new StringBuilder(parsedComment.getDocumentation());
+        opDocBuilder.append(System.lineSeparator());
+
+        if (paramNames != null) {
+            opDocBuilder.append(System.lineSeparator());
+            addDocumentParameters(opDocBuilder, paramNames, paramComments);
+        }
+
+        String errStr = parsedComment.getErrorDocumentation();
+        if (!errStr.isEmpty()) {
+            opDocBuilder.append(System.lineSeparator())
+                .append (formatter.errorDelimiterLine())
+                .append (errStr)
+                .append (System.lineSeparator());
+        }
+        return opDocBuilder.toString();
+    }
+
+    /**
+     * Format the signature of an operation: its name, bolded, any operator aliases, its parameters,
+     * its return type in monospace, and its pre- and post-conditions.
+     * @param operatorAliases aliases formatted by formatOperatorAliases().
+     * @param formattedParameters parameters formatted by formatSignatureParameter(); null if the operation owns no parameters.
+     * @param returnType return type; null if there is none.
+     * @param lower lower value of occurrences of the result.
+     * @param upper upper value of occurrences of the result.
+     */
+    protected Signature formatOperationSignature (String name, String operatorAliases, List<Signature> formattedParameters,
+            TypeExpression returnType, int lower, int upper, List<String> constraintNames, List<String> formattedConstraints) {
+        Signature signature = new Signature().append(formatter.bold(name));
+        signature.append(operatorAliases);
+
+        if (formattedParameters != null)
+            addFormattedParameters(signature, formattedParameters);
+
+        if (returnType != null)
+            signature.append(": ").append(new Signature().append(correctType(returnType, null, null, lower, upper)).format(formatter::monospace));
+
+        addOperationConstraints(signature, constraintNames, formattedConstraints);
+        return signature;
+    }
+
+    /**
+     * Format a default value given by an instance, as the name of the instance.
+     * @param instanceName null if the instance has no name.
+     */
+    protected static String formatInstanceValue (String instanceName) {
+        return instanceName != null ? instanceName : "(unknown)";
+    }
+
+    /**
+     * Format an operation parameter for the operation signature.
+     * @param name parameter name.
+     * @param type type of the parameter; null if it has no type.
+     * @param lower lower value of occurrences.
+     * @param upper upper value of occurrences.
+     */
+    protected Signature formatSignatureParameter (String name, TypeExpression type, int lower, int upper) {
+        if (type == null)
+            return new Signature().append(name);
+
+        return new Signature().append(name + ": ").append(new Signature()
+                .append(correctType(type, null, null, lower, upper))
+                .append("[" + formatInlineOccurences (lower, upper) + ']')
+                .format(formatter::monospace));
+    }
+
+    /**
+     * Add the formatted parameters of an operation to the operation signature.
+     * @param signature signature of the operation so far built.
+     * @param formattedParameters parameters formatted by formatSignatureParameter().
+     */
+    protected void addFormattedParameters (Signature signature, List<Signature> formattedParameters) {
+        // if there are parameters, put them out on different lines, else just output "()"
+        if (!formattedParameters.isEmpty()) {
+            signature.append(" (").append(formatter.hardLineBreak());
+            for (int i = 0; i < formattedParameters.size(); i++) {
+                if (i > 0)
+                    signature.append("," + formatter.hardLineBreak());
+                signature.append(formattedParameters.get(i));
+            }
+            signature.append(formatter.hardLineBreak()).append(")");
+        }
+        else
+            signature.append(" ()");
+    }
+
+    /**
+     * Add the documentation of the parameters of an operation to the operation documentation.
+     * @param docBuilder string builder containing parameter documentation.
+     * @param paramNames names of the parameters.
+     * @param paramComments documentation of each parameter, in the same order; empty if it has none.
+     */
+    protected void addDocumentParameters (StringBuilder docBuilder, List<String> paramNames, List<String> paramComments) {
+        List<String> formattedParameters = new ArrayList<>();
+        for (int i = 0; i < paramNames.size(); i++) {
+            if (!paramComments.get(i).isEmpty())
+                formattedParameters.add(System.lineSeparator() + formatter.italicMonospace(paramNames.get(i))  + ":: " + paramComments.get(i));
+        }
+        if (!formattedParameters.isEmpty()) {
+            docBuilder.append (".Parameters");
+            docBuilder.append(formatter.hardLineBreak());
+            docBuilder.append ("[horizontal]");
+            docBuilder.append(String.join("\n", formattedParameters));
+        }
+    }
+
+    /**
+     * True if a parameter is shown in the signature and documentation of its operation, i.e. it is
+     * not the return parameter.
+     */
+    protected boolean isSignatureParameter (String paramName) {
+        return !"return".equals(paramName) && !paramName.isEmpty();
+    }
+
+    /**
+     * Build the type of an actual parameter of a bound generic type.
+     * @param umlQualifiedName UML qualified name of the actual parameter.
+     * @param name its simple name, used for a parameter that is not a class, e.g. a formal parameter.
+     * @param isClass whether the actual parameter is a class.
+     */
+    protected TypeExpression actualParameterType (String umlQualifiedName, String name, boolean isClass) {
+        if (umlQualifiedName.contains("<"))
+            return convertToQualified (umlQualifiedName);
+        else if (isClass)
+            return TypeExpression.named (packageQualifiedClassName(umlQualifiedName, UmlExportConfig.getInstance().getPackageDepth()));
+        else
+            return TypeExpression.named (name);
+    }
+
+    /**
+     * Build a bound generic type.
+     * @param qualifiedTypeName package-qualified name of the bound type, e.g. "org.openehr.rm.data_types.DV_INTERVAL&lt;DV_DATE&gt;".
+     * @param parameters types of its actual parameters, built by actualParameterType().
+     */
+    protected static TypeExpression boundType (String qualifiedTypeName, List<TypeExpression> parameters) {
+        return new TypeExpression.GenericType (TypeExpression.named (qualifiedTypeName.substring(0, qualifiedTypeName.indexOf("<"))), parameters);
+    }
+
+    /**
+     * Build the type of a feature, injecting a List<> wrapper where the multiplicity
+     * indicates a container, or a Hash<> wrapper where a named qualifier gives its key.
+     * @param type type of the feature.
+     * @param qualifierName name of the qualifier of the property, if any
+     * @param qualifierType type of the qualifier; null if there is no qualifier
+     * @param lower lower value of occurrences.
+     * @param upper upper value of occurrences.
+     */
+    protected TypeExpression correctType (TypeExpression type, String qualifierName, TypeExpression qualifierType, int lower, int upper) {
+        boolean container = upper == -1 || upper > 1;
+
+        // if there is no qualifier, output either the UML relation target type or List<target type>
+        if (qualifierType == null)
+            return container ? listOf (type) : type;
+
+        // if there is a qualifier, but with no name, the output type is either the UML
+        // qualifier type of List<qualifier type>
+        if (qualifierName == null || qualifierName.isEmpty())
+            return container ? listOf (qualifierType) : qualifierType;
+
+        // else if there is a qualifier name, it stands for a Hash key, and we output a Hash type sig
+        // This should only occur with multiple relationships.
+        return container
+                ? new TypeExpression.ContainerType (TypeExpression.named (symbolTable.intern (UmlExportConfig.getInstance().hashClassQualifiedName())), Arrays.asList (qualifierType, type))
+                : qualifierType;
+    }
+
+    private TypeExpression listOf (TypeExpression type) {
+        return new TypeExpression.ContainerType (TypeExpression.named (symbolTable.intern (UmlExportConfig.getInstance().listClassQualifiedName())), Collections.singletonList (type));
+    }
+
+    /**
+     * Format occurrences in the standard way.
+     * @param lower lower value of occurrences.
+     * @param upper upper value of occurrences.
+     */
+    protected String formatInlineOccurences(int lower, int upper) {
+        if (upper == -1)
+            return lower == 0 ? "0..1" : "1";
+        else
+            return lower == upper ? "" + lower : lower + ".." + upper;
+    }
+
+    /**
+     * Format occurrences in a way that accounts for 0..* in UML being represented as List<T>.
+     * @param lower lower value of occurrences.
+     * @param upper upper value of occurrences.
+     */
+    protected String formatSpecialOccurences(int lower, int upper) {
+        return upper == -1 ? lower + "..1" : lower + ".." + upper;
+    }
+
+    /**
+     * Extract package information from a string like
+     * "RM::org::openehr::rm::common
+     */
+    protected void setHierarchy (String umlQualifiedName, int pkgDepth, ClassInfo classInfo) {
+        String[] parts = umlQualifiedName.split ("::");
+        int depth = Math.min(parts.length, pkgDepth);
+        if (parts.length > depth) {
+            classInfo.setSpecComponent(symbolTable.intern (parts[0]));
+            classInfo.setClassPackage(symbolTable.intern (parts[depth]));
+
+            StringBuilder sb = new StringBuilder();
+            for (int i = 1; i < depth; i++)
+                sb.append('.').append (parts[i]);
+            classInfo.setComponentPackage(symbolTable.intern (sb.substring(1)));
+        }
+    }
+
+    /**
+     * Convert a UML style qualified class name string like
+     * "RM::org::openehr::rm::entity::physical_entity::...::class_name
+     * to a fixed depth form like org.openehr.rm.entity.class_name for pkgDepth = 4
+     */
+    protected String packageQualifiedClassName (String umlQualifiedName, int pkgDepth) {
+        String[] parts = umlQualifiedName.split ("::");
+        int depth = Math.min(parts.length, pkgDepth);
+        if (parts.length > depth) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 1; i <= depth; i++)
+                sb.append('.').append (parts[i]);
+            // now add the class name from the end
+            sb.append('.').append (parts[parts.length-1]);
+            return symbolTable.intern (sb.substring(1));
+        }
+        else
+            return symbolTable.intern (parts[parts.length-1]);
+    }
+
+    /**
+     * Merge the ClassInfo objects built for a model into the registry of all entities. Where a
+     * class or interface key occurs more than once, one in a component requested to publish is kept;
+     * enumerations always replace. Then add an override for the spec document of each, if it is
+     * different from the sub-package inferred from the package structure.
+     */
+    static void mergeEntities (EntityRegistry allEntities, List<ClassInfo> classes, List<ClassInfo> interfaces,
+                               List<ClassInfo> enumerations, Set<String> componentPackageNames) {
+        classes.forEach (classInfo -> {
+            ClassInfo registered = allEntities.get (classInfo.getClassKey());
+            if (registered == null || !matchesComponents (registered, componentPackageNames))
+                allEntities.put (classInfo);
+        });
+        interfaces.forEach (classInfo -> {
+            ClassInfo registered = allEntities.get (classInfo.getClassKey());
+            if (registered == null || !matchesComponents (registered, componentPackageNames))
+                allEntities.put (classInfo);
+        });
+        enumerations.forEach (allEntities::put);
+
+        // iterate through the whole lot and add an override for the spec document, if it is
+        // different from the sub-package inferred from the package structure
+        for (ClassInfo classInfo: allEntities.values())
+            if (classSpecMapExceptions.containsKey (classInfo.getClassPackage()))
+                classInfo.setSpecName (classSpecMapExceptions.get (classInfo.getClassPackage()));
+    }
+
+    // note: returns false for empty list - need to check for empty case before using this filter
+    private static boolean matchesComponents (ClassInfo classInfo, Set<String> componentPackageNames) {
+        return componentPackageNames.stream().anyMatch (cn -> classInfo.getSpecComponent().equalsIgnoreCase (cn));
+    }
+}
@@ -14,8 +14,9 @@ import java.util.function.Function;
  */
 public class InterfaceInfoBuilder extends AbstractInfoBuilder<Interface> {
 
-    public InterfaceInfoBuilder (Formatter formatter, Function<String, Class> getUMLClassByQualifiedName) {
-        super(formatter, getUMLClassByQualifiedName);
+    public InterfaceInfoBuilder (Formatter formatter, Function<String, Class> getUMLClassByQualifiedName, Map<Object, ParsedComment> parsedComments,
+                            SymbolTable symbolTable) {
+        super(formatter, getUMLClassByQualifiedName, parsedComments, symbolTable);
     }
 
     @Override
@@ -0,0 +1,155 @@
+package org.openehr.adoc.magicdraw;
+
+import com.nomagic.magicdraw.core.Application;
+import com.nomagic.magicdraw.core.Project;
+import com.nomagic.magicdraw.core.project.ProjectsManager;
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Runner of the exports listed in a ProjectManifest, in one MagicDraw session, so that the
+ * application starts once for all of them. Each project is closed once exported, so that heap use
+ * is bounded by the largest project rather than all of them. Exports are run in manifest order,
+ * one at a time, since MagicDraw has a single active project; a failed export is reported and the
+ * rest are still run. Relative paths in the manifest are resolved against its directory.
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class ManifestExporter {
+
+    private final Path manifestPath;
+
+    // timings and outcome of each export run
+    private final List<ExportTiming> exportTimings = new ArrayList<>();
+
+    /**
+     * Time taken to load, export and close one project of a manifest.
+     */
+    public static class ExportTiming {
+        private final String projectName;
+        private final long loadMillis;
+        private final long exportMillis;
+        private final long closeMillis;
+        private final boolean succeeded;
+
+        ExportTiming (String projectName, long loadMillis, long exportMillis, long closeMillis, boolean succeeded) {
+            this.projectName = projectName;
+            this.loadMillis = loadMillis;
+            this.exportMillis = exportMillis;
+            this.closeMillis = closeMillis;
+            this.succeeded = succeeded;
+        }
+
+        public String getProjectName() {
+            return projectName;
+        }
+
+        public long getLoadMillis() {
+            return loadMillis;
+        }
+
+        public long getExportMillis() {
+            return exportMillis;
+        }
+
+        public long getCloseMillis() {
+            return closeMillis;
+        }
+
+        public boolean isSucceeded() {
+            return succeeded;
+        }
+    }
+
+    public ManifestExporter (Path manifestPath) {
+        this.manifestPath = manifestPath;
+    }
+
+    /**
+     * Run the exports of the manifest, then print a table of their timings.
+     * @return true if all exports succeeded.
+     */
+    public boolean run() {
+        Path workingDir = manifestPath.toAbsolutePath().getParent();
+        for (ProjectManifest.Entry entry : ProjectManifest.read (manifestPath)) {
+            System.out.println("Manifest line " + entry.getLineNumber() + ": " + String.join (" ", entry.getArgs()));
+            runExport (entry, workingDir);
+        }
+        printTimings();
+        return exportTimings.stream().allMatch (ExportTiming::isSucceeded);
+    }
+
+    private void runExport (ProjectManifest.Entry entry, Path workingDir) {
+        String projectName = "line " + entry.getLineNumber();
+        long loadNanos = 0;
+        long exportNanos = 0;
+        long closeNanos = 0;
+        boolean succeeded = false;
+        Project project = null;
+        try {
+            // each export starts from the default configuration, so that no options carry over
+            UmlExportConfig.reset();
+            ExportJob job = new ExportJob (UmlExportConfig.getInstance(), workingDir, System.out);
+            job.parse (entry.getArgs().toArray (new String[0]));
+            if (job.getDaemonPort() >= 0 || job.getManifestFile() != null)
+                throw new UmlAdocExporterException ("--daemon and --manifest can't be used in a manifest!");
+            if (UmlExportConfig.getInstance().isArchiveToStdout())
+                throw new UmlAdocExporterException ("--archive - can't be used in a manifest!");
+
+            if (job.isHelpOnly())
+                succeeded = true;
+            else {
+                projectName = job.getProjectFile().getName();
+                ExportMetrics.Probe loadProbe = ExportMetrics.Probe.start();
+                project = UmlAdocExporterCommandLine.loadProject (job.getProjectFile());
+                loadNanos = loadProbe.stop().getWallNanos();
+
+                long startTime = System.nanoTime();
+                UmlAdocExporterCommandLine.exportProject (project, job, System.out, loadProbe);
+                exportNanos = System.nanoTime() - startTime;
+                succeeded = true;
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Error: " + e.getMessage());
+        } finally {
+            if (project != null) {
+                long startTime = System.nanoTime();
+                ProjectsManager projectsManager = Application.getInstance().getProjectsManager();
+                projectsManager.setActiveProject (project);
+                projectsManager.closeProjectNoSave();
+                closeNanos = System.nanoTime() - startTime;
+            }
+        }
+        exportTimings.add (new ExportTiming (projectName, loadNanos / 1_000_000, exportNanos / 1_000_000, closeNanos / 1_000_000, succeeded));
+    }
+
+    private void printTimings() {
+        int nameWidth = "Project".length();
+        for (ExportTiming exportTiming : exportTimings)
+            nameWidth = Math.max (nameWidth, exportTiming.getProjectName().length());
+
+        String rowFormat = "%-" + nameWidth + "s  %10s  %10s  %10s  %10s  %s%n";
+        System.out.println();
+        System.out.printf(rowFormat, "Project", "Load ms", "Export ms", "Close ms", "Total ms", "Status");
+        long loadTotal = 0;
+        long exportTotal = 0;
+        long closeTotal = 0;
+        for (ExportTiming exportTiming : exportTimings) {
+            System.out.printf(rowFormat, exportTiming.getProjectName(), exportTiming.getLoadMillis(), exportTiming.getExportMillis(),
+                    exportTiming.getCloseMillis(), exportTiming.getLoadMillis() + exportTiming.getExportMillis() + exportTiming.getCloseMillis(),
+                    exportTiming.isSucceeded() ? "ok" : "FAILED");
+            loadTotal += exportTiming.getLoadMillis();
+            exportTotal += exportTiming.getExportMillis();
+            closeTotal += exportTiming.getCloseMillis();
+        }
+        System.out.printf(rowFormat, "Total", loadTotal, exportTotal, closeTotal, loadTotal + exportTotal + closeTotal, "");
+    }
+
+    /**
+     * Timings and outcome of each export run, in manifest order.
+     */
+    public List<ExportTiming> getExportTimings() {
+        return exportTimings;
+    }
+}
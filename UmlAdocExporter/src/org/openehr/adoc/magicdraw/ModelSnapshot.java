@@ -0,0 +1,321 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Snapshot of a built model, i.e. the map of all ClassInfo objects with their features and
+ * constraints, saved to a compact versioned binary file, so that the class files and index can
+ * be rendered again, e.g. with another link template or heading level, without MagicDraw.
+ *
+ * The file is gzipped; each distinct string is written once, and referred to by index thereafter.
+ * Signatures are written as their template text followed by their type expressions.
+ * A snapshot of another format version is rejected rather than misread.
+ */
+public class ModelSnapshot {
+
+    // "UADS"
+    private static final int MAGIC = 0x55414453;
+    static final int FORMAT_VERSION = 4;
+
+    // string references: null, a new string that follows, or (REF_BASE + index) of a string already read
+    private static final int REF_NULL = 0;
+    private static final int REF_NEW = 1;
+    private static final int REF_BASE = 2;
+
+    // kinds of type expression node
+    private static final int TYPE_NAMED = 0;
+    private static final int TYPE_FORMAL_PARAMETER = 1;
+    private static final int TYPE_GENERIC = 2;
+    private static final int TYPE_CONTAINER = 3;
+
+    private final Set<String> componentPackageNames;
+    private final EntityRegistry allEntities;
+
+    private ModelSnapshot (Set<String> componentPackageNames, EntityRegistry allEntities) {
+        this.componentPackageNames = componentPackageNames;
+        this.allEntities = allEntities;
+    }
+
+    /**
+     * Component package names the model was built for, which decide between same-named classes.
+     */
+    public Set<String> getComponentPackageNames() {
+        return componentPackageNames;
+    }
+
+    /**
+     * Registry of all ClassInfo keyed by class key, as built.
+     */
+    public EntityRegistry getAllEntities() {
+        return allEntities;
+    }
+
+    /**
+     * Write a snapshot of a built model, replacing any existing file.
+     * @param snapshotPath file to write.
+     * @param componentPackageNames component package names the model was built for.
+     * @param classInfos all ClassInfo objects of the model.
+     */
+    public static void write (Path snapshotPath, Set<String> componentPackageNames, Collection<ClassInfo> classInfos) {
+        try (DataOutputStream out = new DataOutputStream (new BufferedOutputStream (new GZIPOutputStream (Files.newOutputStream (snapshotPath))))) {
+            new Encoder (out).writeModel (componentPackageNames, classInfos);
+        } catch (IOException e) {
+            throw new UmlAdocExporterException ("Unable to write to " + snapshotPath + '!', e);
+        }
+    }
+
+    /**
+     * Read a snapshot written by write().
+     * @param snapshotPath file to read.
+     * @exception UmlAdocExporterException if the file is not a snapshot of this format version.
+     */
+    public static ModelSnapshot read (Path snapshotPath) {
+        try (DataInputStream in = new DataInputStream (new BufferedInputStream (new GZIPInputStream (Files.newInputStream (snapshotPath))))) {
+            return new Decoder (in).readModel (snapshotPath);
+        } catch (IOException e) {
+            throw new UmlAdocExporterException ("Unable to read " + snapshotPath + '!', e);
+        }
+    }
+
+    private static class Encoder {
+        private final DataOutputStream out;
+        private final Map<String, Integer> stringIndexes = new HashMap<>();
+
+        Encoder (DataOutputStream out) {
+            this.out = out;
+        }
+
+        void writeModel (Set<String> componentPackageNames, Collection<ClassInfo> classInfos) throws IOException {
+            out.writeInt (MAGIC);
+            out.writeInt (FORMAT_VERSION);
+
+            writeCount (componentPackageNames.size());
+            for (String componentPackageName : componentPackageNames)
+                writeString (componentPackageName);
+
+            writeCount (classInfos.size());
+            for (ClassInfo classInfo : classInfos)
+                writeClass (classInfo);
+        }
+
+        private void writeClass (ClassInfo classInfo) throws IOException {
+            writeString (classInfo.getMetaType());
+            writeString (classInfo.getClassTypeName());
+            writeString (classInfo.getDocumentation());
+            writeString (classInfo.getSpecComponent());
+            writeString (classInfo.getComponentPackage());
+            writeString (classInfo.getClassPackage());
+            writeString (classInfo.getSpecName());
+            out.writeBoolean (classInfo.isAbstractClass());
+
+            writeCount (classInfo.getQualifiedParentClassNames().size());
+            for (String qualifiedParentClassName : classInfo.getQualifiedParentClassNames())
+                writeString (qualifiedParentClassName);
+
+            writeFeatures (classInfo.getAttributes());
+            writeFeatures (classInfo.getConstants());
+            writeFeatures (classInfo.getOperations());
+
+            writeCount (classInfo.getConstraints().size());
+            for (ConstraintInfo constraintInfo : classInfo.getConstraints())
+                writeString (constraintInfo.getDocumentation());
+        }
+
+        private void writeFeatures (List<ClassFeatureInfo> classFeatureInfos) throws IOException {
+            writeCount (classFeatureInfos.size());
+            for (ClassFeatureInfo classFeatureInfo : classFeatureInfos) {
+                writeString (classFeatureInfo.getCardinality());
+                writeString (classFeatureInfo.getStatus());
+                writeSignature (classFeatureInfo.getSignature());
+                writeString (classFeatureInfo.getDocumentation());
+            }
+        }
+
+        private void writeSignature (Signature signature) throws IOException {
+            writeString (signature.getTemplate());
+            writeCount (signature.getTypes().size());
+            for (TypeExpression type : signature.getTypes())
+                writeType (type);
+        }
+
+        private void writeType (TypeExpression type) throws IOException {
+            if (type instanceof TypeExpression.GenericType) {
+                TypeExpression.GenericType genericType = (TypeExpression.GenericType) type;
+                writeCount (TYPE_GENERIC);
+                writeType (genericType.getBase());
+                writeTypes (genericType.getParameters());
+            }
+            else if (type instanceof TypeExpression.ContainerType) {
+                TypeExpression.ContainerType containerType = (TypeExpression.ContainerType) type;
+                writeCount (TYPE_CONTAINER);
+                writeType (containerType.getContainer());
+                writeTypes (containerType.getParameters());
+            }
+            else {
+                writeCount (type instanceof TypeExpression.FormalParameter ? TYPE_FORMAL_PARAMETER : TYPE_NAMED);
+                writeString (type.getQualifiedName());
+            }
+        }
+
+        private void writeTypes (List<TypeExpression> types) throws IOException {
+            writeCount (types.size());
+            for (TypeExpression type : types)
+                writeType (type);
+        }
+
+        private void writeString (String s) throws IOException {
+            if (s == null) {
+                writeCount (REF_NULL);
+                return;
+            }
+
+            Integer index = stringIndexes.get (s);
+            if (index != null)
+                writeCount (REF_BASE + index);
+            else {
+                stringIndexes.put (s, stringIndexes.size());
+                byte[] bytes = s.getBytes (StandardCharsets.UTF_8);
+                writeCount (REF_NEW);
+                writeCount (bytes.length);
+                out.write (bytes);
+            }
+        }
+
+        // unsigned variable-length int, 7 bits per byte
+        private void writeCount (int n) throws IOException {
+            while ((n & ~0x7F) != 0) {
+                out.writeByte ((n & 0x7F) | 0x80);
+                n >>>= 7;
+            }
+            out.writeByte (n);
+        }
+    }
+
+    private static class Decoder {
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+
+        Decoder (DataInputStream in) {
+            this.in = in;
+        }
+
+        ModelSnapshot readModel (Path snapshotPath) throws IOException {
+            if (in.readInt() != MAGIC)
+                throw new UmlAdocExporterException ("Not a model snapshot: " + snapshotPath + '!');
+            int formatVersion = in.readInt();
+            if (formatVersion != FORMAT_VERSION)
+                throw new UmlAdocExporterException ("Model snapshot " + snapshotPath + " has format version " + formatVersion +
+                        " (expected " + FORMAT_VERSION + "); export it again!");
+
+            Set<String> componentPackageNames = new HashSet<>();
+            for (int i = readCount(); i > 0; i--)
+                componentPackageNames.add (readString());
+
+            EntityRegistry allEntities = new EntityRegistry (new SymbolTable());
+            for (int i = readCount(); i > 0; i--)
+                allEntities.put (readClass());
+            return new ModelSnapshot (componentPackageNames, allEntities);
+        }
+
+        private ClassInfo readClass() throws IOException {
+            ClassInfo classInfo = new ClassInfo (readString());
+            classInfo.setClassTypeName (readString());
+            classInfo.setDocumentation (readString());
+            classInfo.setSpecComponent (readString());
+            classInfo.setComponentPackage (readString());
+            classInfo.setClassPackage (readString());
+            String specName = readString();
+            if (!Objects.equals (specName, classInfo.getClassPackage()))
+                classInfo.setSpecName (specName);
+            classInfo.setAbstractClass (in.readBoolean());
+
+            for (int i = readCount(); i > 0; i--)
+                classInfo.addQualifiedParentClassName (readString());
+
+            readFeatures (classInfo.getAttributes());
+            readFeatures (classInfo.getConstants());
+            readFeatures (classInfo.getOperations());
+
+            for (int i = readCount(); i > 0; i--)
+                classInfo.getConstraints().add (new ConstraintInfo().setDocumentation (readString()));
+            return classInfo;
+        }
+
+        private void readFeatures (List<ClassFeatureInfo> classFeatureInfos) throws IOException {
+            for (int i = readCount(); i > 0; i--)
+                classFeatureInfos.add (new ClassFeatureInfo()
+                        .setCardinality (readString())
+                        .setStatus (readString())
+                        .setSignature (readSignature())
+                        .setDocumentation (readString()));
+        }
+
+        private Signature readSignature() throws IOException {
+            String template = readString();
+            return new Signature (template, readTypes());
+        }
+
+        private TypeExpression readType() throws IOException {
+            int kind = readCount();
+            switch (kind) {
+                case TYPE_NAMED:
+                    return new TypeExpression.NamedType (readString());
+                case TYPE_FORMAL_PARAMETER:
+                    return new TypeExpression.FormalParameter (readString());
+                case TYPE_GENERIC: {
+                    TypeExpression base = readType();
+                    return new TypeExpression.GenericType (base, readTypes());
+                }
+                case TYPE_CONTAINER: {
+                    TypeExpression container = readType();
+                    return new TypeExpression.ContainerType (container, readTypes());
+                }
+                default:
+                    throw new UmlAdocExporterException ("Invalid type expression kind " + kind + " in model snapshot!");
+            }
+        }
+
+        private List<TypeExpression> readTypes() throws IOException {
+            List<TypeExpression> types = new ArrayList<>();
+            for (int i = readCount(); i > 0; i--)
+                types.add (readType());
+            return types;
+        }
+
+        private String readString() throws IOException {
+            int ref = readCount();
+            if (ref == REF_NULL)
+                return null;
+            if (ref == REF_NEW) {
+                byte[] bytes = new byte[readCount()];
+                in.readFully (bytes);
+                String s = new String (bytes, StandardCharsets.UTF_8);
+                strings.add (s);
+                return s;
+            }
+            return strings.get (ref - REF_BASE);
+        }
+
+        private int readCount() throws IOException {
+            int n = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = in.readUnsignedByte();
+                n |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return n;
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.openehr.adoc.magicdraw;
+
+import com.nomagic.uml2.ext.magicdraw.classes.mdinterfaces.Interface;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Class;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Element;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Enumeration;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Namespace;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Package;
+
+/**
+ * Single-pass depth-first walk of a UML model containment tree, which hands each classifier
+ * to a visitor according to its meta-type. Only namespaces are descended into, since only
+ * namespaces can own classifiers.
+ *
+ * If a root package name is given, the walk is pruned: outside of packages whose qualified
+ * name contains the root package, only packages are descended into, so that large vendor
+ * or profile packages are not walked at all.
+ */
+public class ModelTraversal {
+
+    /**
+     * Receiver of the classifiers found in a traversal, in containment order.
+     */
+    public interface Visitor {
+        default void visitClass (Class umlClass) {}
+
+        default void visitInterface (Interface umlInterface) {}
+
+        default void visitEnumeration (Enumeration umlEnumeration) {}
+    }
+
+    // root package name to prune on; null for a full traversal
+    private final String rootPackageName;
+
+    private int visitedCount;
+    private int skippedCount;
+
+    /**
+     * Create a traversal that walks the whole containment tree.
+     */
+    public ModelTraversal() {
+        this (null);
+    }
+
+    /**
+     * Create a traversal that only walks the subtrees of packages within the root package.
+     * @param rootPackageName root package name, e.g. "openehr"; null for a full traversal.
+     */
+    public ModelTraversal (String rootPackageName) {
+        this.rootPackageName = rootPackageName;
+    }
+
+    /**
+     * Walk the containment tree under root (inclusive) and dispatch each classifier to visitor.
+     * @param root the root element, normally the primary model.
+     * @param visitor receiver of classifiers.
+     */
+    public void traverse (Element root, Visitor visitor) {
+        if (rootPackageName == null || root instanceof Package && isInRootPackage ((Package) root))
+            traverseAll (root, visitor);
+        else
+            traversePackages (root, visitor);
+    }
+
+    private void traverseAll (Element element, Visitor visitor) {
+        visitedCount++;
+        if (element instanceof Class)
+            visitor.visitClass ((Class) element);
+        else if (element instanceof Interface)
+            visitor.visitInterface ((Interface) element);
+        else if (element instanceof Enumeration)
+            visitor.visitEnumeration ((Enumeration) element);
+
+        if (element instanceof Namespace) {
+            for (Element ownedElement : element.getOwnedElement())
+                traverseAll (ownedElement, visitor);
+        }
+    }
+
+    // descend through packages only, until reaching the root package
+    private void traversePackages (Element element, Visitor visitor) {
+        visitedCount++;
+        for (Element ownedElement : element.getOwnedElement()) {
+            if (ownedElement instanceof Package) {
+                if (isInRootPackage ((Package) ownedElement))
+                    traverseAll (ownedElement, visitor);
+                else
+                    traversePackages (ownedElement, visitor);
+            }
+            else if (ownedElement instanceof Namespace)
+                skippedCount++;
+        }
+    }
+
+    // matches the test done on classifier qualified names, i.e. contains "<root>::"
+    private boolean isInRootPackage (Package umlPackage) {
+        return (umlPackage.getQualifiedName() + "::").contains (rootPackageName + "::");
+    }
+
+    /**
+     * Number of elements visited in all traversals so far.
+     */
+    public int getVisitedCount() {
+        return visitedCount;
+    }
+
+    /**
+     * Number of subtrees outside the root package that were not walked, i.e. namespaces other than
+     * packages, such as classes, owned by packages outside the root package. Elements within those
+     * subtrees are not counted, since they are never reached, nor are elements that own nothing.
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * True if the walk is pruned to the subtrees of packages within the root package.
+     */
+    public boolean isPruned() {
+        return rootPackageName != null;
+    }
+}
@@ -0,0 +1,69 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Destination of the files of an export: the class files, class index and diagrams. Files are
+ * given by their paths in the output folder, e.g. output_folder/classes/locatable.adoc; a sink
+ * either writes them there, or into an archive laid out as the folder would be.
+ * Files may be written from several threads at once.
+ */
+public interface OutputSink extends Closeable {
+
+    /**
+     * Writer of a file that can only be written to the file system, e.g. a diagram image
+     * written by the MagicDraw ImageExporter.
+     */
+    interface FileWriter {
+        void writeTo (File file) throws IOException;
+    }
+
+    /**
+     * Open the sink configured for an export: an archive if one is configured, else the output folder.
+     * @param exportConfig export settings.
+     * @param outputFolder output folder, or the folder the archive is laid out as.
+     */
+    static OutputSink open (UmlExportConfig exportConfig, File outputFolder) {
+        File archiveFile = exportConfig.getArchiveFile();
+        if (archiveFile == null)
+            return new DirectoryOutputSink();
+
+        Path root = outputFolder.toPath();
+        try {
+            if (exportConfig.isArchiveToStdout())
+                return new TarOutputSink (root);
+            if (archiveFile.getName().toLowerCase().endsWith (".tar"))
+                return new TarOutputSink (root, new FileOutputStream (archiveFile));
+            return new ZipOutputSink (root, new FileOutputStream (archiveFile));
+        } catch (IOException e) {
+            throw new UmlAdocExporterException ("Unable to create archive " + archiveFile + '!', e);
+        }
+    }
+
+    /**
+     * @return true if files are written to the output folder, where those of a previous export
+     * can be compared, listed and removed, e.g. in incremental mode.
+     */
+    boolean isFolder();
+
+    /**
+     * Create a folder of the output, if the sink writes files to folders.
+     */
+    void createFolder (Path folder) throws IOException;
+
+    /**
+     * Write a file, replacing any existing one.
+     */
+    void write (Path path, byte[] content) throws IOException;
+
+    /**
+     * Write a file with a writer of files on the file system.
+     */
+    void write (Path path, FileWriter fileWriter) throws IOException;
+}
@@ -0,0 +1,62 @@
+package org.openehr.adoc.magicdraw;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Text of the comments owned by a model element, split once into the documentation and the
+ * error documentation, which follows a line ".Errors". Builders keep one per element for the
+ * export; see InfoBuilderSupport.getParsedComment().
+ */
+public class ParsedComment {
+
+    static final ParsedComment EMPTY = new ParsedComment ("", "");
+
+    private final String documentation;
+    private final String errorDocumentation;
+
+    private ParsedComment (String documentation, String errorDocumentation) {
+        this.documentation = documentation;
+        this.errorDocumentation = errorDocumentation;
+    }
+
+    /**
+     * Parse the bodies of the comments owned by an element, escaping each line by formatter.escape().
+     */
+    @SuppressWarnings("HardcodedLineSeparator")
+    static ParsedComment parse (List<String> commentBodies, Formatter formatter) {
+        if (commentBodies.isEmpty())
+            return EMPTY;
+
+        List<String> documentationLines = new ArrayList<>();
+        List<String> errorLines = new ArrayList<>();
+        boolean inErrors = false;
+        for (String body : commentBodies) {
+            for (String line : body.split ("\n")) {
+                line = formatter.escape (line);
+                if (inErrors)
+                    errorLines.add (line);
+                else if (line.equalsIgnoreCase (InfoBuilderSupport.DOC_ERROR_DELIM))
+                    inErrors = true;
+                else
+                    documentationLines.add (line);
+            }
+        }
+        return new ParsedComment (String.join (System.lineSeparator(), documentationLines),
+                String.join (System.lineSeparator(), errorLines));
+    }
+
+    /**
+     * Comment text, without any section starting with the line ".Errors".
+     */
+    public String getDocumentation() {
+        return documentation;
+    }
+
+    /**
+     * Comment text following the line ".Errors"; an empty string if there is none.
+     */
+    public String getErrorDocumentation() {
+        return errorDocumentation;
+    }
+}
@@ -0,0 +1,94 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Manifest of the exports run by uml_generate --manifest: a text file giving the command-line
+ * arguments of one export per line, e.g.
+ * <pre>
+ *   # openEHR RM
+ *   -d svg -p 4 -r openehr -q -c RM -o RM/docs/UML "computable/UML/openEHR_UML-RM.mdzip"
+ * </pre>
+ * Arguments are separated by white space, and may be enclosed in double quotes; blank lines and
+ * lines starting with '#' are ignored.
+ */
+class ProjectManifest {
+
+    /**
+     * Arguments of one export, and the line of the manifest giving them.
+     */
+    static class Entry {
+        private final int lineNumber;
+        private final List<String> args;
+
+        private Entry (int lineNumber, List<String> args) {
+            this.lineNumber = lineNumber;
+            this.args = args;
+        }
+
+        int getLineNumber() {
+            return lineNumber;
+        }
+
+        List<String> getArgs() {
+            return args;
+        }
+    }
+
+    /**
+     * Read the entries of a manifest, in order.
+     */
+    static List<Entry> read (Path manifestPath) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines (manifestPath, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UmlAdocExporterException ("Unable to read manifest " + manifestPath + '!', e);
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get (i).trim();
+            if (!line.isEmpty() && !line.startsWith ("#"))
+                entries.add (new Entry (i + 1, splitArguments (line, i + 1)));
+        }
+        return entries;
+    }
+
+    // split a line into arguments at white space outside of double quotes
+    private static List<String> splitArguments (String line, int lineNumber) {
+        List<String> args = new ArrayList<>();
+        StringBuilder arg = null;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt (i);
+            if (c == '"') {
+                quoted = !quoted;
+                if (arg == null)
+                    arg = new StringBuilder();
+            }
+            else if (Character.isWhitespace (c) && !quoted) {
+                if (arg != null) {
+                    args.add (arg.toString());
+                    arg = null;
+                }
+            }
+            else {
+                if (arg == null)
+                    arg = new StringBuilder();
+                arg.append (c);
+            }
+        }
+        if (quoted)
+            throw new UmlAdocExporterException ("Unterminated quote in manifest line " + lineNumber + '!');
+        if (arg != null)
+            args.add (arg.toString());
+        return args;
+    }
+}
@@ -0,0 +1,89 @@
+package org.openehr.adoc.magicdraw;
+
+import com.nomagic.magicdraw.core.Project;
+import com.nomagic.magicdraw.uml.Finder;
+import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Class;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index of UML classes keyed by UML qualified name (e.g. "RM::org::openehr::rm::...::DV_INTERVAL<DV_DATE>"),
+ * filled in during the single walk of the model containment tree at the start of an export. Lookups
+ * that miss the index fall back to the MD qualified name Finder, and are counted, so that
+ * the coverage of the index can be checked. The classes the Finder finds are recorded by name: they
+ * are outside the walked packages, e.g. template arguments bound to classes outside the root
+ * package when the walk is pruned.
+ */
+public class QualifiedNameIndex {
+
+    private final Map<String, Class> classesByQualifiedName = new HashMap<>();
+
+    private final Project project;
+    private final Finder.ByQualifiedNameFinder umlQualifiedNameFinder = Finder.byQualifiedName();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    // UML qualified names of the classes found by the Finder, i.e. not in the index
+    private final Set<String> finderFoundNames = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create an empty index for the classes of a project.
+     * @param project MD descriptor for a project; used for Finder fallback lookups.
+     */
+    public QualifiedNameIndex (Project project) {
+        this.project = project;
+    }
+
+    /**
+     * Add a class to the index; the first class found for a given qualified name is retained.
+     * @param umlClass UML class.
+     */
+    public void add (Class umlClass) {
+        classesByQualifiedName.putIfAbsent (umlClass.getQualifiedName(), umlClass);
+    }
+
+    /**
+     * Find a class by UML qualified name, falling back to a Finder search if it is not in the index.
+     * @param umlQualifiedName UML qualified name of a class.
+     * @return the class, or null if not found.
+     */
+    public Class find (String umlQualifiedName) {
+        Class umlClass = classesByQualifiedName.get (umlQualifiedName);
+        if (umlClass != null) {
+            hitCount.incrementAndGet();
+            return umlClass;
+        }
+
+        missCount.incrementAndGet();
+        umlClass = umlQualifiedNameFinder.find (project, umlQualifiedName);
+        if (umlClass != null)
+            finderFoundNames.add (umlQualifiedName);
+        return umlClass;
+    }
+
+    public int size() {
+        return classesByQualifiedName.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * UML qualified names of the classes that missed the index but were found by the Finder, sorted.
+     */
+    public SortedSet<String> getFinderFoundNames() {
+        return new TreeSet<>(finderFoundNames);
+    }
+}
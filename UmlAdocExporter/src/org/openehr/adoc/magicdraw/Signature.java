@@ -0,0 +1,91 @@
+package org.openehr.adoc.magicdraw;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Signature of a class feature: formatted text, with a TypeExpression at each place a type goes.
+ * The text is kept as a template in which each type is marked by TYPE_MARK, so that formatting
+ * such as monospace or a table cell can be applied to the whole signature, and the types rendered
+ * into the result afterwards; see ClassDocumentPublisher.
+ */
+public class Signature {
+
+    // marks the place of a type in the template; the Unicode object replacement character
+    static final char TYPE_MARK = '\uFFFC';
+
+    private final StringBuilder template;
+    private final List<TypeExpression> types;
+
+    public Signature() {
+        template = new StringBuilder();
+        types = new ArrayList<>();
+    }
+
+    Signature (String template, List<TypeExpression> types) {
+        this.template = new StringBuilder (template);
+        this.types = new ArrayList<>(types);
+    }
+
+    /**
+     * Append text; any TYPE_MARK in it is replaced by the Unicode replacement character.
+     */
+    public Signature append (String text) {
+        template.append (text.replace (TYPE_MARK, '\uFFFD'));
+        return this;
+    }
+
+    public Signature append (TypeExpression type) {
+        template.append (TYPE_MARK);
+        types.add (type);
+        return this;
+    }
+
+    public Signature append (Signature signature) {
+        template.append (signature.template);
+        types.addAll (signature.types);
+        return this;
+    }
+
+    /**
+     * Apply a formatting to the text of the signature, e.g. Formatter.monospace(); the formatting
+     * must keep each TYPE_MARK.
+     */
+    public Signature format (UnaryOperator<String> formatting) {
+        return new Signature (formatting.apply (template.toString()), types);
+    }
+
+    public boolean isEmpty() {
+        return template.length() == 0;
+    }
+
+    /**
+     * Text of the signature, with TYPE_MARK at the place of each type.
+     */
+    public String getTemplate() {
+        return template.toString();
+    }
+
+    /**
+     * Types of the signature, in the order of their marks in the template.
+     */
+    public List<TypeExpression> getTypes() {
+        return Collections.unmodifiableList (types);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        int typeIndex = 0;
+        for (int i = 0; i < template.length(); i++) {
+            char c = template.charAt (i);
+            if (c == TYPE_MARK)
+                sb.append (types.get (typeIndex++).getQualifiedName());
+            else
+                sb.append (c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,117 @@
+package org.openehr.adoc.magicdraw;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Symbols of an export: interned package, component and qualified names, so that each is held
+ * once however many classes and features refer to it, and a dense integer id for each class key,
+ * e.g. org.openehr.rm.common.LOCATABLE, by which an EntityRegistry holds its classes. Class keys
+ * are matched ignoring case.
+ * <p>
+ * Strings are interned as the entities are built, and class ids assigned as they are merged, on the
+ * one thread building the export, before any lookup from the threads rendering the documents.
+ */
+public class SymbolTable {
+
+    private static final int NO_ID = -1;
+
+    // interned strings
+    private final Map<String, String> strings = new HashMap<>();
+
+    // class keys by id
+    private String[] classKeys = new String[64];
+    private int classCount;
+
+    // open-addressed hash table of class ids, hashed on the class key ignoring case; NO_ID if empty
+    private int[] classSlots = newSlots (128);
+
+    /**
+     * Obtain the single instance of a string held by the table.
+     * @return null if the string is null.
+     */
+    public String intern (String s) {
+        if (s == null)
+            return null;
+        String existing = strings.putIfAbsent (s, s);
+        return existing == null ? s : existing;
+    }
+
+    /**
+     * Obtain the id of a class key, assigning the next id if it is new.
+     */
+    public int classId (String classKey) {
+        int slot = findSlot (classKey);
+        if (classSlots[slot] != NO_ID)
+            return classSlots[slot];
+
+        if (classCount == classKeys.length)
+            classKeys = Arrays.copyOf (classKeys, classCount * 2);
+        int id = classCount++;
+        classKeys[id] = intern (classKey);
+        classSlots[slot] = id;
+        if (classCount * 2 > classSlots.length)
+            rehash();
+        return id;
+    }
+
+    /**
+     * @return the id of a class key, or -1 if it has none.
+     */
+    public int findClassId (String classKey) {
+        return classSlots[findSlot (classKey)];
+    }
+
+    /**
+     * Class key of an id, as first given to classId().
+     */
+    public String getClassKey (int id) {
+        return classKeys[id];
+    }
+
+    /**
+     * Number of class ids assigned; ids are 0 up to this.
+     */
+    public int getClassCount() {
+        return classCount;
+    }
+
+    // slot of a class key, or the empty slot where it would go
+    private int findSlot (String classKey) {
+        int mask = classSlots.length - 1;
+        int slot = hashIgnoreCase (classKey) & mask;
+        while (classSlots[slot] != NO_ID && !classKeys[classSlots[slot]].equalsIgnoreCase (classKey))
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void rehash() {
+        int[] oldSlots = classSlots;
+        classSlots = newSlots (oldSlots.length * 2);
+        int mask = classSlots.length - 1;
+        for (int id : oldSlots) {
+            if (id != NO_ID) {
+                int slot = hashIgnoreCase (classKeys[id]) & mask;
+                while (classSlots[slot] != NO_ID)
+                    slot = (slot + 1) & mask;
+                classSlots[slot] = id;
+            }
+        }
+    }
+
+    private static int[] newSlots (int size) {
+        int[] slots = new int[size];
+        Arrays.fill (slots, NO_ID);
+        return slots;
+    }
+
+    // hash equal for strings equal by String.equalsIgnoreCase(), which folds each character to
+    // upper and then lower case
+    private static int hashIgnoreCase (String s) {
+        int h = 0;
+        for (int i = 0; i < s.length(); i++)
+            h = 31 * h + Character.toLowerCase (Character.toUpperCase (s.charAt (i)));
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,135 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Sink writing the files of an export as a ustar (POSIX tar) stream, e.g. to stdout for piping
+ * into the site build; see ArchiveOutputSink. While a stream to stdout is open, System.out is
+ * redirected to System.err, so that messages of the export don't corrupt the archive. The archive
+ * is written to the stdout file descriptor, not to System.out, since a PrintStream swallows write
+ * errors, e.g. of a closed pipe, which would leave a truncated archive unreported.
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class TarOutputSink extends ArchiveOutputSink {
+
+    private static final int BLOCK_SIZE = 512;
+    private static final int NAME_LENGTH = 100;
+    private static final int PREFIX_LENGTH = 155;
+
+    private final OutputStream tarStream;
+
+    // System.out before it was redirected; null if the stream is not stdout
+    private final PrintStream stdout;
+
+    /**
+     * Sink writing the archive to a stream, e.g. a file.
+     * @param root folder the archive is laid out as.
+     * @param out stream to write the archive to; closed with the sink.
+     */
+    public TarOutputSink (Path root, OutputStream out) {
+        super(root);
+        this.tarStream = new BufferedOutputStream (out, 1 << 16);
+        this.stdout = null;
+    }
+
+    /**
+     * Sink writing the archive to stdout, which is left open.
+     * @param root folder the archive is laid out as.
+     */
+    public TarOutputSink (Path root) {
+        super(root);
+        this.tarStream = new BufferedOutputStream (new FileOutputStream (FileDescriptor.out), 1 << 16);
+        this.stdout = System.out;
+        System.setOut (System.err);
+    }
+
+    @Override
+    protected void writeEntry (String name, byte[] content) throws IOException {
+        tarStream.write (header (name, content.length));
+        tarStream.write (content);
+        tarStream.write (new byte[padding (content.length)]);
+    }
+
+    // header block of a regular file entry
+    private byte[] header (String name, int size) {
+        byte[] header = new byte[BLOCK_SIZE];
+        byte[] nameBytes = name.getBytes (StandardCharsets.UTF_8);
+
+        // a name too long for the name field is split at a '/' into a prefix and a name
+        int split = 0;
+        if (nameBytes.length > NAME_LENGTH) {
+            for (int i = nameBytes.length - NAME_LENGTH - 1; i < nameBytes.length && split == 0; i++)
+                if (i >= 0 && nameBytes[i] == '/' && i <= PREFIX_LENGTH)
+                    split = i;
+            if (split == 0)
+                throw new UmlAdocExporterException ("File name " + name + " is too long for a tar archive!");
+            System.arraycopy (nameBytes, 0, header, 345, split);
+            System.arraycopy (nameBytes, split + 1, header, 0, nameBytes.length - split - 1);
+        }
+        else
+            System.arraycopy (nameBytes, 0, header, 0, nameBytes.length);
+
+        putOctal (header, 100, 8, 0644);                    // mode
+        putOctal (header, 108, 8, 0);                       // uid
+        putOctal (header, 116, 8, 0);                       // gid
+        putOctal (header, 124, 12, size);
+        putOctal (header, 136, 12, entryTime / 1000);       // mtime
+        header[156] = '0';                                  // regular file
+        putAscii (header, 257, "ustar\0" + "00");           // magic and version
+
+        // the checksum is summed with its own field as spaces
+        for (int i = 148; i < 156; i++)
+            header[i] = ' ';
+        long checksum = 0;
+        for (byte b : header)
+            checksum += b & 0xff;
+        putOctal (header, 148, 7, checksum);
+        return header;
+    }
+
+    // a field of octal digits, zero-padded, ending in NUL
+    private static void putOctal (byte[] header, int offset, int length, long value) {
+        String digits = Long.toOctalString (value);
+        putAscii (header, offset, "0".repeat (length - 1 - digits.length()) + digits);
+        header[offset + length - 1] = 0;
+    }
+
+    private static void putAscii (byte[] header, int offset, String text) {
+        byte[] bytes = text.getBytes (StandardCharsets.US_ASCII);
+        System.arraycopy (bytes, 0, header, offset, bytes.length);
+    }
+
+    // bytes to fill the last block of an entry
+    private static int padding (int size) {
+        return (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE;
+    }
+
+    /**
+     * End the archive with two empty blocks.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (stdout == null) {
+            try (OutputStream out = tarStream) {
+                out.write (new byte[2 * BLOCK_SIZE]);
+            }
+        }
+        else {
+            try {
+                tarStream.write (new byte[2 * BLOCK_SIZE]);
+                tarStream.flush();
+            } finally {
+                System.setOut (stdout);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.openehr.adoc.magicdraw;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Type of a feature in a signature, as a tree of qualified type names, e.g.
+ * Hash&lt;String, List&lt;DV_INTERVAL&lt;DV_DATE&gt;&gt;&gt;. Built once per feature by the
+ * info builders, and rendered to links by a Visitor in ClassDocumentPublisher, so that type
+ * names are never quoted into text and parsed back out.
+ */
+public abstract class TypeExpression {
+
+    /**
+     * Visitor of the nodes of a type expression.
+     */
+    public interface Visitor {
+        void visitNamedType (NamedType namedType);
+        void visitFormalParameter (FormalParameter formalParameter);
+        void visitGenericType (GenericType genericType);
+        void visitContainerType (ContainerType containerType);
+    }
+
+    /**
+     * Build the node for a qualified type name, i.e. pkg.pkg.pkg.name: a formal generic parameter if
+     * the name is a single letter, else a named type.
+     */
+    public static TypeExpression named (String qualifiedName) {
+        return qualifiedName.lastIndexOf('.') + 2 == qualifiedName.length()
+                ? new FormalParameter (qualifiedName)
+                : new NamedType (qualifiedName);
+    }
+
+    public abstract void accept (Visitor visitor);
+
+    /**
+     * The type as a qualified type name, e.g. org.openehr.rm.data_types.DV_INTERVAL&lt;org.openehr.rm.data_types.DV_DATE&gt;
+     */
+    public abstract String getQualifiedName();
+
+    @Override
+    public String toString() {
+        return getQualifiedName();
+    }
+
+    /**
+     * Type given by its qualified name, e.g. a class or primitive type.
+     */
+    public static class NamedType extends TypeExpression {
+        private final String qualifiedName;
+
+        NamedType (String qualifiedName) {
+            this.qualifiedName = qualifiedName;
+        }
+
+        @Override
+        public void accept (Visitor visitor) {
+            visitor.visitNamedType (this);
+        }
+
+        @Override
+        public String getQualifiedName() {
+            return qualifiedName;
+        }
+    }
+
+    /**
+     * Formal generic parameter, e.g. T; never linked.
+     */
+    public static class FormalParameter extends TypeExpression {
+        private final String qualifiedName;
+
+        FormalParameter (String qualifiedName) {
+            this.qualifiedName = qualifiedName;
+        }
+
+        @Override
+        public void accept (Visitor visitor) {
+            visitor.visitFormalParameter (this);
+        }
+
+        @Override
+        public String getQualifiedName() {
+            return qualifiedName;
+        }
+
+        /**
+         * Name of the parameter without its qualifiers, e.g. "T".
+         */
+        public String getName() {
+            return qualifiedName.substring (qualifiedName.lastIndexOf('.') + 1);
+        }
+    }
+
+    /**
+     * Generic class of the model applied to actual parameters, e.g. DV_INTERVAL&lt;DV_DATE&gt;.
+     */
+    public static class GenericType extends TypeExpression {
+        private final TypeExpression base;
+        private final List<TypeExpression> parameters;
+
+        public GenericType (TypeExpression base, List<TypeExpression> parameters) {
+            this.base = base;
+            this.parameters = Collections.unmodifiableList (parameters);
+        }
+
+        @Override
+        public void accept (Visitor visitor) {
+            visitor.visitGenericType (this);
+        }
+
+        @Override
+        public String getQualifiedName() {
+            return base.getQualifiedName() + parameters.stream().map (TypeExpression::getQualifiedName).collect (Collectors.joining (", ", "<", ">"));
+        }
+
+        public TypeExpression getBase() {
+            return base;
+        }
+
+        public List<TypeExpression> getParameters() {
+            return parameters;
+        }
+    }
+
+    /**
+     * List or Hash container synthesised from the multiplicity and qualifier of a feature, e.g.
+     * List&lt;ITEM&gt; or Hash&lt;String,ITEM&gt;.
+     */
+    public static class ContainerType extends TypeExpression {
+        private final TypeExpression container;
+        private final List<TypeExpression> parameters;
+
+        public ContainerType (TypeExpression container, List<TypeExpression> parameters) {
+            this.container = container;
+            this.parameters = Collections.unmodifiableList (parameters);
+        }
+
+        @Override
+        public void accept (Visitor visitor) {
+            visitor.visitContainerType (this);
+        }
+
+        @Override
+        public String getQualifiedName() {
+            return container.getQualifiedName() + parameters.stream().map (TypeExpression::getQualifiedName).collect (Collectors.joining (",", "<", ">"));
+        }
+
+        public TypeExpression getContainer() {
+            return container;
+        }
+
+        public List<TypeExpression> getParameters() {
+            return parameters;
+        }
+    }
+}
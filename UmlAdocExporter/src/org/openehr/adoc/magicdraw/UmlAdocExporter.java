@@ -2,24 +2,23 @@ package org.openehr.adoc.magicdraw;
 
 import com.nomagic.magicdraw.core.Project;
 import com.nomagic.magicdraw.export.image.ImageExporter;
-import com.nomagic.magicdraw.uml.Finder;
 import com.nomagic.magicdraw.uml.symbols.DiagramPresentationElement;
 import com.nomagic.uml2.ext.magicdraw.classes.mdinterfaces.Interface;
 import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Class;
-import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Element;
 import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Enumeration;
 import com.nomagic.uml2.ext.magicdraw.classes.mdkernel.NamedElement;
 import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -29,26 +28,51 @@ import java.util.stream.Collectors;
  */
 public class UmlAdocExporter {
 
-    private static final String ADOC_FILE_EXTENSION = ".adoc";
-
     private static final String DIAGRAMS_FOLDER = "diagrams";
-    private static final String CLASSES_FOLDER = "classes";
-
-    // component, release, html file, subref classname + type, description
-    private static final String INDEX_LINK_FORMAT = "[.xcode]\n* %s\n";
 
     private final Formatter formatter = new AsciidocFormatter();
     private final UmlExportConfig exportConfig;
 
 
-    // map of all ClassInfo keyed by class key
-    private final Map<String, ClassInfo> allEntitiesMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    // symbols of the current export, and the registry of all ClassInfo keyed by class key
+    private SymbolTable symbolTable;
+    private EntityRegistry allEntities;
+
+    // single-pass walk of the model containment tree
+    private ModelTraversal modelTraversal;
 
-    private Finder.ByTypeRecursivelyFinder umlElementsFinder;
-    private Finder.ByQualifiedNameFinder umlQualifiedNameFinder;
+    // names of requested components not found as packages in the model
+    private List<String> unresolvedComponentNames = new ArrayList<>();
+
+    // index of UML classes by UML qualified name, built at the start of each export
+    private QualifiedNameIndex qualifiedNameIndex;
 
     private Project project;
 
+    // pool for rendering class descriptors during an export; null if single-threaded
+    private ForkJoinPool workerPool;
+
+    // ClassInfo objects built from the model, in model order, before merging
+    private List<ClassInfo> classes;
+    private List<ClassInfo> interfaces;
+    private List<ClassInfo> enumerations;
+
+    // counts of class and index documents written, skipped as unchanged, and removed as orphans
+    // in the last export, over all output folders
+    private int documentsWrittenCount;
+    private int documentsUnchangedCount;
+    private int orphansRemovedCount;
+
+    // number of diagrams not exported in the last export because they were unchanged
+    private int diagramsSkippedCount;
+
+    // diagram export timings, added to by the diagram rendering thread
+    private final List<DiagramTiming> diagramTimings = new CopyOnWriteArrayList<>();
+
+    // metrics of each phase of the last export, and the probe around the loading of its model, if given
+    private ExportMetrics exportMetrics = new ExportMetrics();
+    private ExportMetrics.Probe modelLoadProbe;
+
     public UmlAdocExporter()
     {
         this.exportConfig = UmlExportConfig.getInstance();
@@ -61,67 +85,180 @@ public class UmlAdocExporter {
      * @exception IOException on fail to write to file.
      */
     public void exportProject(File outputFolder, Project project) throws Exception {
-        File classesFolder = new File(outputFolder, CLASSES_FOLDER);
-        if (!classesFolder.exists()) {
-            if (!classesFolder.mkdir()) {
-                throw new UmlAdocExporterException("Unable to create folder: " + classesFolder);
-            }
-        }
+        exportComponents (Collections.singletonMap (outputFolder, exportConfig.getComponentPackageNames()), project);
+    }
 
+    /**
+     * Export sets of components of a UML project, each to its own folder, building the model once.
+     * Each folder receives the same files as an export of its components alone.
+     * @param componentsByOutputFolder names of the components to publish, by the directory in which
+     *                                 to write their files; all components if a set is empty.
+     * @param project MD descriptor for a project.
+     */
+    public void exportComponents (Map<File, Set<String>> componentsByOutputFolder, Project project) throws Exception {
         // Save the project reference
         this.project = project;
+        documentsWrittenCount = 0;
+        documentsUnchangedCount = 0;
+        orphansRemovedCount = 0;
+        diagramsSkippedCount = 0;
+        diagramTimings.clear();
+        exportMetrics = new ExportMetrics();
+        if (modelLoadProbe != null)
+            exportMetrics.phase ("model load").end (modelLoadProbe);
+
+        Set<String> allComponentPackageNames = new LinkedHashSet<>();
+        componentsByOutputFolder.values().forEach (allComponentPackageNames::addAll);
+        if (exportConfig.getArchiveFile() != null && componentsByOutputFolder.size() > 1)
+            throw new UmlAdocExporterException ("An archive can only be written for one output folder!");
+        if (exportConfig.getArchiveFile() != null && exportConfig.isIncremental())
+            throw new UmlAdocExporterException ("An archive can't be written incrementally!");
+
+        // If more than one thread is configured, class descriptors are rendered on a pool
+        workerPool = exportConfig.getThreads() > 1 ? new ForkJoinPool (exportConfig.getThreads()) : null;
+        try {
+            buildEntities (project, allComponentPackageNames);
 
-        // Get a Finder object
-        umlElementsFinder = Finder.byTypeRecursively();
-        umlQualifiedNameFinder = Finder.byQualifiedName();
+            // save the built model, so that the output can be rendered again without MagicDraw
+            if (exportConfig.getSnapshotFile() != null) {
+                ExportMetrics.Probe probe = ExportMetrics.Probe.start();
+                ModelSnapshot.write (exportConfig.getSnapshotFile().toPath(), allComponentPackageNames, allEntities.values());
+                exportMetrics.phase ("snapshot").end (probe.stop());
+            }
 
-        // Gather UML classes, enumerations and interfaces, run through a pipeline that does:
-        // * cast to an MD class object
-        // * retain only classes within the root package specified on the command line, which
-        //   will generally be more than what is to be published; we do this so as to be able
-        //   to generate links from those classes being published to those in other components
-        // * convert to ClassInfo objects (local representation used here)
-        // Then export each ClassInfo object as an output file
-        ClassInfoBuilder classInfoBuilder = new ClassInfoBuilder(formatter, this::getUMLClassByQualifiedName);
-
-        // -------- get the UML model classes -------
-        Collection<? extends Element> umlClasses = umlElementsFinder.find(
-                project.getPrimaryModel(),
-                new java.lang.Class[]{com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Class.class},
-                true);
-        List<ClassInfo> classes = umlClasses.stream()
-                .map(e -> (com.nomagic.uml2.ext.magicdraw.classes.mdkernel.Class)e)
-                .filter(c -> ! c.getName().contains("<"))// ignore classes with names simulating template type names
-                .filter(this::matchesRootPackage)
-                .map(classInfoBuilder::build)
-                .collect(Collectors.toList());
+            // where several folders are published, classes of the same name are chosen for the
+            // components of each folder, as an export of those components alone would. The sinks
+            // are kept open until the metrics of the whole export can be written to each.
+            Map<File, OutputSink> outputSinks = new LinkedHashMap<>();
+            try {
+                for (Map.Entry<File, Set<String>> entry : componentsByOutputFolder.entrySet()) {
+                    EntityRegistry entities = allEntities;
+                    if (componentsByOutputFolder.size() > 1) {
+                        ExportMetrics.Probe probe = ExportMetrics.Probe.start();
+                        entities = new EntityRegistry (symbolTable);
+                        InfoBuilderSupport.mergeEntities (entities, classes, interfaces, enumerations, entry.getValue());
+                        exportMetrics.phase ("merge entities").end (probe.stop());
+                    }
+                    OutputSink outputSink = OutputSink.open (exportConfig, entry.getKey());
+                    outputSinks.put (entry.getKey(), outputSink);
+                    publish (entry.getKey(), entry.getValue(), entities, outputSink);
+                }
 
-        // -------- get the UML model interfaces -------
-        Collection<? extends Element> umlInterfaces = umlElementsFinder.find(
-                project.getPrimaryModel(),
-                new java.lang.Class[]{Interface.class},
-                true);
-        InterfaceInfoBuilder interfaceInfoBuilder = new InterfaceInfoBuilder(formatter, this::getUMLClassByQualifiedName);
-        List<ClassInfo> interfaces = umlInterfaces.stream()
-                .map(e -> (Interface)e)
-                .filter(c -> ! c.getName().contains("<"))// ignore classes with names simulating template type names
-                .filter(this::matchesRootPackage)
-                .map(interfaceInfoBuilder::build)
-                .collect(Collectors.toList());
+                if (exportConfig.isMetricsReport())
+                    for (Map.Entry<File, OutputSink> entry : outputSinks.entrySet())
+                        entry.getValue().write (new File(entry.getKey(), ExportMetrics.REPORT_FILE_NAME).toPath(), exportMetrics.toJson());
+            }
+            finally {
+                closeAll (outputSinks.values());
+            }
+        }
+        finally {
+            if (workerPool != null)
+                workerPool.shutdown();
+        }
+    }
 
-        // -------- get the UML model enumerations -------
-        Collection<? extends Element> umlEnumerations = umlElementsFinder.find(
-                project.getPrimaryModel(),
-                new java.lang.Class[]{Enumeration.class},
-                true);
-
-        EnumerationInfoBuilder enumerationInfoBuilder = new EnumerationInfoBuilder(formatter, this::getUMLClassByQualifiedName);
-        List<ClassInfo> enumerations = umlEnumerations.stream()
-                .map(e -> (Enumeration)e)
-                .filter(this::matchesRootPackage)
-                .map(enumerationInfoBuilder::build)
+    // close sinks, rethrowing the first failure once all are closed
+    private static void closeAll (Collection<OutputSink> outputSinks) throws IOException {
+        IOException failure = null;
+        for (OutputSink outputSink : outputSinks) {
+            try {
+                outputSink.close();
+            } catch (IOException e) {
+                if (failure == null)
+                    failure = e;
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * Set the probe started before the model of the next export was loaded, so that the time
+     * to load it is included in the metrics of the export.
+     * @param modelLoadProbe stopped probe around the loading of the model; null if not measured.
+     */
+    public void setModelLoadProbe (ExportMetrics.Probe modelLoadProbe) {
+        this.modelLoadProbe = modelLoadProbe;
+    }
+
+    /**
+     * Metrics of each phase of the last export.
+     */
+    public ExportMetrics getExportMetrics() {
+        return exportMetrics;
+    }
+
+    /**
+     * Walk the model and build the global map of ClassInfo objects for all classes,
+     * interfaces and enumerations within the root package.
+     * @param project MD descriptor for a project.
+     * @param componentPackageNames names of all components to publish.
+     */
+    private void buildEntities (Project project, Set<String> componentPackageNames) {
+        // Resolve the component packages requested for publishing up front, so that any
+        // not present in the model can be reported
+        unresolvedComponentNames = componentPackageNames.stream()
+                .filter (cn -> project.getPrimaryModel().getOwnedElement().stream()
+                        .noneMatch (e -> e instanceof NamedElement && cn.equalsIgnoreCase (((NamedElement) e).getName())))
                 .collect(Collectors.toList());
 
+        // Walk the model once: index every class by qualified name (for generic type resolution),
+        // and gather the UML classes, interfaces and enumerations, retaining only those within the
+        // root package specified on the command line (by default, the walk does not descend into
+        // packages outside the root package at all), which will generally be more than what is to
+        // be published; we do this so as to be able to generate links from those classes being
+        // published to those in other components. Classes and interfaces with names simulating
+        // template type names are ignored.
+        ExportMetrics.Probe traversalProbe = ExportMetrics.Probe.start();
+        qualifiedNameIndex = new QualifiedNameIndex (project);
+        List<Class> umlClasses = new ArrayList<>();
+        List<Interface> umlInterfaces = new ArrayList<>();
+        List<Enumeration> umlEnumerations = new ArrayList<>();
+
+        modelTraversal = new ModelTraversal (exportConfig.isPrunedTraversal() ? exportConfig.getRootPackageName() : null);
+        modelTraversal.traverse (project.getPrimaryModel(), new ModelTraversal.Visitor() {
+            @Override
+            public void visitClass (Class umlClass) {
+                qualifiedNameIndex.add (umlClass);
+                if (!umlClass.getName().contains("<") && matchesRootPackage (umlClass))
+                    umlClasses.add (umlClass);
+            }
+
+            @Override
+            public void visitInterface (Interface umlInterface) {
+                if (!umlInterface.getName().contains("<") && matchesRootPackage (umlInterface))
+                    umlInterfaces.add (umlInterface);
+            }
+
+            @Override
+            public void visitEnumeration (Enumeration umlEnumeration) {
+                if (matchesRootPackage (umlEnumeration))
+                    umlEnumerations.add (umlEnumeration);
+            }
+        });
+        ExportMetrics.Phase traversalPhase = exportMetrics.phase ("traversal");
+        traversalPhase.addCount (modelTraversal.getVisitedCount());
+        traversalPhase.end (traversalProbe.stop());
+
+        // Convert to ClassInfo objects (local representation used here); this is done once the
+        // walk is complete, since resolving generic types needs the complete qualified name index.
+        // The lists are built on this thread even if more threads are configured: the MagicDraw
+        // OpenAPI offers sessions for modifying the model, but no read lock, and doesn't document
+        // its model as safe to read from several threads, e.g. by the Finder. Only rendering, which
+        // reads the built ClassInfo objects alone, runs on the worker pool.
+        // Then export each ClassInfo object as an output file
+        // The builders share the comments parsed during the export, and its symbol table.
+        Map<Object, ParsedComment> parsedComments = new HashMap<>();
+        symbolTable = new SymbolTable();
+        ClassInfoBuilder classInfoBuilder = new ClassInfoBuilder(formatter, this::getUMLClassByQualifiedName, parsedComments, symbolTable);
+        InterfaceInfoBuilder interfaceInfoBuilder = new InterfaceInfoBuilder(formatter, this::getUMLClassByQualifiedName, parsedComments, symbolTable);
+        EnumerationInfoBuilder enumerationInfoBuilder = new EnumerationInfoBuilder(formatter, this::getUMLClassByQualifiedName, parsedComments, symbolTable);
+
+        classes = buildAll (umlClasses, classInfoBuilder, exportMetrics.phase ("build classes"));
+        interfaces = buildAll (umlInterfaces, interfaceInfoBuilder, exportMetrics.phase ("build interfaces"));
+        enumerations = buildAll (umlEnumerations, enumerationInfoBuilder, exportMetrics.phase ("build enumerations"));
+
         // -------- get the UML model state machines -------
 //        Collection<? extends Element> umlStateMachines = umlElementsFinder.find(
 //                project.getPrimaryModel(),
@@ -129,321 +266,287 @@ public class UmlAdocExporter {
 //                true);
 
         // --------- build a global map of ClassInfo keyed by class name --------
-        classes.forEach (classInfo -> {
-            if (!allEntitiesMap.containsKey (classInfo.getClassKey()) || !matchesComponents (allEntitiesMap.get (classInfo.getClassKey())))
-                allEntitiesMap.put (classInfo.getClassKey(), classInfo);
-        });
-        interfaces.forEach (classInfo -> {
-            if (!allEntitiesMap.containsKey (classInfo.getClassKey()) || !matchesComponents (allEntitiesMap.get (classInfo.getClassKey())))
-                allEntitiesMap.put(classInfo.getClassKey(), classInfo);
-        });
-        enumerations.forEach (classInfo -> {allEntitiesMap.put (classInfo.getClassKey(), classInfo);});
-
-        // iterate through the whole lot and add an override for the spec document, if it is
-        // different from the sub-package inferred from the package structure
-        for (ClassInfo classInfo: allEntitiesMap.values())
-            if (UmlExporterDefinitions.classSpecMapExceptions.containsKey (classInfo.getClassPackage()))
-                classInfo.setSpecName (UmlExporterDefinitions.classSpecMapExceptions.get (classInfo.getClassPackage()));
-
-        // -------------------------- do the publishing ----------------------------
-
-        // Output the entities, but only those components that were requested to publish,
-        // which equates to some selection of sub-packages of the root package, or maybe all
-        if (!exportConfig.getComponentPackageNames().isEmpty())
-            allEntitiesMap.values()
-                    .stream()
-                    .filter (this::matchesComponents)
-                    .forEach (ci -> exportClass (ci, classesFolder));
-        else
-            allEntitiesMap.values().forEach (ci -> exportClass (ci, classesFolder));
-
-        // Generate the index file
-        generateIndex (outputFolder,
-                allEntitiesMap.values()
-                .stream()
-                .filter (this::matchesComponents)
-                .collect(Collectors.toList())
-        );
-
-        // obtain and generate the diagrams
+        ExportMetrics.Probe mergeProbe = ExportMetrics.Probe.start();
+        allEntities = new EntityRegistry (symbolTable);
+        InfoBuilderSupport.mergeEntities (allEntities, classes, interfaces, enumerations, componentPackageNames);
+        ExportMetrics.Phase mergePhase = exportMetrics.phase ("merge entities");
+        mergePhase.addCount (allEntities.size());
+        mergePhase.end (mergeProbe.stop());
+    }
+
+    /**
+     * Write the class files, class index and diagrams for some components.
+     * @param outputFolder Directory in which to write the files.
+     * @param componentPackageNames names of the components to publish.
+     * @param entities registry of ClassInfo keyed by class key, merged for the components.
+     * @param outputSink sink to write the files to.
+     */
+    private void publish (File outputFolder, Set<String> componentPackageNames, EntityRegistry entities, OutputSink outputSink) throws InterruptedException {
+        // obtain the diagrams, and start exporting them on a dedicated rendering thread, so that
+        // diagram export overlaps class rendering. MD image export is not documented as thread-safe,
+        // so the diagrams are not exported in parallel with each other; nothing else reads the
+        // model while they are being exported.
         File diagramsFolder = new File(outputFolder, DIAGRAMS_FOLDER);
         if (!diagramsFolder.exists()) {
-            if (!diagramsFolder.mkdir())
-                throw new UmlAdocExporterException ("Unable to create folder: " + diagramsFolder);
+            try {
+                outputSink.createFolder (diagramsFolder.toPath());
+            } catch (IOException e) {
+                throw new UmlAdocExporterException ("Unable to create folder: " + diagramsFolder, e);
+            }
         }
 
         List<DiagramPresentationElement> diagrams = project.getDiagrams().stream()
-                .filter(this::diagMatchesRootPackages)
+                .filter(diag -> diagMatchesRootPackages (diag, componentPackageNames))
                 .collect(Collectors.toList());
-        diagrams.forEach(d -> exportDiagram(diagramsFolder, d));
+        // fingerprints are only kept in an output folder, not for an archive
+        DiagramFingerprints diagramFingerprints = outputSink.isFolder() ? new DiagramFingerprints (outputFolder.toPath()) : null;
+        ExecutorService diagramExecutor = Executors.newSingleThreadExecutor (r -> {
+            Thread thread = new Thread (r, "diagram-export");
+            thread.setDaemon (true);
+            return thread;
+        });
+        Future<?> diagramsExported = null;
+        try {
+            diagramsExported = diagramExecutor.submit (() -> exportDiagrams (diagramsFolder, diagrams, diagramFingerprints, outputSink));
+
+            ClassDocumentPublisher documentPublisher = new ClassDocumentPublisher (formatter, exportConfig, entities, workerPool, exportMetrics);
+            documentPublisher.publish (outputFolder, componentPackageNames, outputSink);
+            documentsWrittenCount += documentPublisher.getDocumentsWrittenCount();
+            documentsUnchangedCount += documentPublisher.getDocumentsUnchangedCount();
+            orphansRemovedCount += documentPublisher.getOrphansRemovedCount();
+
+            // wait for the diagrams
+            await (diagramsExported);
+        }
+        finally {
+            // if class rendering failed, stop the diagrams, and wait for the one being exported, so
+            // that nothing reads the project once this returns, e.g. when the daemon closes it
+            if (diagramsExported != null)
+                diagramsExported.cancel (true);
+            diagramExecutor.shutdownNow();
+            awaitTermination (diagramExecutor);
+        }
+    }
+
+    // wait for an executor to finish, however long its running task takes; an interrupt while
+    // waiting is kept for the caller
+    private static void awaitTermination (ExecutorService executor) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination (1, TimeUnit.MINUTES))
+                    break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
     }
 
     /**
-     * Export a UML diagram in PNG and SVG format to the export folder.
-     * @param outputFolder target folder on file system.
-     * @param diag UML diagram representation.
+     * Build ClassInfo objects for UML elements, on the calling thread.
+     * @param elements UML elements to build.
+     * @param builder builder for the element type.
+     * @param buildPhase phase to which the measurements of each element built are added.
+     * @return ClassInfo objects in the same order as elements.
      */
-    private void exportDiagram(File outputFolder, DiagramPresentationElement diag) {
-        // iterate over image formats
-        exportConfig.getImageFormats().forEach((k,v)->doExportDiagram(k, v, outputFolder, diag));
+    private <T> List<ClassInfo> buildAll (List<T> elements, AbstractInfoBuilder<T> builder, ExportMetrics.Phase buildPhase) {
+        ExportMetrics.Probe probe = ExportMetrics.Probe.start();
+        List<ClassInfo> classInfos = new ArrayList<>(elements.size());
+        for (T element : elements) {
+            ExportMetrics.Probe itemProbe = ExportMetrics.Probe.start();
+            ClassInfo classInfo = ExporterEvents.build (element, builder::build);
+            buildPhase.addItem (classInfo.getQualifiedClassName(), itemProbe.stop());
+            classInfos.add (classInfo);
+        }
+        buildPhase.end (probe.stop());
+        return classInfos;
     }
 
-    private void doExportDiagram(String formatName, Integer formatCode, File outputFolder, DiagramPresentationElement diag) {
-        String name = diag.getName();
+    // wait for the result of a task, rethrowing any runtime exception it threw
+    private static <R> R await (Future<R> future) throws InterruptedException {
         try {
-            // iterate over image formats
-            ImageExporter.export(diag, formatCode, new File(outputFolder, formatDiagramName(name) + "." + formatName));
-        }
-        catch (IOException e) {
-            throw new UmlAdocExporterException("Unable to export diagrams for " + name + '!', e);
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new UmlAdocExporterException(e.getCause());
         }
     }
 
-
     /**
-     * Export a class as an Asciidoctor (.adoc) file to the output folder on the file system.
-     * @param targetFolder Directory in which to write the file.
-     * @param classInfo info object for the class.
-     * @exception IOException on fail to write to file.
+     * Export UML diagrams to the export folder. In incremental mode, a diagram whose fingerprint
+     * is the same as in the last export, and whose image files all exist, is not exported again.
+     * @param outputFolder target folder on file system.
+     * @param diagrams UML diagram representations.
+     * @param diagramFingerprints fingerprints of the diagrams in the last export; null if writing to an archive.
+     * @param outputSink sink to write the image files to.
      */
-    private void exportClass (ClassInfo classInfo, File targetFolder) {
-        try (PrintWriter printWriter = new PrintWriter(Files.newBufferedWriter(
-                targetFolder.toPath().resolve(fileName(exportConfig.hasQualifiedClassNames()? classInfo.getQualifiedClassName().toLowerCase(): classInfo.getClassName().toLowerCase()) + ADOC_FILE_EXTENSION), Charset.forName("UTF-8")))) {
-            printWriter.println(formatter.heading(classInfo.getClassName() + ' ' + classInfo.getMetaType(), exportConfig.getHeadingLevel()));
-            printWriter.println();
-
-            printWriter.println(formatter.tableDefinition ("1,3,5"));
-            printWriter.println(formatter.tableDelimiter());
-            printWriter.println(formatter.tableColHeader (classInfo.getMetaType(), 1));
-            printWriter.println(formatter.tableColHeaderCentred (
-                    (classInfo.isAbstractClass()
-                            ? formatter.italic(classInfo.getClassTypeName() + " (abstract)")
-                            : classInfo.getClassTypeName()),
-                    2)
-            );
-            printWriter.println();
-
-            printWriter.println(formatter.tableColHeader ("Description", 1));
-
-            printWriter.println(formatter.tableCellPassthrough (classInfo.getDocumentation(), 2));
-            printWriter.println();
-
-            // inheritance parents
-            if (!classInfo.getQualifiedParentClassNames().isEmpty()) {
-                printWriter.println (formatter.tableColHeader ("Inherit", 1));
-                StringBuilder sb = new StringBuilder();
-                for (String qualifiedParentClassName: classInfo.getQualifiedParentClassNames())
-                    sb.append (formatter.monospace (linkClassName (classInfo, qualifiedParentClassName))).append(", ");
-
-                String parentsString = "";
-                // remove any trailing ", "
-                if (sb.length() > 0)
-                    parentsString = sb.substring(0, sb.length() - 2);
-                printWriter.println (formatter.tableCell (parentsString, 2));
-                printWriter.println ();
-            }
-
-            // constants
-            if (!classInfo.getConstants().isEmpty()) {
-                printWriter.println (formatter.tableColHeader ("Constants", 1));
-                printWriter.println (formatter.tableColHeaderCentred ("Signature", 1));
-                printWriter.println (formatter.tableColHeaderCentred ("Meaning", 1));
-
-                for (ClassFeatureInfo classFeatureInfo : classInfo.getConstants())
-                    printWriter.print (postProcess (classInfo, formatFeature  (classFeatureInfo)));
-            }
-
-            // attributes
-            if (!classInfo.getAttributes().isEmpty()) {
-                printWriter.println (formatter.tableColHeader ("Attributes", 1));
-                printWriter.println (formatter.tableColHeaderCentred ("Signature", 1));
-                printWriter.println (formatter.tableColHeaderCentred ("Meaning", 1));
-
-                for (ClassFeatureInfo classFeatureInfo : classInfo.getAttributes())
-                    printWriter.print (postProcess (classInfo, formatFeature  (classFeatureInfo)));
-            }
-
-            // operations
-            if (!classInfo.getOperations().isEmpty()) {
-                printWriter.println (formatter.tableColHeader ("Functions", 1));
-                printWriter.println (formatter.tableColHeaderCentred ("Signature", 1));
-                printWriter.println (formatter.tableColHeaderCentred ("Meaning", 1));
-
-                for (ClassFeatureInfo classFeatureInfo : classInfo.getOperations())
-                    printWriter.print (postProcess (classInfo, formatFeature  (classFeatureInfo)));
+    private void exportDiagrams (File outputFolder, List<DiagramPresentationElement> diagrams, DiagramFingerprints diagramFingerprints,
+                                 OutputSink outputSink) {
+        for (DiagramPresentationElement diag : diagrams) {
+            // stop between diagrams if the export has failed; see publish()
+            if (Thread.currentThread().isInterrupted())
+                return;
+            if (exportConfig.isIncremental()) {
+                String fingerprint = DiagramFingerprints.fingerprint (diag);
+                if (fingerprint.equals (diagramFingerprints.get (diag.getName())) && diagramFilesExist (outputFolder, diag))
+                    diagramsSkippedCount++;
+                else {
+                    exportDiagram (outputFolder, diag, outputSink);
+                    diagramFingerprints.put (diag.getName(), fingerprint);
+                }
             }
-
-            // invariants
-            if (!classInfo.getConstraints().isEmpty())
-                printWriter.print (postProcess (classInfo, formatConstraints  (classInfo)));
-
-            printWriter.println(formatter.tableDelimiter());
-
-        } catch (IOException e) {
-            throw new UmlAdocExporterException(e);
+            else
+                exportDiagram (outputFolder, diag, outputSink);
         }
+
+        // without fingerprinting, the cache would be stale
+        if (exportConfig.isIncremental())
+            diagramFingerprints.save();
+        else if (diagramFingerprints != null)
+            diagramFingerprints.delete();
     }
 
+    private boolean diagramFilesExist (File outputFolder, DiagramPresentationElement diag) {
+        return exportConfig.getImageFormats().keySet().stream()
+                .allMatch (formatName -> new File(outputFolder, formatDiagramName(diag.getName()) + "." + formatName).isFile());
+    }
 
     /**
-     * Generate an HTML file containing a clickable index of Class names that contain links to the location of
-     * the class within the relevant specification.
-     * @param targetFolder Directory in which to write the file.
-     * @param allTypes classes, interfaces, and enumerations to include in index.
-     * @exception IOException on fail to write to file.
+     * Export a UML diagram in PNG and SVG format to the export folder.
+     * @param outputFolder target folder on file system.
+     * @param diag UML diagram representation.
+     * @param outputSink sink to write the image files to.
      */
-    private void generateIndex(File targetFolder, List<ClassInfo> allTypes) {
-        Collections.sort(allTypes);
-
-        Path targetPath = targetFolder.toPath().resolve("class_index" + ADOC_FILE_EXTENSION);
-        try (PrintWriter printWriter = new PrintWriter(Files.newBufferedWriter(targetPath, Charset.forName("UTF-8")))) {
-            String specComponent = "";
-            String specPackage = "";
-            String specSubPackage = "";
-
-            for (ClassInfo classInfo : allTypes) {
-                // The test for className > 2 is to avoid generic parameters like 'T', and
-                // occasionally 'TT' or similar.
-                if (classInfo.getClassName().length() > 2) {
-
-                    // if Component of class has changed since last iteration, output a new header line
-                    if (!specComponent.equals(classInfo.getSpecComponent())) {
-                        printWriter.println();
-                        printWriter.println(formatter.heading ("Component " + classInfo.getSpecComponent(), 2));
-                        specComponent = classInfo.getSpecComponent();
-                    }
-
-                    // if Package of class has changed since last iteration, output a new header line
-                    if (!specPackage.equals(classInfo.getComponentPackage())) {
-                        printWriter.println();
-                        printWriter.println(formatter.heading ("Model " + classInfo.getComponentPackage(), 3));
-                        specPackage = classInfo.getComponentPackage();
-                    }
-
-                    // if Sub-package of class has changed since last iteration, output a new header line
-                    if (!specSubPackage.equals(classInfo.getClassPackage())) {
-                        printWriter.println();
-                        printWriter.println(formatter.heading ("Package " + classInfo.getClassPackage(), 4));
-                        printWriter.println();
-                        specSubPackage = classInfo.getClassPackage();
-                    }
+    private void exportDiagram(File outputFolder, DiagramPresentationElement diag, OutputSink outputSink) {
+        // iterate over image formats
+        exportConfig.getImageFormats().forEach((k,v)->doExportDiagram(k, v, outputFolder, diag, outputSink));
+    }
 
-                    // Output the class as a linked text line of the form:
-                    //   [.xcode]
-                    //   * link:/releases/AM/{am_release}/AOM2.html#_c_object_class[C_OBJECT^]
-                    // from the sprintf template string: "[.xcode]\n* %s\n"
-                    printWriter.printf(INDEX_LINK_FORMAT, formatter.externalLink(classInfo.getClassName(),
-                            classInfo.getSpecUrlPath (exportConfig.getSpecLinkTemplate(), exportConfig.getComponentPackageNamePrefix())));
-                }
+    private void doExportDiagram(String formatName, Integer formatCode, File outputFolder, DiagramPresentationElement diag, OutputSink outputSink) {
+        String name = diag.getName();
+        try {
+            // iterate over image formats
+            ExportMetrics.Probe probe = ExportMetrics.Probe.start();
+            ExporterEvents.ExportDiagram event = new ExporterEvents.ExportDiagram();
+            event.begin();
+            outputSink.write (new File(outputFolder, formatDiagramName(name) + "." + formatName).toPath(),
+                    file -> ImageExporter.export(diag, formatCode, file));
+            event.end();
+            probe.stop();
+            if (event.shouldCommit()) {
+                event.diagramName = name;
+                event.formatName = formatName;
+                event.commit();
             }
-        } catch (IOException e) {
-            throw new UmlAdocExporterException("Unable to write to " + targetPath + '!', e);
+            diagramTimings.add (new DiagramTiming (name, formatName, probe.getWallNanos()));
+            exportMetrics.phase ("diagrams " + formatName).addItem (name, probe);
+        }
+        catch (IOException e) {
+            throw new UmlAdocExporterException("Unable to export diagrams for " + name + '!', e);
         }
     }
 
-    private Class getUMLClassByQualifiedName (String aName) {
-        return umlQualifiedNameFinder.find(project, aName);
+    /**
+     * Number of class and index documents written to file in the last export.
+     */
+    public int getDocumentsWrittenCount() {
+        return documentsWrittenCount;
     }
 
-    private boolean matchesRootPackage (NamedElement namedElement) {
-        return namedElement.getQualifiedName().contains(exportConfig.getRootPackageName() + "::");
+    /**
+     * Number of class and index documents not written in the last export because their content was unchanged.
+     */
+    public int getDocumentsUnchangedCount() {
+        return documentsUnchangedCount;
     }
 
-    // diagram names follow the pattern COMPONENT-xxxx, e.g. RM-common etc. This returns True if
-    // a diagram matches any of the components being requested.
-    private boolean diagMatchesRootPackages (DiagramPresentationElement diagElement) {
-        return exportConfig.getComponentPackageNames().stream().anyMatch (rn -> diagElement.getName().contains(rn + "-"));
+    /**
+     * Number of documents of a previous export removed in the last export because they are no longer produced.
+     */
+    public int getOrphansRemovedCount() {
+        return orphansRemovedCount;
     }
 
-    // note: returns false for empty list - need to check for empty case before using this filter
-    private boolean matchesComponents (ClassInfo classInfo) {
-        return exportConfig.getComponentPackageNames().stream().anyMatch (cn -> classInfo.getSpecComponent().equalsIgnoreCase (cn));
+    /**
+     * Number of diagrams not exported in the last export because they were unchanged.
+     */
+    public int getDiagramsSkippedCount() {
+        return diagramsSkippedCount;
     }
 
     /**
-     * Convert a targetClassName like "ELEMENT" that is referenced from originClass
-     * to a link. If the target is in the same package, then it's the same spec,
-     * so use a local ref, else use a full external URL link
-     * @param originClassInfo
-     * @param targetQualifiedClassName
-     * @return
+     * Time taken to export each diagram in each image format in the last export, in export order.
      */
-    private String linkClassName (ClassInfo originClassInfo, String targetQualifiedClassName) {
-        ClassInfo targetClassInfo = allEntitiesMap.get (targetQualifiedClassName);
-        if (targetClassInfo != null) {
-            if (!targetClassInfo.getSpecName().equals (originClassInfo.getSpecName()))
-                return formatter.externalLink (targetClassInfo.getClassName(),
-                        targetClassInfo.getSpecUrlPath (exportConfig.getSpecLinkTemplate(), exportConfig.getComponentPackageNamePrefix()));
-            else
-                return formatter.internalRef (targetClassInfo.getClassName(), targetClassInfo.localRef());
-        }
-        else
-            return targetQualifiedClassName.substring(targetQualifiedClassName.lastIndexOf(".")+1);
+    public List<DiagramTiming> getDiagramTimings() {
+        return diagramTimings;
     }
 
     /**
-     * Post-process a formatted String:
-     * - replace "@TypeName@" with linked Typenames (removing the @@)
+     * Time taken to export one diagram in one image format.
      */
-    private String postProcess (ClassInfo classInfo, String classText) {
-        Pattern p = Pattern.compile (UmlExporterDefinitions.TYPE_QUOTE_REGEX);
-        Matcher m = p.matcher (classText);
-        StringBuffer sb = new StringBuffer();
-        while (m.find()) {
-            String matched = m.group();
-            m.appendReplacement(sb, linkClassName (classInfo, matched.substring(1, matched.length()-1)));
+    public static class DiagramTiming {
+        private final String diagramName;
+        private final String formatName;
+        private final long nanos;
+
+        DiagramTiming (String diagramName, String formatName, long nanos) {
+            this.diagramName = diagramName;
+            this.formatName = formatName;
+            this.nanos = nanos;
         }
-        m.appendTail(sb);
 
-        return sb.toString();
+        public String getDiagramName() {
+            return diagramName;
+        }
+
+        public String getFormatName() {
+            return formatName;
+        }
+
+        public long getMillis() {
+            return nanos / 1_000_000;
+        }
     }
 
 
+    private Class getUMLClassByQualifiedName (String aName) {
+        return qualifiedNameIndex.find (aName);
+    }
+
     /**
-     * Export all elements of a feature in a class as text in an Asciidoctor (.adoc) file.
-     * @param classFeatureInfo info object for the class.
+     * Index of UML classes by qualified name used in the last export, e.g. to report hit/miss counts.
+     * @return null if no export has been done.
      */
-    private String formatFeature (ClassFeatureInfo classFeatureInfo) {
-        StringBuilder sb = new StringBuilder();
-        sb.append (System.lineSeparator());
-        sb.append (formatter.tableColHeader (classFeatureInfo.getCardinality() +
-                (classFeatureInfo.getStatus().isEmpty()? "" : " +" + System.lineSeparator() + classFeatureInfo.getStatus()), 1));
-        sb.append (System.lineSeparator());
-        sb.append (formatter.tableCell (classFeatureInfo.getSignature(), 1) + System.lineSeparator());
-        sb.append (formatter.tableCellPassthrough (classFeatureInfo.getDocumentation(), 1) + System.lineSeparator());
-
-        return sb.toString();
+    public QualifiedNameIndex getQualifiedNameIndex() {
+        return qualifiedNameIndex;
     }
 
     /**
-     * Export all constraints in a class as text (invariants) in an Asciidoctor (.adoc) file.
-     * @param classInfo info object for the class.
+     * Model traversal used in the last export, e.g. to report the number of elements visited.
+     * @return null if no export has been done.
      */
-    private String formatConstraints (ClassInfo classInfo) {
-        StringBuilder sb = new StringBuilder();
-
-        String title = "Invariants";
-        for (ConstraintInfo constraintInfo : classInfo.getConstraints()) {
-            sb.append (System.lineSeparator());
-            sb.append (formatter.tableColHeader(title, 1));
-            sb.append (System.lineSeparator());
-
-            sb.append (formatter.tableCellPassthrough (constraintInfo.getDocumentation(), 2));
-            sb.append (System.lineSeparator());
-            title = "";
-        }
-
-        return sb.toString();
+    public ModelTraversal getModelTraversal() {
+        return modelTraversal;
     }
 
     /**
-     * Convert a class name to a legal file name.
-     * @param className name of class.
-     * @return filename..
+     * Names of components requested for export that were not found as top-level packages in the last export.
      */
-    private String fileName(String className) {
-        String name = className.replaceAll("[^a-z0-9.]", "_");
-        return name.replaceAll("^_+", "");
+    public List<String> getUnresolvedComponentNames() {
+        return unresolvedComponentNames;
+    }
+
+    private boolean matchesRootPackage (NamedElement namedElement) {
+        return namedElement.getQualifiedName().contains(exportConfig.getRootPackageName() + "::");
+    }
+
+    // diagram names follow the pattern COMPONENT-xxxx, e.g. RM-common etc. This returns True if
+    // a diagram matches any of the components being requested.
+    private static boolean diagMatchesRootPackages (DiagramPresentationElement diagElement, Set<String> componentPackageNames) {
+        return componentPackageNames.stream().anyMatch (rn -> diagElement.getName().contains(rn + "-"));
     }
 
     private static String formatDiagramName(String name) {
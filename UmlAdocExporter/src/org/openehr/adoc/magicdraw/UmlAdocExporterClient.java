@@ -0,0 +1,66 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Command-line entry point that sends an export job to an ExportDaemon on a local port, prints the
+ * output of the export, and exits with its status. Needs no MagicDraw runtime, so starts quickly.
+ * Must be run as the user who started the daemon, to read its token; see DaemonToken.
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class UmlAdocExporterClient {
+
+    public static void main(String[] args) {
+        if (args.length == 0 || "-h".equals (args[0]) || "-?".equals (args[0])) {
+            System.out.println("Usage: uml_generate_client <port> <uml_generate options> <project file>");
+            System.out.println("       uml_generate_client <port> " + ExportDaemon.SHUTDOWN_ARGUMENT);
+            System.out.println("       sends an export job to a daemon started with uml_generate --daemon <port> by the same user");
+            return;
+        }
+
+        int port;
+        try {
+            port = Integer.parseInt (args[0]);
+        } catch (NumberFormatException ignored) {
+            throw new UmlAdocExporterException ("Invalid port: " + args[0] + " (expected numeric)!");
+        }
+        List<String> jobArgs = Arrays.asList (args).subList (1, args.length);
+        for (String arg : jobArgs) {
+            if (arg.contains ("\t") || arg.contains ("\n") || arg.contains ("\r"))
+                throw new UmlAdocExporterException ("Invalid argument: \"" + arg + "\" (tabs and line breaks not allowed)!");
+        }
+
+        System.exit (sendJob (port, jobArgs));
+    }
+
+    // send a job, print its output, and return its exit status
+    private static int sendJob (int port, List<String> jobArgs) {
+        String token = DaemonToken.read (port);
+        try (Socket socket = new Socket (InetAddress.getLoopbackAddress(), port)) {
+            PrintStream out = new PrintStream (socket.getOutputStream(), true, StandardCharsets.UTF_8);
+            out.println (token);
+            out.println (Paths.get ("").toAbsolutePath());
+            out.println (String.join ("\t", jobArgs));
+
+            BufferedReader in = new BufferedReader (new InputStreamReader (socket.getInputStream(), StandardCharsets.UTF_8));
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (line.startsWith (ExportDaemon.STATUS_PREFIX))
+                    return Integer.parseInt (line.substring (ExportDaemon.STATUS_PREFIX.length()));
+                System.out.println(line);
+            }
+            throw new UmlAdocExporterException ("Connection to export daemon closed before the job completed!");
+        } catch (IOException e) {
+            throw new UmlAdocExporterException ("Unable to connect to export daemon on port " + port + '!', e);
+        }
+    }
+}
@@ -9,15 +9,11 @@ import com.nomagic.magicdraw.core.project.ProjectsManager;
 import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
 
 import java.io.File;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.PrintStream;
 import java.nio.file.Paths;
-import java.util.*;
-import java.util.regex.Pattern;
+import java.util.SortedSet;
 import java.util.stream.Collectors;
 
-import static java.lang.String.join;
-
 /**
  * Command-line entry point for UML extractor
  * @author Bostjan Lah
@@ -25,10 +21,10 @@ import static java.lang.String.join;
 @SuppressWarnings("UseOfSystemOutOrSystemErr")
 public class UmlAdocExporterCommandLine extends CommandLine {
 
-    private static final UmlExportConfig exportConfig = UmlExportConfig.getInstance();
-    private File projectFile;
-    private File outFolder;
-    private boolean helpOnly;
+    // number of names listed in a warning, before the rest are elided
+    private static final int MAX_NAMES_LISTED = 10;
+
+    private ExportJob job;
 
     public static void main(String[] args) throws InstantiationException
     {
@@ -36,6 +32,28 @@ public class UmlAdocExporterCommandLine extends CommandLine {
     }
 
     protected byte execute() {
+        if (job.isHelpOnly())
+            return (byte)0;
+
+        if (job.getDaemonPort() >= 0) {
+            new ExportDaemon (job.getDaemonPort()).run();
+            return (byte)0;
+        }
+
+        if (job.getManifestFile() != null)
+            return new ManifestExporter (job.getManifestFile().toPath()).run() ? (byte)0 : (byte)1;
+
+        ExportMetrics.Probe loadProbe = ExportMetrics.Probe.start();
+        Project project = loadProject (job.getProjectFile());
+        // with a tar stream to stdout, the statistics go to stderr
+        exportProject (project, job, UmlExportConfig.getInstance().isArchiveToStdout() ? System.err : System.out, loadProbe.stop());
+        return (byte)0;
+    }
+
+    /**
+     * Load a project, making it the active project.
+     */
+    static Project loadProject (File projectFile) {
         ProjectDescriptor projectDescriptor = ProjectDescriptorsFactory.createProjectDescriptor(projectFile.toURI());
         if (projectDescriptor == null) {
             throw new UmlAdocExporterException("Project descriptor not created for " + projectFile.getAbsolutePath() + '!');
@@ -43,113 +61,54 @@ public class UmlAdocExporterCommandLine extends CommandLine {
         ProjectsManager projectsManager = Application.getInstance().getProjectsManager();
         projectsManager.loadProject(projectDescriptor, true);
         Project project = projectsManager.getActiveProject();
+        if (project == null)
+            throw new UmlAdocExporterException("Project " + projectFile.getAbsolutePath() + " not loaded!");
+        return project;
+    }
 
+    /**
+     * Export a loaded project with the current export configuration, and report the export statistics.
+     * @param job options of the export, giving the output folder or, in batch mode, the output folder of each component.
+     * @param out stream to which the statistics are written.
+     * @param loadProbe stopped probe around the loading of the project, for the metrics of the export; null if not measured.
+     */
+    static void exportProject (Project project, ExportJob job, PrintStream out, ExportMetrics.Probe loadProbe) {
         UmlAdocExporter exporter = new UmlAdocExporter ();
+        exporter.setModelLoadProbe (loadProbe);
         try {
-            exporter.exportProject(outFolder, project);
-            return (byte)0;
+            if (job.getComponentsByOutputFolder().isEmpty())
+                exporter.exportProject(job.getOutFolder(), project);
+            else
+                exporter.exportComponents(job.getComponentsByOutputFolder(), project);
+
+            for (String componentName : exporter.getUnresolvedComponentNames())
+                out.println("Warning: component package " + componentName + " not found in model");
+            out.println("Model traversal: " + exporter.getModelTraversal().getVisitedCount() + " elements visited, " +
+                    exporter.getModelTraversal().getSkippedCount() + " subtrees skipped outside root package");
+            QualifiedNameIndex qualifiedNameIndex = exporter.getQualifiedNameIndex();
+            SortedSet<String> finderFoundNames = qualifiedNameIndex.getFinderFoundNames();
+            out.println("Qualified name index: " + qualifiedNameIndex.size() + " classes, " +
+                    qualifiedNameIndex.getHitCount() + " hits, " + qualifiedNameIndex.getMissCount() + " misses, " +
+                    finderFoundNames.size() + " classes found outside the index");
+            // with a pruned walk, classes outside the root package are not indexed, and each lookup
+            // of one, e.g. as a template argument, falls back to the slower Finder
+            if (exporter.getModelTraversal().isPruned() && !finderFoundNames.isEmpty())
+                out.println("Warning: classes outside the root package were looked up with the Finder (use --full-traversal to index them): " +
+                        String.join (", ", finderFoundNames.stream().limit (MAX_NAMES_LISTED).collect (Collectors.toList())) +
+                        (finderFoundNames.size() > MAX_NAMES_LISTED ? ", ..." : ""));
+            out.println("Class and index files: " + exporter.getDocumentsWrittenCount() + " written, " +
+                    exporter.getDocumentsUnchangedCount() + " unchanged, " + exporter.getOrphansRemovedCount() + " orphans removed");
+            out.println("Diagrams: " + exporter.getDiagramsSkippedCount() + " unchanged and not exported");
+            out.println("Diagram export timings:");
+            for (UmlAdocExporter.DiagramTiming diagramTiming : exporter.getDiagramTimings())
+                out.println("    " + diagramTiming.getDiagramName() + " (" + diagramTiming.getFormatName() + "): " + diagramTiming.getMillis() + " ms");
         } catch (Exception e) {
             throw new UmlAdocExporterException("Export failed: " + e.getMessage(), e);
         }
     }
 
     protected void parseArgs (String[] cmdLineArgs) {
-        for (Iterator<String> iterator = Arrays.asList(cmdLineArgs).iterator(); iterator.hasNext(); ) {
-            String arg = iterator.next();
-            switch (arg) {
-                case "-c":  // short component name(s) - packages under root package to include
-                    exportConfig.getComponentPackageNames().addAll (Pattern.compile(",").splitAsStream (getParameterValue (iterator, "-c")).collect(Collectors.toList()));
-                    break;
-
-                case "-P":  // component name prefix to use in links
-                    exportConfig.setComponentPackageNamePrefix(getParameterValue (iterator, "-P"));
-                    break;
-
-                case "-d":  // Asciidoctor only: Diagram file formats
-                    String imageFormat = getParameterValue(iterator, "-d").toLowerCase();
-                    if (!UmlExporterDefinitions.defaultImageFormats.containsKey(imageFormat)) {
-                        throw new UmlAdocExporterException("Invalid argument for -d: " + imageFormat + " (expected one of " +
-                                join("|", UmlExporterDefinitions.defaultImageFormats.keySet()) + "!");
-                    }
-                    else {
-                        exportConfig.getImageFormats().put(imageFormat, UmlExporterDefinitions.defaultImageFormats.get(imageFormat));
-                    }
-                    break;
-
-                case "-k":  // link template
-                    exportConfig.setSpecLinkTemplate(getParameterValue(iterator, "-k"));
-                    break;
-
-                case "-l":  // Asciidoctor only: heading level
-                    String level = getParameterValue(iterator, "-l");
-                    try {
-                        exportConfig.setHeadingLevel(Integer.parseInt(level));
-                    } catch (NumberFormatException ignored) {
-                        throw new UmlAdocExporterException("Invalid argument for -l: " + level + " (expected numeric)!");
-                    }
-                    break;
-
-                case "-o":  // Output folder
-                    String outputFolder = getParameterValue(iterator, "-o");
-                    Path outputPath = Paths.get(outputFolder);
-                    if (!Files.isDirectory(outputPath))
-                        throw new UmlAdocExporterException("Output folder " + outputFolder + " doesn't exist!");
-                    outFolder = outputPath.toFile();
-                    break;
-
-                case "-q":  // flag to include class-name qualifiers in class file names, i.e. pkg.pkg.class_name.ext
-                    exportConfig.setQualifiedClassNames(true);
-                    break;
-
-                case "-p":  // UML package depth to guarantee uniquely qualified classes
-                    String depth = getParameterValue(iterator, "-p");
-                    try {
-                        exportConfig.setPackageDepth(Integer.parseInt(depth));
-                    } catch (NumberFormatException ignored) {
-                        throw new UmlAdocExporterException("Invalid argument for -p: " + depth + " (expected numeric)!");
-                    }
-                    break;
-
-                case "-r":  // Root package
-                    exportConfig.setRootPackageName (getParameterValue (iterator, "-r"));
-                    break;
-
-                case "-?":
-                case "-h":
-                    System.out.println("Usage: uml_generate [-c component_pkg_names] [-P link_component_prefix] [-k link_template] [-d image_formats] [-o output_folder] [-l heading_level]  [-p uml_pkg_depth] [-q] [-r root_package_name] [-i index_release] <project file>");
-                    System.out.println("       -c: component package name(s) under root package to export (comma-separated)");
-                    System.out.println("       -P: component name prefix to use in links");
-                    System.out.println("       -d: image format: " + join("|", UmlExporterDefinitions.defaultImageFormatNames()) + " (default = all)");
-                    System.out.println("       -k: spec URL template (default = \"" + UmlExporterDefinitions.DEFAULT_SPEC_LINK_TEMPLATE + "\"");
-                    System.out.println("       -o: output folder (default = current folder)");
-                    System.out.println("       -l: class headings level (default = 3)");
-                    System.out.println("       -p: UML package depth for uniqueness (default = " + exportConfig.getPackageDepth() + ")");
-                    System.out.println("       -q: if set, use package-qualified class-names in output files");
-                    System.out.println("       -r: root package name to export (default = openehr)");
-                    helpOnly = true;
-                    break;
-
-                default:
-                    Path projectPath = Paths.get(arg);
-                    if (!Files.isReadable(projectPath))
-                        throw new UmlAdocExporterException ("Project file " + arg + " doesn't exist!");
-                    projectFile = projectPath.toFile();
-            }
-        }
-        if (!helpOnly) {
-            if (projectFile == null)
-                throw new UmlAdocExporterException ("No project file specified!");
-            if (exportConfig.getHeadingLevel() <= 0)
-                exportConfig.setHeadingLevel(3);
-            if (outFolder == null)
-                outFolder = new File(".");
-        }
-    }
-
-    private String getParameterValue (Iterator<String> iterator, String param) {
-        if (iterator.hasNext())
-            return iterator.next();
-        else
-            throw new UmlAdocExporterException ("Missing parameter for " + param + '!');
+        job = new ExportJob (UmlExportConfig.getInstance(), Paths.get("").toAbsolutePath(), System.out);
+        job.parse (cmdLineArgs);
     }
 }
@@ -0,0 +1,219 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Command-line entry point that renders the class files and class index either from a model snapshot
+ * saved by an export with --snapshot, or from a MagicDraw .mdzip project or XMI file read directly.
+ * Needs no MagicDraw runtime, so runs as a plain java main. Diagrams are not exported; they stay as
+ * written by an export from MagicDraw.
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class UmlAdocTextCommandLine {
+
+    private final UmlExportConfig exportConfig = UmlExportConfig.getInstance();
+    private File inputFile;
+    private File outFolder;
+    private boolean helpOnly;
+
+    public static void main(String[] args) throws InterruptedException {
+        UmlAdocTextCommandLine commandLine = new UmlAdocTextCommandLine();
+        commandLine.parseArgs (args);
+        if (!commandLine.helpOnly)
+            commandLine.execute();
+    }
+
+    private void execute() throws InterruptedException {
+        if (isSnapshot (inputFile.toPath()))
+            renderSnapshot();
+        else
+            renderModel();
+    }
+
+    private void renderSnapshot() throws InterruptedException {
+        if (exportConfig.getSnapshotFile() != null)
+            throw new UmlAdocExporterException ("--snapshot can only be used with a project or XMI file!");
+
+        long startTime = System.nanoTime();
+        ModelSnapshot modelSnapshot = ModelSnapshot.read (inputFile.toPath());
+
+        // same-named classes were chosen for the components the model was built for,
+        // so publish those unless others are requested
+        if (exportConfig.getComponentPackageNames().isEmpty())
+            exportConfig.getComponentPackageNames().addAll (modelSnapshot.getComponentPackageNames());
+
+        ForkJoinPool workerPool = exportConfig.getThreads() > 1 ? new ForkJoinPool (exportConfig.getThreads()) : null;
+        try {
+            ClassDocumentPublisher documentPublisher = new ClassDocumentPublisher (new AsciidocFormatter(), exportConfig,
+                    modelSnapshot.getAllEntities(), workerPool);
+            documentPublisher.publish (outFolder);
+
+            out().println("Model snapshot: " + modelSnapshot.getAllEntities().size() + " classes");
+            out().println("Class and index files: " + documentPublisher.getDocumentsWrittenCount() + " written, " +
+                    documentPublisher.getDocumentsUnchangedCount() + " unchanged, " + documentPublisher.getOrphansRemovedCount() + " orphans removed");
+            out().println("Rendered in " + (System.nanoTime() - startTime) / 1_000_000 + " ms");
+        }
+        finally {
+            if (workerPool != null)
+                workerPool.shutdown();
+        }
+    }
+
+    private void renderModel() throws InterruptedException {
+        long startTime = System.nanoTime();
+        XmiAdocExporter exporter = new XmiAdocExporter();
+        exporter.exportModel (outFolder, inputFile.toPath());
+
+        for (String componentName : exporter.getUnresolvedComponentNames())
+            out().println("Warning: component package " + componentName + " not found in model");
+        out().println("Model: " + exporter.getAllEntities().size() + " classes");
+        out().println("Class and index files: " + exporter.getDocumentsWrittenCount() + " written, " +
+                exporter.getDocumentsUnchangedCount() + " unchanged, " + exporter.getOrphansRemovedCount() + " orphans removed");
+        out().println("Rendered in " + (System.nanoTime() - startTime) / 1_000_000 + " ms");
+    }
+
+    // stream for messages; stderr if the files are written as a tar stream to stdout
+    private PrintStream out() {
+        return exportConfig.isArchiveToStdout() ? System.err : System.out;
+    }
+
+    // snapshots are gzipped; projects are zips, and XMI files are plain XML
+    private static boolean isSnapshot (Path path) {
+        try (InputStream in = Files.newInputStream (path)) {
+            byte[] header = in.readNBytes (2);
+            return header.length == 2 && (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b;
+        } catch (IOException e) {
+            throw new UmlAdocExporterException ("Unable to read " + path + '!', e);
+        }
+    }
+
+    private void parseArgs (String[] cmdLineArgs) {
+        for (Iterator<String> iterator = Arrays.asList(cmdLineArgs).iterator(); iterator.hasNext(); ) {
+            String arg = iterator.next();
+            switch (arg) {
+                case "-c":  // short component name(s) - packages under root package to include
+                    exportConfig.getComponentPackageNames().addAll (Pattern.compile(",").splitAsStream (getParameterValue (iterator, "-c")).collect(Collectors.toList()));
+                    break;
+
+                case "-P":  // component name prefix to use in links
+                    exportConfig.setComponentPackageNamePrefix(getParameterValue (iterator, "-P"));
+                    break;
+
+                case "-k":  // link template
+                    exportConfig.setSpecLinkTemplate(getParameterValue(iterator, "-k"));
+                    break;
+
+                case "-l":  // Asciidoctor only: heading level
+                    String level = getParameterValue(iterator, "-l");
+                    try {
+                        exportConfig.setHeadingLevel(Integer.parseInt(level));
+                    } catch (NumberFormatException ignored) {
+                        throw new UmlAdocExporterException("Invalid argument for -l: " + level + " (expected numeric)!");
+                    }
+                    break;
+
+                case "-o":  // Output folder
+                    String outputFolder = getParameterValue(iterator, "-o");
+                    Path outputPath = Paths.get(outputFolder);
+                    if (!Files.isDirectory(outputPath))
+                        throw new UmlAdocExporterException("Output folder " + outputFolder + " doesn't exist!");
+                    outFolder = outputPath.toFile();
+                    break;
+
+                case "-q":  // flag to include class-name qualifiers in class file names, i.e. pkg.pkg.class_name.ext
+                    exportConfig.setQualifiedClassNames(true);
+                    break;
+
+                case "-p":  // project or XMI file only: UML package depth to guarantee uniquely qualified classes
+                    String depth = getParameterValue(iterator, "-p");
+                    try {
+                        exportConfig.setPackageDepth(Integer.parseInt(depth));
+                    } catch (NumberFormatException ignored) {
+                        throw new UmlAdocExporterException("Invalid argument for -p: " + depth + " (expected numeric)!");
+                    }
+                    break;
+
+                case "-r":  // project or XMI file only: root package
+                    exportConfig.setRootPackageName (getParameterValue (iterator, "-r"));
+                    break;
+
+                case "--threads":  // number of threads used to render class descriptors
+                    String threads = getParameterValue(iterator, "--threads");
+                    try {
+                        exportConfig.setThreads(Integer.parseInt(threads));
+                    } catch (NumberFormatException ignored) {
+                        throw new UmlAdocExporterException("Invalid argument for --threads: " + threads + " (expected numeric)!");
+                    }
+                    if (exportConfig.getThreads() < 1)
+                        throw new UmlAdocExporterException("Invalid argument for --threads: " + threads + " (expected 1 or more)!");
+                    break;
+
+                case "--incremental":  // only write files whose content has changed; remove orphaned class files
+                    exportConfig.setIncremental(true);
+                    break;
+
+                case "--snapshot":  // project or XMI file only: file to save the built model to
+                    exportConfig.setSnapshotFile(new File(getParameterValue(iterator, "--snapshot")));
+                    break;
+
+                case "--archive":  // .zip or .tar file to write all files into, or - for a tar stream to stdout
+                    String archive = getParameterValue(iterator, "--archive");
+                    exportConfig.setArchiveFile(new File(archive));
+                    break;
+
+                case "-?":
+                case "-h":
+                    System.out.println("Usage: uml_render_text [-c component_pkg_names] [-P link_component_prefix] [-k link_template] [-o output_folder] [-l heading_level] [-p uml_pkg_depth] [-q] [-r root_package_name] [--threads N] [--incremental] [--snapshot snapshot_file] [--archive archive_file] <snapshot, project or XMI file>");
+                    System.out.println("       -c: component package name(s) to export (comma-separated; for a snapshot, default = those of the snapshot)");
+                    System.out.println("       -P: component name prefix to use in links");
+                    System.out.println("       -k: spec URL template (default = \"" + UmlExporterDefinitions.DEFAULT_SPEC_LINK_TEMPLATE + "\"");
+                    System.out.println("       -o: output folder (default = current folder)");
+                    System.out.println("       -l: class headings level (default = 3)");
+                    System.out.println("       -p: project or XMI file only: UML package depth for uniqueness (default = " + exportConfig.getPackageDepth() + ")");
+                    System.out.println("       -q: if set, use package-qualified class-names in output files");
+                    System.out.println("       -r: project or XMI file only: root package name to export (default = openehr)");
+                    System.out.println("       --threads: number of threads used to render class descriptors (default = 1)");
+                    System.out.println("       --incremental: only write class and index files whose content has changed, and remove orphaned class files");
+                    System.out.println("       --snapshot: project or XMI file only: file to save the built model to");
+                    System.out.println("       --archive: write all files into a .zip or .tar file, laid out as the output folder would be, or - for a tar stream to stdout");
+                    helpOnly = true;
+                    break;
+
+                default:
+                    Path inputPath = Paths.get(arg);
+                    if (!Files.isReadable(inputPath))
+                        throw new UmlAdocExporterException ("Input file " + arg + " doesn't exist!");
+                    inputFile = inputPath.toFile();
+            }
+        }
+        if (!helpOnly) {
+            if (inputFile == null)
+                throw new UmlAdocExporterException ("No snapshot, project or XMI file specified!");
+            if (exportConfig.getArchiveFile() != null && exportConfig.isIncremental())
+                throw new UmlAdocExporterException ("--archive can't be used with --incremental!");
+            if (exportConfig.getHeadingLevel() <= 0)
+                exportConfig.setHeadingLevel(3);
+            if (outFolder == null)
+                outFolder = new File(".");
+        }
+    }
+
+    private String getParameterValue (Iterator<String> iterator, String param) {
+        if (iterator.hasNext())
+            return iterator.next();
+        else
+            throw new UmlAdocExporterException ("Missing parameter for " + param + '!');
+    }
+}
@@ -1,5 +1,6 @@
 package org.openehr.adoc.magicdraw;
 
+import java.io.File;
 import java.util.*;
 
 import static java.lang.String.join;
@@ -44,6 +45,28 @@ public class UmlExportConfig {
 
     private boolean qualifiedClassNames;
 
+    // number of threads used to render class descriptors; 1 means use the calling thread
+    private int threads = 1;
+
+    // if set, only write class and index files whose content has changed, remove orphaned class files,
+    // and don't export diagrams whose fingerprint is unchanged
+    private boolean incremental;
+
+    // if set, walk only the subtrees of packages within the root package when gathering classifiers
+    private boolean prunedTraversal = true;
+
+    // if set, file to save the built model to, for rendering again without MagicDraw
+    private File snapshotFile;
+
+    // if set, archive to write all files of the export into, instead of the output folder: a .zip
+    // file, a .tar file, or STDOUT_ARCHIVE for a tar stream to stdout
+    private File archiveFile;
+
+    static final String STDOUT_ARCHIVE = "-";
+
+    // if set, write a JSON report of the time, CPU time and allocation of each phase of the export
+    private boolean metricsReport;
+
     private UmlExportConfig() {};
 
     private static UmlExportConfig INSTANCE;
@@ -55,6 +78,14 @@ public class UmlExportConfig {
         return INSTANCE;
     }
 
+    /**
+     * Replace the configuration with one of default values, e.g. before each job run by ExportDaemon,
+     * so that no options carry over from one export to the next. Must not be called during an export.
+     */
+    public static void reset() {
+        INSTANCE = new UmlExportConfig();
+    }
+
 
     public int getHeadingLevel() {
         return headingLevel;
@@ -108,6 +139,58 @@ public class UmlExportConfig {
         this.qualifiedClassNames = qualifiedClassNames;
     }
 
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public boolean isPrunedTraversal() {
+        return prunedTraversal;
+    }
+
+    public void setPrunedTraversal(boolean prunedTraversal) {
+        this.prunedTraversal = prunedTraversal;
+    }
+
+    public File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public void setSnapshotFile(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    public File getArchiveFile() {
+        return archiveFile;
+    }
+
+    public void setArchiveFile(File archiveFile) {
+        this.archiveFile = archiveFile;
+    }
+
+    public boolean isArchiveToStdout() {
+        return archiveFile != null && archiveFile.getPath().equals (STDOUT_ARCHIVE);
+    }
+
+    public boolean isMetricsReport() {
+        return metricsReport;
+    }
+
+    public void setMetricsReport(boolean metricsReport) {
+        this.metricsReport = metricsReport;
+    }
+
     public String getRootPackageName() {
         return rootPackageName;
     }
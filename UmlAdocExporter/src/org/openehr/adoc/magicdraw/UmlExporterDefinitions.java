@@ -10,8 +10,17 @@ import java.util.stream.Stream;
 
 public class UmlExporterDefinitions {
 
+    /**
+     * @deprecated type markers are now found by a scan of type name characters; see isTypeNameChar().
+     * To be removed in the next release.
+     */
+    @Deprecated
     public static final String TYPE_QUOTE_REGEX = "@[A-Za-z0-9_. ]+@";
 
+    /**
+     * @deprecated type names are no longer quoted in generic type names. To be removed in the next release.
+     */
+    @Deprecated
     public static final String BARE_QUOTE_REGEX = "[A-Za-z0-9_][A-Za-z0-9_. ]+";
 
     public static final String DEFAULT_SPEC_LINK_TEMPLATE ="/releases/${component_prefix}${component}/{${component_lower}_release}/${spec_name}.html";
@@ -20,12 +29,9 @@ public class UmlExporterDefinitions {
 
     public static final String STRUCTURES_PACKAGE_NAME_TEMPLATE = "org.$root_package.base.foundation_types.List";
 
-    // wrap class names in @@ except if they are single letter names, which are formal generic parameters
-    // aQualifiedTypeName is of form pkg.pkg.pkg.name
-    protected String quoteTypeName (String aQualifiedTypeName) {
-        return aQualifiedTypeName.lastIndexOf(".") + 2 == aQualifiedTypeName.length() ?
-                aQualifiedTypeName.substring(aQualifiedTypeName.length()-1) :
-                "@" + aQualifiedTypeName + "@";
+    // character of a type name, as quoted in @TypeName@, i.e. [A-Za-z0-9_. ]
+    static boolean isTypeNameChar (char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_' || c == '.' || c == ' ';
     }
 
     public static Map<String, Integer> defaultImageFormats = Stream.of(new Object[][] {
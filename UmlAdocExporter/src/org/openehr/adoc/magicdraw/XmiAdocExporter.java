@@ -0,0 +1,168 @@
+package org.openehr.adoc.magicdraw;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Exporter of the class files and class index of a UML model read from a MagicDraw .mdzip project
+ * or an XMI file by XmiModelReader, i.e. without the MagicDraw runtime. Builds the same ClassInfo
+ * objects as UmlAdocExporter and renders them with ClassDocumentPublisher. Diagrams are not exported,
+ * since they can only be rendered by MagicDraw.
+ */
+public class XmiAdocExporter {
+
+    private final Formatter formatter = new AsciidocFormatter();
+    private final UmlExportConfig exportConfig;
+
+    // registry of all ClassInfo keyed by class key
+    private EntityRegistry allEntities = new EntityRegistry (new SymbolTable());
+
+    // names of requested components not found as packages in the model
+    private List<String> unresolvedComponentNames = new ArrayList<>();
+
+    // renderer and writer of the class and index documents in the last export
+    private ClassDocumentPublisher documentPublisher;
+
+    // metrics of the phases of the last export
+    private ExportMetrics exportMetrics = new ExportMetrics();
+
+    public XmiAdocExporter() {
+        this.exportConfig = UmlExportConfig.getInstance();
+    }
+
+    /**
+     * Export the UML model of a project or XMI file as a set of files.
+     * @param outputFolder Directory in which to write the files.
+     * @param modelPath .mdzip project or XMI file.
+     */
+    public void exportModel (File outputFolder, Path modelPath) throws InterruptedException {
+        exportMetrics = new ExportMetrics();
+        ExportMetrics.Probe loadProbe = ExportMetrics.Probe.start();
+        XmiModel model = XmiModel.read (modelPath);
+        exportMetrics.phase ("model load").end (loadProbe.stop());
+        buildEntities (model);
+
+        // save the built model, so that the output can be rendered again without reading the model
+        if (exportConfig.getSnapshotFile() != null) {
+            ExportMetrics.Probe probe = ExportMetrics.Probe.start();
+            ModelSnapshot.write (exportConfig.getSnapshotFile().toPath(), exportConfig.getComponentPackageNames(), allEntities.values());
+            exportMetrics.phase ("snapshot").end (probe.stop());
+        }
+
+        ForkJoinPool workerPool = exportConfig.getThreads() > 1 ? new ForkJoinPool (exportConfig.getThreads()) : null;
+        try {
+            documentPublisher = new ClassDocumentPublisher (formatter, exportConfig, allEntities, workerPool, exportMetrics);
+            documentPublisher.publish (outputFolder);
+        }
+        finally {
+            if (workerPool != null)
+                workerPool.shutdown();
+        }
+    }
+
+    /**
+     * Walk the model and build the global map of ClassInfo objects for all classes, interfaces and
+     * enumerations within the root package; see UmlAdocExporter.buildEntities(). Package-private
+     * for the benchmarks.
+     */
+    void buildEntities (XmiModel model) {
+        XmiElement primaryModel = model.getPrimaryModel();
+        unresolvedComponentNames = exportConfig.getComponentPackageNames().stream()
+                .filter (cn -> primaryModel.getOwnedElements().stream().noneMatch (e -> cn.equalsIgnoreCase (e.getName())))
+                .collect(Collectors.toList());
+
+        ExportMetrics.Probe traversalProbe = ExportMetrics.Probe.start();
+        List<XmiElement> umlClasses = new ArrayList<>();
+        List<XmiElement> umlInterfaces = new ArrayList<>();
+        List<XmiElement> umlEnumerations = new ArrayList<>();
+        traverse (primaryModel, umlClasses, umlInterfaces, umlEnumerations);
+        ExportMetrics.Phase traversalPhase = exportMetrics.phase ("traversal");
+        traversalPhase.addCount (umlClasses.size() + umlInterfaces.size() + umlEnumerations.size());
+        traversalPhase.end (traversalProbe.stop());
+
+        SymbolTable symbolTable = new SymbolTable();
+        XmiInfoBuilder infoBuilder = new XmiInfoBuilder (formatter, model, symbolTable);
+        List<ClassInfo> classes = buildAll (umlClasses, infoBuilder::buildClass, exportMetrics.phase ("build classes"));
+        List<ClassInfo> interfaces = buildAll (umlInterfaces, infoBuilder::buildInterface, exportMetrics.phase ("build interfaces"));
+        List<ClassInfo> enumerations = buildAll (umlEnumerations, infoBuilder::buildEnumeration, exportMetrics.phase ("build enumerations"));
+
+        ExportMetrics.Probe mergeProbe = ExportMetrics.Probe.start();
+        allEntities = new EntityRegistry (symbolTable);
+        InfoBuilderSupport.mergeEntities (allEntities, classes, interfaces, enumerations, exportConfig.getComponentPackageNames());
+        ExportMetrics.Phase mergePhase = exportMetrics.phase ("merge entities");
+        mergePhase.addCount (allEntities.size());
+        mergePhase.end (mergeProbe.stop());
+    }
+
+    // build the descriptors of elements in order, adding the measurements of each to a phase
+    private List<ClassInfo> buildAll (List<XmiElement> elements, Function<XmiElement, ClassInfo> builder, ExportMetrics.Phase buildPhase) {
+        ExportMetrics.Probe probe = ExportMetrics.Probe.start();
+        List<ClassInfo> classInfos = elements.stream().map (element -> {
+            ExportMetrics.Probe itemProbe = ExportMetrics.Probe.start();
+            ClassInfo classInfo = ExporterEvents.build (element, builder);
+            buildPhase.addItem (classInfo.getQualifiedClassName(), itemProbe.stop());
+            return classInfo;
+        }).collect(Collectors.toList());
+        buildPhase.end (probe.stop());
+        return classInfos;
+    }
+
+    // depth-first walk of the containment tree, in the same order as ModelTraversal
+    private void traverse (XmiElement element, List<XmiElement> umlClasses, List<XmiElement> umlInterfaces, List<XmiElement> umlEnumerations) {
+        if (XmiModel.isClass (element)) {
+            if (!element.getName().contains("<") && matchesRootPackage (element))
+                umlClasses.add (element);
+        }
+        else if ("Interface".equals (element.getType())) {
+            if (!element.getName().contains("<") && matchesRootPackage (element))
+                umlInterfaces.add (element);
+        }
+        else if ("Enumeration".equals (element.getType())) {
+            if (matchesRootPackage (element))
+                umlEnumerations.add (element);
+        }
+
+        if (XmiModel.isNamespace (element)) {
+            for (XmiElement ownedElement : element.getOwnedElements())
+                traverse (ownedElement, umlClasses, umlInterfaces, umlEnumerations);
+        }
+    }
+
+    private boolean matchesRootPackage (XmiElement element) {
+        return element.getQualifiedName().contains(exportConfig.getRootPackageName() + "::");
+    }
+
+    public EntityRegistry getAllEntities() {
+        return allEntities;
+    }
+
+    /**
+     * Metrics of each phase of the last export.
+     */
+    public ExportMetrics getExportMetrics() {
+        return exportMetrics;
+    }
+
+    /**
+     * @return names of the requested components that were not found as packages in the model.
+     */
+    public List<String> getUnresolvedComponentNames() {
+        return unresolvedComponentNames;
+    }
+
+    public int getDocumentsWrittenCount() {
+        return documentPublisher == null ? 0 : documentPublisher.getDocumentsWrittenCount();
+    }
+
+    public int getDocumentsUnchangedCount() {
+        return documentPublisher == null ? 0 : documentPublisher.getDocumentsUnchangedCount();
+    }
+
+    public int getOrphansRemovedCount() {
+        return documentPublisher == null ? 0 : documentPublisher.getOrphansRemovedCount();
+    }
+}
@@ -0,0 +1,190 @@
+package org.openehr.adoc.magicdraw;
+
+import java.util.*;
+
+/**
+ * Element of a UML model read from XMI, i.e. an XML element with an xmi:type. Holds the plain
+ * XML attributes of the element, the elements it owns, and the values of its child elements
+ * that are references (href or xmi:idref) or text (e.g. the body of an opaque expression);
+ * references are resolved by XmiModel.
+ */
+public class XmiElement {
+
+    private final String id;
+    private final String type;          // UML meta-class, e.g. "Class" for xmi:type="uml:Class"
+    private final String role;          // property of the owner containing this element, e.g. "packagedElement"
+    private final XmiElement owner;     // null for a root element, e.g. the model
+    private final boolean external;     // true if only known by an unresolved href
+
+    private final Map<String, String> attributes = new HashMap<>();
+    private final List<XmiElement> ownedElements = new ArrayList<>();
+
+    // child elements that are references or text, by property; created when first needed,
+    // since most elements have none
+    private Map<String, List<String>> references;
+    private Map<String, List<String>> values;
+
+    private String qualifiedName;       // computed on first call to getQualifiedName()
+
+    XmiElement (String id, String type, String role, XmiElement owner) {
+        this (id, type, role, owner, false);
+    }
+
+    private XmiElement (String id, String type, String role, XmiElement owner, boolean external) {
+        this.id = id;
+        this.type = type;
+        this.role = role;
+        this.owner = owner;
+        this.external = external;
+    }
+
+    /**
+     * Create a stand-in for an element outside the files read, known only by its href.
+     * @param href reference to the element, e.g. "http://www.omg.org/spec/UML/20131001/PrimitiveTypes.xmi#String".
+     * @param name name to give the element, normally the fragment of the href.
+     */
+    static XmiElement external (String href, String name) {
+        XmiElement element = new XmiElement (href, "Type", null, null, true);
+        element.attributes.put ("name", name);
+        return element;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public XmiElement getOwner() {
+        return owner;
+    }
+
+    public String getAttribute (String name) {
+        return attributes.get (name);
+    }
+
+    public boolean isTrue (String attributeName) {
+        return "true".equals (attributes.get (attributeName));
+    }
+
+    /**
+     * Name of the element; empty if it has none.
+     */
+    public String getName() {
+        String name = attributes.get ("name");
+        return name == null ? "" : name;
+    }
+
+    /**
+     * Qualified name of the element in the UML form, e.g. "RM::org::openehr::rm::common::PATHABLE",
+     * formed from the names of the element and its named owners; as in MagicDraw, the name of the
+     * root model is not included.
+     */
+    public String getQualifiedName() {
+        if (qualifiedName == null) {
+            if (external)
+                qualifiedName = getName();
+            else {
+                Deque<String> names = new ArrayDeque<>();
+                for (XmiElement element = this; element.owner != null; element = element.owner) {
+                    if (!element.getName().isEmpty())
+                        names.push (element.getName());
+                }
+                qualifiedName = String.join ("::", names);
+            }
+        }
+        return qualifiedName;
+    }
+
+    /**
+     * Human-readable name, as shown by MagicDraw, e.g. "Class T" or "Data Type T".
+     */
+    public String getHumanName() {
+        return type.replaceAll ("([a-z])([A-Z])", "$1 $2") + " " + getName();
+    }
+
+    public List<XmiElement> getOwnedElements() {
+        return ownedElements;
+    }
+
+    /**
+     * Owned elements contained in a property, in document order, e.g. "ownedAttribute".
+     */
+    public List<XmiElement> getOwnedElements (String role) {
+        List<XmiElement> result = new ArrayList<>();
+        for (XmiElement element : ownedElements) {
+            if (role.equals (element.role))
+                result.add (element);
+        }
+        return result;
+    }
+
+    /**
+     * First owned element contained in a property; null if there is none.
+     */
+    public XmiElement getOwnedElement (String role) {
+        for (XmiElement element : ownedElements) {
+            if (role.equals (element.role))
+                return element;
+        }
+        return null;
+    }
+
+    /**
+     * Unresolved references in a property, given either as an attribute of space-separated ids,
+     * or as child elements with an href or xmi:idref.
+     */
+    public List<String> getReferences (String role) {
+        List<String> result = new ArrayList<>();
+        String attribute = attributes.get (role);
+        if (attribute != null && !attribute.isEmpty())
+            result.addAll (Arrays.asList (attribute.trim().split ("\\s+")));
+        if (references != null)
+            result.addAll (references.getOrDefault (role, Collections.emptyList()));
+        return result;
+    }
+
+    /**
+     * Text values of a property, given either as an attribute or as child elements.
+     */
+    public List<String> getValues (String role) {
+        List<String> result = new ArrayList<>();
+        String attribute = attributes.get (role);
+        if (attribute != null)
+            result.add (attribute);
+        if (values != null)
+            result.addAll (values.getOrDefault (role, Collections.emptyList()));
+        return result;
+    }
+
+    void putAttribute (String name, String value) {
+        attributes.put (name, value);
+    }
+
+    void addOwnedElement (XmiElement element) {
+        ownedElements.add (element);
+    }
+
+    void addReference (String role, String reference) {
+        if (references == null)
+            references = new HashMap<>();
+        references.computeIfAbsent (role, r -> new ArrayList<>()).add (reference);
+    }
+
+    void addValue (String role, String value) {
+        if (values == null)
+            values = new HashMap<>();
+        values.computeIfAbsent (role, r -> new ArrayList<>()).add (value);
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + getQualifiedName();
+    }
+}
@@ -0,0 +1,392 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Builder of ClassInfo objects for the classes, interfaces and enumerations of a UML model read
+ * from XMI, producing the same descriptors as ClassInfoBuilder, InterfaceInfoBuilder and
+ * EnumerationInfoBuilder do from the MagicDraw model. Only the reading of the model is done
+ * here; the descriptors are assembled by the rules of InfoBuilderSupport, shared with those builders.
+ */
+public class XmiInfoBuilder extends InfoBuilderSupport {
+
+    private final XmiModel model;
+
+    // Inherited attributes and operations of each class visited so far, keyed by class; see ClassInfoBuilder
+    private final Map<XmiElement, InheritedFeatures> inheritedFeaturesCache = new HashMap<>();
+
+    /**
+     * @param symbolTable symbols of the export, in which package and qualified names are interned.
+     */
+    public XmiInfoBuilder (Formatter formatter, XmiModel model, SymbolTable symbolTable) {
+        super(formatter, new HashMap<>(), symbolTable);
+        this.model = model;
+    }
+
+    /**
+     * Build a descriptor for a class; see ClassInfoBuilder.
+     */
+    public ClassInfo buildClass (XmiElement umlClass) {
+        String className = umlClass.getName();
+
+        // check for template parts
+        XmiElement tplSig = umlClass.getOwnedElement ("ownedTemplateSignature");
+        if (tplSig != null) {
+            String tplParamsStr = tplSig.getOwnedElements ("ownedParameter").stream()
+                    .map(t -> parameteredElement (t).getHumanName().replace("Class ", ""))
+                    .collect(Collectors.joining(","));
+            className = className + '<' + tplParamsStr + '>';
+        }
+
+        ClassInfo classInfo = new ClassInfo("Class")
+                .setClassTypeName (className)
+                .setDocumentation (getParsedComment (umlClass).getDocumentation())
+                .setAbstractClass (umlClass.isTrue ("isAbstract"));
+
+        setHierarchy (umlClass.getQualifiedName(), UmlExportConfig.getInstance().getPackageDepth(), classInfo);
+
+        Map<String, XmiElement> superClassAttributes = Collections.emptyMap();
+        Map<String, XmiElement> superClassOperations = Collections.emptyMap();
+
+        List<XmiElement> superClasses = superClasses (umlClass);
+        if (!superClasses.isEmpty()) {
+            for (XmiElement umlSuperClass: superClasses)
+                classInfo.addQualifiedParentClassName (convertToQualified (umlSuperClass.getQualifiedName()).getQualifiedName());
+
+            InheritedFeatures inheritedFeatures = getSuperClassData (umlClass);
+            superClassAttributes = inheritedFeatures.attributes;
+            superClassOperations = inheritedFeatures.operations;
+        }
+
+        List<XmiElement> ownedAttributes = umlClass.getOwnedElements ("ownedAttribute");
+        if (!ownedAttributes.isEmpty()) {
+            addAttributes (classInfo.getAttributes(), ownedAttributes, superClassAttributes);
+            addConstants (classInfo.getConstants(), ownedAttributes, superClassAttributes);
+        }
+        List<XmiElement> ownedOperations = umlClass.getOwnedElements ("ownedOperation");
+        if (!ownedOperations.isEmpty())
+            addOperations (classInfo.getOperations(), ownedOperations, superClassOperations);
+
+        addConstraints (classInfo.getConstraints(), model.getConstraints (umlClass));
+
+        return classInfo;
+    }
+
+    /**
+     * Build a descriptor for an interface; see InterfaceInfoBuilder.
+     */
+    public ClassInfo buildInterface (XmiElement element) {
+        ClassInfo classInfo = new ClassInfo("Interface")
+                .setClassTypeName (element.getName())
+                .setDocumentation (getParsedComment (element).getDocumentation())
+                .setAbstractClass (element.isTrue ("isAbstract"));
+
+        setHierarchy (element.getQualifiedName(), UmlExportConfig.getInstance().getPackageDepth(), classInfo);
+
+        List<XmiElement> ownedAttributes = element.getOwnedElements ("ownedAttribute");
+        if (!ownedAttributes.isEmpty())
+            addAttributes (classInfo.getAttributes(), ownedAttributes, Collections.emptyMap());
+
+        List<XmiElement> ownedOperations = element.getOwnedElements ("ownedOperation");
+        if (!ownedOperations.isEmpty())
+            addOperations (classInfo.getOperations(), ownedOperations, Collections.emptyMap());
+
+        addConstraints (classInfo.getConstraints(), model.getConstraints (element));
+
+        return classInfo;
+    }
+
+    /**
+     * Build a descriptor for an enumeration; see EnumerationInfoBuilder.
+     */
+    public ClassInfo buildEnumeration (XmiElement element) {
+        ClassInfo classInfo = new ClassInfo("Enumeration")
+                .setClassTypeName (element.getName())
+                .setDocumentation (getParsedComment (element).getDocumentation());
+
+        setHierarchy (element.getQualifiedName(), UmlExportConfig.getInstance().getPackageDepth(), classInfo);
+
+        for (XmiElement literal : element.getOwnedElements ("ownedLiteral")) {
+            classInfo.getAttributes().add(new ClassFeatureInfo()
+                    .setSignature(new Signature().append(literal.getName()))
+                    .setDocumentation(getParsedComment (literal).getDocumentation()));
+        }
+
+        return classInfo;
+    }
+
+    // comments of an element, parsed once; elements without comments, i.e. most, are not cached
+    private ParsedComment getParsedComment (XmiElement element) {
+        return element.getOwnedElement ("ownedComment") == null ? ParsedComment.EMPTY : getParsedComment (element, XmiInfoBuilder::commentBodies);
+    }
+
+    // bodies of the comments owned by an element, given as an attribute or as child elements
+    private static List<String> commentBodies (XmiElement element) {
+        List<String> bodies = new ArrayList<>();
+        for (XmiElement comment : element.getOwnedElements ("ownedComment"))
+            bodies.addAll (comment.getValues ("body"));
+        return bodies;
+    }
+
+    // the classes that are generals of a class's generalizations, in order
+    private List<XmiElement> superClasses (XmiElement umlClass) {
+        List<XmiElement> superClasses = new ArrayList<>();
+        for (XmiElement generalization : umlClass.getOwnedElements ("generalization")) {
+            XmiElement general = model.resolveFirst (generalization, "general");
+            if (general != null && XmiModel.isClass (general))
+                superClasses.add (general);
+        }
+        return superClasses;
+    }
+
+    private XmiElement parameteredElement (XmiElement templateParameter) {
+        XmiElement element = model.resolveFirst (templateParameter, "parameteredElement");
+        if (element == null)
+            element = templateParameter.getOwnedElement ("ownedParameteredElement");
+        if (element == null)
+            throw new UmlAdocExporterException ("No parametered element for template parameter " + templateParameter.getId() + "; check model");
+        return element;
+    }
+
+    /**
+     * Obtain the attributes and operations inherited by a class from all of its ancestors, keyed by
+     * name; see ClassInfoBuilder.
+     */
+    private InheritedFeatures getSuperClassData (XmiElement element) {
+        InheritedFeatures inheritedFeatures = inheritedFeaturesCache.get (element);
+        if (inheritedFeatures == null) {
+            Map<String, XmiElement> superClassAttributes = new HashMap<>();
+            Map<String, XmiElement> superClassOperations = new HashMap<>();
+            for (XmiElement superClass : superClasses (element)) {
+                superClassAttributes.putAll (superClass.getOwnedElements ("ownedAttribute").stream().collect (Collectors.toMap (XmiElement::getName, p -> p, (p1, p2) -> p1)));
+                superClassOperations.putAll (superClass.getOwnedElements ("ownedOperation").stream().collect (Collectors.toMap (XmiElement::getName, p -> p, (p1, p2) -> p1)));
+
+                InheritedFeatures superClassFeatures = getSuperClassData (superClass);
+                superClassAttributes.putAll (superClassFeatures.attributes);
+                superClassOperations.putAll (superClassFeatures.operations);
+            }
+            inheritedFeatures = new InheritedFeatures (Collections.unmodifiableMap (superClassAttributes), Collections.unmodifiableMap (superClassOperations));
+            inheritedFeaturesCache.put (element, inheritedFeatures);
+        }
+        return inheritedFeatures;
+    }
+
+    private static class InheritedFeatures {
+        private final Map<String, XmiElement> attributes;
+        private final Map<String, XmiElement> operations;
+
+        private InheritedFeatures (Map<String, XmiElement> attributes, Map<String, XmiElement> operations) {
+            this.attributes = attributes;
+            this.operations = operations;
+        }
+    }
+
+    // Add class- or routine-level constraints
+    private void addConstraints (List<ConstraintInfo> constraints, List<XmiElement> umlConstraints) {
+        for (XmiElement constraint : umlConstraints)
+            constraints.add(new ConstraintInfo().setDocumentation(formatConstraint(constraint)));
+    }
+
+    private String formatConstraint (XmiElement constraint) {
+        XmiElement specification = constraint.getOwnedElement ("specification");
+        List<String> bodyLines = specification != null && "OpaqueExpression".equals (specification.getType())
+                ? specification.getValues ("body")
+                : Collections.emptyList();
+        return formatConstraint (constraint.getName(), bodyLines);
+    }
+
+    private void addAttributes (List<ClassFeatureInfo> attributes, List<XmiElement> properties, Map<String, XmiElement> superClassAttributes) {
+        addProperties (attributes, properties, superClassAttributes, false, XmiElement::getName, p -> p.isTrue("isReadOnly"), this::buildAttribute);
+    }
+
+    private void addConstants (List<ClassFeatureInfo> attributes, List<XmiElement> properties, Map<String, XmiElement> superClassAttributes) {
+        addProperties (attributes, properties, superClassAttributes, true, XmiElement::getName, p -> p.isTrue("isReadOnly"), this::buildAttribute);
+    }
+
+    /**
+     * Build a ClassFeatureInfo object for property; see AbstractInfoBuilder.
+     */
+    private ClassFeatureInfo buildAttribute (XmiElement umlProperty, OperationStatus attrStatus) {
+        int lower = lower (umlProperty);
+        int upper = upper (umlProperty);
+
+        // determine the type in qualified form
+        XmiElement type = model.resolveFirst (umlProperty, "type");
+        TypeExpression propertyType = type == null ? TypeExpression.named ("") : convertToQualified (type.getQualifiedName());
+
+        // if there is a qualifier on the property, get it, since this will modify the type
+        XmiElement umlQualifier = umlProperty.getAttribute ("association") != null ? umlProperty.getOwnedElement ("qualifier") : null;
+
+        // Now create a proper type, with corrections to inject List<> and Hash<> where needed
+        Signature typeInfo = new Signature().append (correctType (propertyType,
+                umlQualifier == null ? null : umlQualifier.getName(),
+                umlQualifier == null ? null : convertToQualified (qualifierTypeName (umlQualifier)),
+                lower, upper));
+
+        // If there is a default value defined, attach it to the type, on a new line.
+        XmiElement defaultValue = umlProperty.getOwnedElement ("defaultValue");
+        if (defaultValue != null)
+            addDefaultValue (typeInfo, umlProperty.isTrue ("isReadOnly"), formatDefaultValue (defaultValue));
+
+        return buildAttribute (umlProperty.getName(), getParsedComment (umlProperty).getDocumentation(), attrStatus, typeInfo, lower, upper);
+    }
+
+    private String qualifierTypeName (XmiElement umlQualifier) {
+        XmiElement type = model.resolveFirst (umlQualifier, "type");
+        if (type == null)
+            throw new UmlAdocExporterException ("No type for qualifier " + umlQualifier.getName() + " of " + umlQualifier.getOwner() + "; check model");
+        return type.getQualifiedName();
+    }
+
+    /**
+     * Format the default value of a property.
+     * @return null if the kind of value is not supported.
+     */
+    private String formatDefaultValue (XmiElement defaultValue) {
+        String value = defaultValue.getAttribute ("value");
+        switch (defaultValue.getType()) {
+            case "LiteralString":
+                return formatter.escapeLiteral(value == null ? "" : value);
+            case "LiteralInteger":
+                return String.valueOf(value == null ? 0 : Integer.parseInt(value));
+            case "LiteralReal":
+                return String.valueOf(value == null ? 0.0 : Double.parseDouble(value));
+            case "LiteralBoolean":
+                return String.valueOf(Boolean.parseBoolean(value));
+            case "InstanceValue":
+                XmiElement instance = model.resolveFirst (defaultValue, "instance");
+                return formatInstanceValue (instance == null ? null : instance.getName());
+            default:
+                return null;
+        }
+    }
+
+    private void addOperations (List<ClassFeatureInfo> features, List<XmiElement> operations, Map<String, XmiElement> superClassOperations) {
+        for (XmiElement op : operations) {
+            XmiElement inheritedOp = superClassOperations.get(op.getName());
+            features.add(buildOperation(op, operationStatus(op.isTrue("isAbstract"), inheritedOp == null ? null : inheritedOp.isTrue("isAbstract"))));
+        }
+    }
+
+    /**
+     * Build a ClassFeatureInfo for operation; see AbstractInfoBuilder.
+     */
+    private ClassFeatureInfo buildOperation (XmiElement umlOperation, OperationStatus opStatus) {
+        // operator aliases, from the tags of the <<Operator>> and <<Symbolic_operator>> stereotypes
+        List<String> tagNames = new ArrayList<>();
+        List<List<String>> tagValues = new ArrayList<>();
+        for (XmiModel.Tag tag : model.getTags (umlOperation)) {
+            tagNames.add(tag.getName());
+            tagValues.add(tag.getValues());
+        }
+
+        // If there are parameters, output them within parentheses; also
+        // add the parameter documentation to the documentary text
+        List<XmiElement> parameters = umlOperation.getOwnedElements ("ownedParameter");
+        List<Signature> formattedParameters = null;
+        List<String> paramNames = null;
+        List<String> paramComments = null;
+        if (!parameters.isEmpty()) {
+            formattedParameters = new ArrayList<>();
+            paramNames = new ArrayList<>();
+            paramComments = new ArrayList<>();
+            for (XmiElement parameter : parameters) {
+                String paramName = parameter.getName();
+                if (isSignatureParameter(paramName)) {
+                    XmiElement type = model.resolveFirst (parameter, "type");
+                    formattedParameters.add(formatSignatureParameter(paramName,
+                            type == null ? null : convertToQualified (type.getQualifiedName()),
+                            lower (parameter), upper (parameter)));
+                    paramNames.add(paramName);
+                    paramComments.add(getParsedComment (parameter).getDocumentation());
+                }
+            }
+        }
+
+        // Output any operation pre- and post-conditions (UML constraints)
+        List<String> constraintNames = new ArrayList<>();
+        List<String> formattedConstraints = new ArrayList<>();
+        for (XmiElement constraint : model.getConstraints (umlOperation)) {
+            constraintNames.add(constraint.getName());
+            formattedConstraints.add(formatConstraint(constraint));
+        }
+
+        // the return type and the multiplicity of the result are those of the return parameter
+        XmiElement returnParameter = returnParameter (umlOperation);
+        XmiElement returnType = returnParameter == null ? null : model.resolveFirst (returnParameter, "type");
+        int lower = returnParameter == null ? 1 : lower (returnParameter);
+        int upper = returnParameter == null ? 1 : upper (returnParameter);
+        Signature signature = formatOperationSignature (umlOperation.getName(), formatOperatorAliases(tagNames, tagValues), formattedParameters,
+                returnType == null ? null : convertToQualified (returnType.getQualifiedName()), lower, upper, constraintNames, formattedConstraints);
+
+        return buildOperation (formatOperationDocumentation (getParsedComment (umlOperation), paramNames, paramComments),
+                opStatus, signature, lower, upper);
+    }
+
+    private static XmiElement returnParameter (XmiElement umlOperation) {
+        for (XmiElement parameter : umlOperation.getOwnedElements ("ownedParameter")) {
+            if ("return".equals (parameter.getAttribute ("direction")))
+                return parameter;
+        }
+        return null;
+    }
+
+    // multiplicity bounds, as given by lowerValue and upperValue; 1 if not given, and -1 for '*'
+    private static int lower (XmiElement element) {
+        XmiElement lowerValue = element.getOwnedElement ("lowerValue");
+        if (lowerValue == null)
+            return 1;
+        String value = lowerValue.getAttribute ("value");
+        return value == null ? 0 : Integer.parseInt (value);
+    }
+
+    private static int upper (XmiElement element) {
+        XmiElement upperValue = element.getOwnedElement ("upperValue");
+        if (upperValue == null)
+            return 1;
+        String value = upperValue.getAttribute ("value");
+        return value == null ? 0 : "*".equals (value) ? -1 : Integer.parseInt (value);
+    }
+
+    /**
+     * Convert a UML style qualified class name string to a type with a fixed depth name, building
+     * the actual parameters of generic types; see AbstractInfoBuilder.resolveType().
+     */
+    @Override
+    TypeExpression resolveType (String umlQualifiedTypeName) {
+        String qualifiedTypeName = packageQualifiedClassName (umlQualifiedTypeName, UmlExportConfig.getInstance().getPackageDepth());
+        if (!qualifiedTypeName.contains("<"))
+            return TypeExpression.named (qualifiedTypeName);
+
+        XmiElement typeClass = model.findClass (umlQualifiedTypeName);
+        if (typeClass == null)
+            throw new UmlAdocExporterException("Couldn't find UML Class object for type: " + umlQualifiedTypeName);
+
+        List<XmiElement> tplBindings = typeClass.getOwnedElements ("templateBinding");
+        if (tplBindings.isEmpty())
+            throw new UmlAdocExporterException("Couldn't find any template bindings for generic class " + umlQualifiedTypeName);
+
+        List<TypeExpression> parameters = new ArrayList<>();
+        for (XmiElement tplBinding: tplBindings) {
+            List<XmiElement> tplParamSubsts = tplBinding.getOwnedElements ("parameterSubstitution");
+            if (tplParamSubsts.isEmpty())
+                throw new UmlAdocExporterException("Couldn't find any template param substitutions for generic class " + umlQualifiedTypeName);
+
+            // substitutions are iterated backwards, as in AbstractInfoBuilder, where MagicDraw returns
+            // them in reverse order to that declared in the model
+            for (int i = tplParamSubsts.size() - 1; i >= 0 ; i--) {
+                XmiElement pElem = model.resolveFirst (tplParamSubsts.get(i), "actual");
+                if (pElem == null)
+                    pElem = tplParamSubsts.get(i).getOwnedElement ("ownedActual");
+                if (pElem == null)
+                    throw new UmlAdocExporterException("Null actual generic class parameter in " + umlQualifiedTypeName + "; check model");
+
+                parameters.add (actualParameterType (pElem.getQualifiedName(), pElem.getName(), XmiModel.isClass (pElem)));
+            }
+        }
+        return boundType (qualifiedTypeName, parameters);
+    }
+}
@@ -0,0 +1,182 @@
+package org.openehr.adoc.magicdraw;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * UML model read from XMI by XmiModelReader, with the lookups needed to build ClassInfo objects
+ * without MagicDraw: elements by id, classes by qualified name, the constraints on each element,
+ * and the stereotype tags applied to each element.
+ */
+public class XmiModel {
+
+    // meta-classes that are, or specialise, UML Class
+    static final Set<String> CLASS_TYPES = new HashSet<>(Arrays.asList (
+            "Class", "AssociationClass", "Component", "Stereotype", "Node", "Device", "ExecutionEnvironment",
+            "Activity", "StateMachine", "ProtocolStateMachine", "Interaction", "OpaqueBehavior", "FunctionBehavior"));
+
+    // meta-classes that are namespaces, i.e. that can own classifiers
+    static final Set<String> NAMESPACE_TYPES = new HashSet<>(CLASS_TYPES);
+    static {
+        NAMESPACE_TYPES.addAll (Arrays.asList ("Model", "Package", "Profile", "Interface", "Enumeration", "DataType",
+                "PrimitiveType", "Signal", "Association", "Collaboration", "UseCase", "Actor", "Artifact"));
+    }
+
+    private final List<XmiElement> rootElements = new ArrayList<>();
+    private final Map<String, XmiElement> elementsById = new HashMap<>();
+    private final Map<String, XmiElement> externalElements = new HashMap<>();
+
+    // stereotype tags applied to elements, by element id
+    private final Map<String, List<Tag>> tagsById = new HashMap<>();
+
+    // built once reading is complete
+    private final Map<String, List<XmiElement>> constraintsById = new HashMap<>();
+    private final Map<String, XmiElement> classesByQualifiedName = new HashMap<>();
+
+    /**
+     * Tag of a stereotype applied to an element, e.g. "ops" with values "+" and "plus".
+     */
+    public static class Tag {
+        private final String name;
+        private final List<String> values;
+
+        Tag (String name, List<String> values) {
+            this.name = name;
+            this.values = values;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<String> getValues() {
+            return values;
+        }
+    }
+
+    /**
+     * Read the UML model in a MagicDraw .mdzip project, or in a plain XMI file.
+     * @param path project or XMI file.
+     */
+    public static XmiModel read (Path path) {
+        return new XmiModelReader().read (path);
+    }
+
+    /**
+     * The first model read, which for an .mdzip is the project's own model, rather than
+     * one of the projects it uses.
+     * @return null if there is none.
+     */
+    public XmiElement getPrimaryModel() {
+        for (XmiElement element : rootElements) {
+            if ("Model".equals (element.getType()))
+                return element;
+        }
+        return rootElements.isEmpty() ? null : rootElements.get (0);
+    }
+
+    /**
+     * Resolve a reference, i.e. an id, or an href whose fragment is an id; an href to an element
+     * not read, e.g. a standard primitive type, is resolved to a stand-in named by its fragment.
+     * @return null if reference is null, or is an id not read.
+     */
+    public XmiElement resolve (String reference) {
+        if (reference == null)
+            return null;
+
+        int hashIndex = reference.lastIndexOf ('#');
+        if (hashIndex < 0)
+            return elementsById.get (reference);
+
+        XmiElement element = elementsById.get (reference.substring (hashIndex + 1));
+        if (element != null)
+            return element;
+        return externalElements.computeIfAbsent (reference, r -> XmiElement.external (r, r.substring (hashIndex + 1)));
+    }
+
+    /**
+     * First element referred to in a property of element, e.g. the "type" of a property.
+     * @return null if there is none.
+     */
+    public XmiElement resolveFirst (XmiElement element, String role) {
+        List<String> references = element.getReferences (role);
+        return references.isEmpty() ? null : resolve (references.get (0));
+    }
+
+    /**
+     * Elements referred to in a property of element, in order, omitting any that are not read.
+     */
+    public List<XmiElement> resolveAll (XmiElement element, String role) {
+        List<XmiElement> result = new ArrayList<>();
+        for (String reference : element.getReferences (role)) {
+            XmiElement resolved = resolve (reference);
+            if (resolved != null)
+                result.add (resolved);
+        }
+        return result;
+    }
+
+    /**
+     * Constraints whose constrained elements include element, in document order.
+     */
+    public List<XmiElement> getConstraints (XmiElement element) {
+        return constraintsById.getOrDefault (element.getId(), Collections.emptyList());
+    }
+
+    /**
+     * Tags of the stereotypes applied to element, in document order.
+     */
+    public List<Tag> getTags (XmiElement element) {
+        return tagsById.getOrDefault (element.getId(), Collections.emptyList());
+    }
+
+    /**
+     * Find a class by UML qualified name; where more than one has the name, the first read.
+     * @return null if there is none.
+     */
+    public XmiElement findClass (String qualifiedName) {
+        return classesByQualifiedName.get (qualifiedName);
+    }
+
+    public static boolean isClass (XmiElement element) {
+        return CLASS_TYPES.contains (element.getType());
+    }
+
+    public static boolean isNamespace (XmiElement element) {
+        return NAMESPACE_TYPES.contains (element.getType());
+    }
+
+    void addRootElement (XmiElement element) {
+        rootElements.add (element);
+    }
+
+    void addElement (XmiElement element) {
+        if (element.getId() != null)
+            elementsById.putIfAbsent (element.getId(), element);
+    }
+
+    void addTags (String elementId, List<Tag> tags) {
+        tagsById.computeIfAbsent (elementId, id -> new ArrayList<>()).addAll (tags);
+    }
+
+    // build the lookups that need the whole model, once reading is complete
+    void index() {
+        for (XmiElement rootElement : rootElements)
+            index (rootElement);
+    }
+
+    private void index (XmiElement element) {
+        if ("Constraint".equals (element.getType())) {
+            for (String constrainedId : element.getReferences ("constrainedElement")) {
+                XmiElement constrained = resolve (constrainedId);
+                if (constrained != null)
+                    constraintsById.computeIfAbsent (constrained.getId(), id -> new ArrayList<>()).add (element);
+            }
+        }
+        else if (isClass (element))
+            classesByQualifiedName.putIfAbsent (element.getQualifiedName(), element);
+
+        for (XmiElement ownedElement : element.getOwnedElements())
+            index (ownedElement);
+    }
+}
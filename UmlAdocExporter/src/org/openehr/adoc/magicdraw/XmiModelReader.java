@@ -0,0 +1,263 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Single-pass StAX reader of the UML model in a MagicDraw .mdzip project, i.e. a zip of XMI
+ * files, or in a plain XMI file, which needs no MagicDraw runtime. Only the structure needed
+ * to build ClassInfo objects is kept; MagicDraw extensions (xmi:Extension) are skipped
+ * without being parsed into memory.
+ *
+ * Each entry of an .mdzip that is XMI is read, starting with the project's own model; other
+ * entries, e.g. of used projects, contribute elements that the model may refer to.
+ */
+class XmiModelReader {
+
+    // name of the .mdzip entry holding the project's own model
+    private static final String PRIMARY_MODEL_ENTRY_SUFFIX = "uml_model.model";
+
+    private final XMLInputFactory inputFactory = XMLInputFactory.newFactory();
+
+    private XmiModel model;
+
+    XmiModelReader() {
+        inputFactory.setProperty (XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty (XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        inputFactory.setProperty (XMLInputFactory.IS_COALESCING, true);
+    }
+
+    XmiModel read (Path path) {
+        model = new XmiModel();
+        try {
+            if (isZip (path))
+                readZip (path);
+            else {
+                try (InputStream in = new BufferedInputStream (Files.newInputStream (path))) {
+                    readXmi (in);
+                }
+            }
+        } catch (IOException | XMLStreamException e) {
+            throw new UmlAdocExporterException ("Unable to read " + path + '!', e);
+        }
+
+        if (model.getPrimaryModel() == null)
+            throw new UmlAdocExporterException ("No UML model found in " + path + '!');
+        model.index();
+        return model;
+    }
+
+    private static boolean isZip (Path path) throws IOException {
+        try (InputStream in = Files.newInputStream (path)) {
+            byte[] header = in.readNBytes (4);
+            return header.length == 4 && header[0] == 'P' && header[1] == 'K' && header[2] == 3 && header[3] == 4;
+        }
+    }
+
+    private void readZip (Path path) throws IOException, XMLStreamException {
+        try (ZipFile zipFile = new ZipFile (path.toFile())) {
+            // the project's own model first, so that it is the primary model
+            List<ZipEntry> entries = new ArrayList<>();
+            for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements(); ) {
+                ZipEntry entry = e.nextElement();
+                if (!entry.isDirectory())
+                    entries.add (entry);
+            }
+            entries.sort (Comparator.comparing (entry -> !entry.getName().endsWith (PRIMARY_MODEL_ENTRY_SUFFIX)));
+
+            for (ZipEntry entry : entries) {
+                try (InputStream in = new BufferedInputStream (zipFile.getInputStream (entry))) {
+                    readXmi (in);
+                }
+            }
+        }
+    }
+
+    // read a stream if it is XMI, else ignore it
+    private void readXmi (InputStream in) throws XMLStreamException {
+        if (!isXml (in))
+            return;
+
+        XMLStreamReader reader = inputFactory.createXMLStreamReader (in);
+        try {
+            reader.nextTag();
+            if ("XMI".equals (reader.getLocalName()))
+                readRootChildren (reader);
+            else if (isUml (reader))
+                model.addRootElement (readElement (reader, reader.getLocalName(), null, null));
+        } finally {
+            reader.close();
+        }
+    }
+
+    // true if the stream starts with '<', after any byte order mark or white space
+    private static boolean isXml (InputStream in) {
+        try {
+            in.mark (64);
+            int b;
+            int count = 0;
+            do {
+                b = in.read();
+                count++;
+            } while (b != -1 && count < 64 && (Character.isWhitespace (b) || b == 0xEF || b == 0xBB || b == 0xBF));
+            in.reset();
+            return b == '<';
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // children of xmi:XMI: models and packages, and applications of stereotypes to their elements
+    private void readRootChildren (XMLStreamReader reader) throws XMLStreamException {
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (isUml (reader))
+                model.addRootElement (readElement (reader, reader.getLocalName(), null, null));
+            else if (baseElementId (reader) != null)
+                readStereotypeApplication (reader);
+            else
+                skipElement (reader);
+        }
+    }
+
+    /**
+     * Read an element and its content, leaving the reader at its end tag.
+     * @param type UML meta-class of the element.
+     * @param role property of the owner containing this element; null for a root element.
+     * @param owner owning element; null for a root element.
+     */
+    private XmiElement readElement (XMLStreamReader reader, String type, String role, XmiElement owner) throws XMLStreamException {
+        XmiElement element = new XmiElement (xmiAttribute (reader, "id"), type, role, owner);
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (!isXmiNamespace (reader.getAttributePrefix (i), reader.getAttributeNamespace (i)))
+                element.putAttribute (reader.getAttributeLocalName (i), reader.getAttributeValue (i));
+        }
+        model.addElement (element);
+
+        while (nextChild (reader)) {
+            String childRole = reader.getLocalName();
+            String childType = xmiAttribute (reader, "type");
+            if (isXmiNamespace (reader.getPrefix(), reader.getNamespaceURI()))
+                skipElement (reader);   // xmi:Extension etc.
+            else if (childType != null)
+                element.addOwnedElement (readElement (reader, localType (childType), childRole, element));
+            else if (reader.getAttributeValue (null, "href") != null) {
+                element.addReference (childRole, reader.getAttributeValue (null, "href"));
+                skipElement (reader);
+            }
+            else if (xmiAttribute (reader, "idref") != null) {
+                element.addReference (childRole, xmiAttribute (reader, "idref"));
+                skipElement (reader);
+            }
+            else
+                element.addValue (childRole, readText (reader));
+        }
+        return element;
+    }
+
+    // an application of a stereotype, e.g. <openEHR_Profile:Operator base_Operation="id"><ops>+</ops></...>,
+    // whose tags are given as attributes or child elements
+    private void readStereotypeApplication (XMLStreamReader reader) throws XMLStreamException {
+        String elementId = baseElementId (reader);
+        Map<String, List<String>> tagValues = new LinkedHashMap<>();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String name = reader.getAttributeLocalName (i);
+            if (!isXmiNamespace (reader.getAttributePrefix (i), reader.getAttributeNamespace (i)) && !name.startsWith ("base_"))
+                tagValues.computeIfAbsent (name, n -> new ArrayList<>()).add (reader.getAttributeValue (i));
+        }
+        while (nextChild (reader)) {
+            String name = reader.getLocalName();
+            String href = reader.getAttributeValue (null, "href");
+            if (href != null) {
+                tagValues.computeIfAbsent (name, n -> new ArrayList<>()).add (href);
+                skipElement (reader);
+            }
+            else
+                tagValues.computeIfAbsent (name, n -> new ArrayList<>()).add (readText (reader));
+        }
+
+        List<XmiModel.Tag> tags = new ArrayList<>();
+        tagValues.forEach ((name, values) -> tags.add (new XmiModel.Tag (name, values)));
+        model.addTags (elementId, tags);
+    }
+
+    private static String baseElementId (XMLStreamReader reader) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (reader.getAttributeLocalName (i).startsWith ("base_"))
+                return reader.getAttributeValue (i);
+        }
+        return null;
+    }
+
+    // advance to the next child element; false at the end tag of the current element
+    private static boolean nextChild (XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                return true;
+            if (event == XMLStreamConstants.END_ELEMENT)
+                return false;
+        }
+        return false;
+    }
+
+    // text content of the current element, ignoring any nested elements; leaves the reader at its end tag
+    private static String readText (XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder sb = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT)
+                depth--;
+            else if (depth == 1 && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA))
+                sb.append (reader.getText());
+        }
+        return sb.toString();
+    }
+
+    // skip the current element and its content, leaving the reader at its end tag
+    private static void skipElement (XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT)
+                depth--;
+        }
+    }
+
+    private static String xmiAttribute (XMLStreamReader reader, String localName) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (localName.equals (reader.getAttributeLocalName (i)) && isXmiNamespace (reader.getAttributePrefix (i), reader.getAttributeNamespace (i)))
+                return reader.getAttributeValue (i);
+        }
+        return null;
+    }
+
+    // e.g. "Class" for "uml:Class"
+    private static String localType (String xmiType) {
+        return xmiType.substring (xmiType.indexOf (':') + 1);
+    }
+
+    private static boolean isXmiNamespace (String prefix, String namespaceUri) {
+        return "xmi".equals (prefix) || namespaceUri != null && namespaceUri.contains ("/spec/XMI/");
+    }
+
+    private static boolean isUml (XMLStreamReader reader) {
+        return "uml".equals (reader.getPrefix()) || reader.getNamespaceURI() != null && reader.getNamespaceURI().contains ("/spec/UML/");
+    }
+}
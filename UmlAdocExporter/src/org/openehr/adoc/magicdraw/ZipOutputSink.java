@@ -0,0 +1,39 @@
+package org.openehr.adoc.magicdraw;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Sink writing the files of an export into a .zip archive; see ArchiveOutputSink.
+ */
+public class ZipOutputSink extends ArchiveOutputSink {
+
+    private final ZipOutputStream zipStream;
+
+    /**
+     * @param root folder the archive is laid out as.
+     * @param out stream to write the archive to; closed with the sink.
+     */
+    public ZipOutputSink (Path root, OutputStream out) {
+        super(root);
+        this.zipStream = new ZipOutputStream (new BufferedOutputStream (out, 1 << 16));
+    }
+
+    @Override
+    protected void writeEntry (String name, byte[] content) throws IOException {
+        ZipEntry entry = new ZipEntry (name);
+        entry.setTime (entryTime);
+        zipStream.putNextEntry (entry);
+        zipStream.write (content);
+        zipStream.closeEntry();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        zipStream.close();
+    }
+}
@@ -0,0 +1,71 @@
+package org.openehr.adoc.magicdraw;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of AsciidocFormatter, in particular that the one-pass escaping and normalising of table cell
+ * text gives the same result as the chain of methods it replaced.
+ */
+class AsciidocFormatterTest {
+
+    // fragments of which random cell texts are made, biased to the cases the pass has to handle
+    private static final String[] FRAGMENTS = {"a", "b c", " ", "\t", "\n", "\r\n", "\r", "<", "=", "<=", "|", "----", " +", "+", "-", "@T@", "`x`"};
+
+    private final AsciidocFormatter formatter = new AsciidocFormatter();
+
+    @Test
+    void tableCellMatchesChain() {
+        List<String> texts = new ArrayList<>();
+        texts.add ("");
+        texts.add ("  text  ");
+        texts.add ("a <= b | c");
+        texts.add ("ends with <=\nnext line <=");
+        texts.add ("<=\n<=  \n  <=");
+        texts.add ("line  \r\n  line\r\n");
+        texts.add ("trailing blank lines\n\n  \n\n");
+        texts.add ("\n\n  leading blank lines");
+        texts.add ("text\n----\n  indented <= | code  \n    more\n----\n  after  ");
+        texts.add ("unclosed\n  ----  \n  literal  ");
+        texts.add ("list +\n * item  \n * item  \n +\n  trimmed");
+        texts.add (" +\n  kept  \n +");
+        texts.add ("----\r\n  crlf literal  \r\n----\r\n");
+        texts.add ("x|y||z");
+        texts.add ("<<=>=<==");
+
+        Random random = new Random (42);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int fragmentCount = random.nextInt (24);
+            for (int j = 0; j < fragmentCount; j++)
+                sb.append (FRAGMENTS[random.nextInt (FRAGMENTS.length)]);
+            texts.add (sb.toString());
+        }
+
+        for (String text : texts) {
+            String expected = formatter.escapeColumnSeparator (formatter.normalizeLines (text));
+            assertEquals ("|" + expected, formatter.tableCell (text, 1), text);
+            assertEquals ("2+a|" + expected, formatter.tableCellPassthrough (text, 2), text);
+        }
+    }
+
+    @Test
+    void tableCellAppendsToBuffer() {
+        StringBuilder out = new StringBuilder ("  before");
+        formatter.appendTableCell (out, "  a \\<= b|c  ", 1);
+        assertEquals ("  before|a \\<= b&#124;c", out.toString());
+    }
+
+    @Test
+    void escapeLiteralEscapesLessOrEqual() {
+        assertEquals ("a\\<=b&#124;&#42;c", formatter.escapeLiteral ("a<=b|*c"));
+        // a table cell doesn't escape it again
+        assertEquals ("|a\\<=b&#124;&#42;c", formatter.tableCell (formatter.escapeLiteral ("a<=b|*c"), 1));
+        assertEquals ("|a<=b", formatter.tableCell ("a<=b", 1));
+    }
+}
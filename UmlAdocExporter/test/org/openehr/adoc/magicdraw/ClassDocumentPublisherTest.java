@@ -0,0 +1,176 @@
+package org.openehr.adoc.magicdraw;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Golden-file tests of the class documents rendered by ClassDocumentPublisher from the openEHR
+ * fixtures, and of the post-processing of @TYPE@ markers into links.
+ * <p>
+ * The expected documents are in the golden folder beside this class, one per fixture class. After a
+ * deliberate change of output, run with -Dgolden.update=folder to write the rendered documents to
+ * that folder, and review and copy them over the expected ones.
+ * <p>
+ * The expected documents are a snapshot of the output of the single-pass scan that replaced the
+ * regex post-processing, not of the regex version, which never rendered these fixtures; they catch
+ * changes from that output. That the scan finds the same markers as the regex is checked by
+ * postProcessMatchesRegexScan.
+ */
+class ClassDocumentPublisherTest {
+
+    private static final String GOLDEN_FOLDER = "golden/";
+
+    // the regex postProcess used to find markers, before the scan replaced it
+    private static final Pattern TYPE_QUOTE_PATTERN = Pattern.compile ("@[A-Za-z0-9_. ]+@");
+
+    private EntityRegistry allEntities;
+    private ClassDocumentPublisher documentPublisher;
+
+    @BeforeEach
+    void setUp() {
+        UmlExportConfig.reset();
+        build (UmlExportConfig.getInstance(), new AsciidocFormatter());
+    }
+
+    private void build (UmlExportConfig exportConfig, Formatter formatter) {
+        FixtureInfoBuilder builder = new FixtureInfoBuilder (formatter, new SymbolTable());
+        OpenEhrFixtures.declare (builder);
+        allEntities = builder.buildRegistry();
+        documentPublisher = new ClassDocumentPublisher (formatter, exportConfig, allEntities, null);
+    }
+
+    @Test
+    void renderClassMatchesGoldenFiles() throws IOException {
+        String updateFolder = System.getProperty ("golden.update");
+        List<String> mismatches = new ArrayList<>();
+        for (ClassInfo classInfo : allEntities.values()) {
+            String fileName = classInfo.getQualifiedClassName().toLowerCase() + ".adoc";
+            String rendered = documentPublisher.renderClass (classInfo).replace (System.lineSeparator(), "\n");
+            if (updateFolder != null)
+                Files.write (Paths.get (updateFolder, fileName), rendered.getBytes (StandardCharsets.UTF_8));
+            else if (!rendered.equals (readGolden (fileName)))
+                mismatches.add (fileName);
+        }
+        assertTrue (mismatches.isEmpty(), () -> "Rendered documents differ from the golden files: " + mismatches);
+    }
+
+    @Test
+    void renderClassFailsIfFormattingLosesTypeMark() {
+        build (UmlExportConfig.getInstance(), new AsciidocFormatter() {
+            @Override
+            public void appendTableCell (StringBuilder out, String text, int mergeCellCount) {
+                super.appendTableCell (out, text.replace (Signature.TYPE_MARK, '?'), mergeCellCount);
+            }
+        });
+        ClassInfo dvQuantity = allEntities.get ("org.openehr.rm.data_types.DV_QUANTITY");
+        UmlAdocExporterException e = assertThrows (UmlAdocExporterException.class, () -> documentPublisher.renderClass (dvQuantity));
+        assertTrue (e.getMessage().contains ("org.openehr.rm.data_types.DV_QUANTITY"), e.getMessage());
+    }
+
+    @Test
+    void postProcessLinksMarkers() {
+        ClassInfo locatable = allEntities.get ("org.openehr.rm.common.LOCATABLE");
+        assertEquals ("see <<_link_class,LINK>> and "
+                        + "link:/releases/RM/{rm_release}/data_types.html#_dv_text_class[DV_TEXT^], or ISO8601_DATE_TIME",
+                postProcess (locatable, "see @org.openehr.rm.common.LINK@ and @org.openehr.rm.data_types.DV_TEXT@, or @ISO8601_DATE_TIME@"));
+
+        // not markers: no name, characters other than those of a type name, or no closing '@'
+        for (String text : new String[] {"", "@", "@@", "a@b", "e-mail@address", "@not-a-type@", "@T", "T@", "@<=@", "@DV_TEXT"})
+            assertEquals (text, postProcess (locatable, text));
+
+        // a closing '@' opens no new marker, and only the text from start to end is processed
+        assertEquals ("AB@C", postProcess (locatable, "@A@B@C"));
+        StringBuilder out = new StringBuilder();
+        documentPublisher.postProcess (locatable, "x@A@y@B@z", 1, 6, out);
+        assertEquals ("Ay@", out.toString());
+    }
+
+    /**
+     * The scan must find the same markers as the regex it replaced, over the text of the fixtures
+     * and texts chosen to catch overlapping and unterminated markers.
+     */
+    @Test
+    void postProcessMatchesRegexScan() {
+        List<String> texts = new ArrayList<>();
+        for (ClassInfo classInfo : allEntities.values()) {
+            texts.add (classInfo.getDocumentation());
+            for (ClassFeatureInfo feature : classInfo.getAttributes())
+                texts.add (feature.getDocumentation());
+            for (ClassFeatureInfo feature : classInfo.getOperations())
+                texts.add (feature.getDocumentation());
+            for (ConstraintInfo constraint : classInfo.getConstraints())
+                texts.add (constraint.getDocumentation());
+        }
+        for (String text : new String[] {"@@@", "@A@@B@", "@@A@", "@A@B@C@", "@ @", "@.@", "a @b c@ d", "@A-B@C@", "@\u00c4@", "@A\n@B@",
+                "@org.openehr.rm.common.LINK@@org.openehr.rm.common.LINK@", "x@@org.openehr.rm.data_types.DV_TEXT@@"})
+            texts.add (text);
+
+        ClassInfo locatable = allEntities.get ("org.openehr.rm.common.LOCATABLE");
+        for (String text : texts)
+            assertEquals (regexPostProcess (locatable, text), postProcess (locatable, text), text);
+    }
+
+    /**
+     * Links are written literally; the regex scan passed them to Matcher.appendReplacement, which
+     * took '$' for a reference to a group and '\' for an escape.
+     */
+    @Test
+    void postProcessWritesDollarAndBackslashLiterally() {
+        String text = "a @org.openehr.rm.data_types.DV_TEXT@ link";
+
+        ClassInfo locatable = buildWithSpecLinkTemplate ("/specs/$1/${spec_name}.html");
+        assertEquals ("a link:/specs/$1/data_types.html#_dv_text_class[DV_TEXT^] link", postProcess (locatable, text));
+        assertThrows (IndexOutOfBoundsException.class, () -> regexPostProcess (locatable, text));
+
+        ClassInfo otherLocatable = buildWithSpecLinkTemplate ("/specs\\${spec_name}.html");
+        assertEquals ("a link:/specs\\data_types.html#_dv_text_class[DV_TEXT^] link", postProcess (otherLocatable, text));
+        assertEquals ("a link:/specsdata_types.html#_dv_text_class[DV_TEXT^] link", regexPostProcess (otherLocatable, text));
+    }
+
+    // rebuild the fixtures with a spec link template, returning LOCATABLE
+    private ClassInfo buildWithSpecLinkTemplate (String specLinkTemplate) {
+        UmlExportConfig.reset();
+        UmlExportConfig exportConfig = UmlExportConfig.getInstance();
+        exportConfig.setSpecLinkTemplate (specLinkTemplate);
+        build (exportConfig, new AsciidocFormatter());
+        return allEntities.get ("org.openehr.rm.common.LOCATABLE");
+    }
+
+    private String postProcess (ClassInfo classInfo, String text) {
+        StringBuilder out = new StringBuilder();
+        documentPublisher.postProcess (classInfo, text, 0, text.length(), out);
+        return out.toString();
+    }
+
+    // postProcess as it was, with the regex
+    private String regexPostProcess (ClassInfo classInfo, String text) {
+        Matcher m = TYPE_QUOTE_PATTERN.matcher (text);
+        StringBuffer sb = new StringBuffer();
+        while (m.find()) {
+            String matched = m.group();
+            m.appendReplacement (sb, documentPublisher.linkClassName (classInfo, matched.substring (1, matched.length() - 1)));
+        }
+        m.appendTail (sb);
+        return sb.toString();
+    }
+
+    static String readGolden (String fileName) throws IOException {
+        try (InputStream in = ClassDocumentPublisherTest.class.getResourceAsStream (GOLDEN_FOLDER + fileName)) {
+            assertNotNull (in, "No golden file " + GOLDEN_FOLDER + fileName);
+            return new String (in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
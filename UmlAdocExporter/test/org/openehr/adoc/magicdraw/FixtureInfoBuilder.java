@@ -0,0 +1,227 @@
+package org.openehr.adoc.magicdraw;
+
+import org.openehr.adoc.magicdraw.exception.UmlAdocExporterException;
+
+import java.util.*;
+
+/**
+ * Builder of ClassInfo objects from an in-memory stand-in for the model API, for the tests and
+ * benchmarks: classes, features and the bindings of generic types are declared by their UML
+ * qualified names, e.g. "RM::org::openehr::rm::common::archetyped::LOCATABLE", and built with the
+ * formatting shared by the MagicDraw and XMI builders, so that the ClassInfo objects are those an
+ * export would build.
+ */
+class FixtureInfoBuilder extends InfoBuilderSupport {
+
+    // actual parameters of the bound generic types of the model, by UML qualified name
+    private final Map<String, List<String>> templateBindings = new HashMap<>();
+
+    private final List<ClassInfo> classes = new ArrayList<>();
+    private final List<ClassInfo> enumerations = new ArrayList<>();
+
+    FixtureInfoBuilder (Formatter formatter, SymbolTable symbolTable) {
+        super (formatter, new HashMap<>(), symbolTable);
+    }
+
+    /**
+     * Declare a bound generic type, as the template binding of a MagicDraw model would.
+     * @param umlQualifiedTypeName e.g. "RM::org::openehr::rm::data_types::quantity::DV_INTERVAL&lt;DV_DATE&gt;".
+     * @param umlActualParameters UML qualified names of the actual parameters, or the names of formal parameters.
+     */
+    void bindTemplate (String umlQualifiedTypeName, String... umlActualParameters) {
+        templateBindings.put (umlQualifiedTypeName, Arrays.asList (umlActualParameters));
+    }
+
+    @Override
+    TypeExpression resolveType (String umlQualifiedTypeName) {
+        String qualifiedTypeName = packageQualifiedClassName (umlQualifiedTypeName, UmlExportConfig.getInstance().getPackageDepth());
+        if (!qualifiedTypeName.contains("<"))
+            return TypeExpression.named (qualifiedTypeName);
+
+        List<String> actualParameters = templateBindings.get (umlQualifiedTypeName);
+        if (actualParameters == null)
+            throw new UmlAdocExporterException("Couldn't find any template bindings for generic class " + umlQualifiedTypeName);
+
+        List<TypeExpression> parameters = new ArrayList<>();
+        for (String actualParameter : actualParameters)
+            parameters.add (actualParameterType (actualParameter, actualParameter, actualParameter.contains ("::")));
+        return boundType (qualifiedTypeName, parameters);
+    }
+
+    /**
+     * Start the declaration of a class.
+     * @param umlQualifiedName UML qualified name of the class; a generic class is named with its formal parameters, e.g. "...::DV_INTERVAL&lt;T&gt;".
+     */
+    ClassDeclaration addClass (String umlQualifiedName, String comment) {
+        return new ClassDeclaration ("Class", umlQualifiedName, comment);
+    }
+
+    /**
+     * Add an enumeration.
+     * @param literals names of the literals.
+     */
+    ClassInfo addEnumeration (String umlQualifiedName, String comment, String... literals) {
+        ClassInfo classInfo = new ClassInfo("Enumeration")
+                .setClassTypeName (simpleName (umlQualifiedName))
+                .setDocumentation (parseComment (comment).getDocumentation());
+        setHierarchy (umlQualifiedName, UmlExportConfig.getInstance().getPackageDepth(), classInfo);
+        for (String literal : literals)
+            classInfo.getAttributes().add(new ClassFeatureInfo().setSignature(new Signature().append(literal)));
+        enumerations.add (classInfo);
+        return classInfo;
+    }
+
+    /**
+     * Merge the classes and enumerations declared so far into a registry, as an export would.
+     */
+    EntityRegistry buildRegistry() {
+        EntityRegistry allEntities = new EntityRegistry (symbolTable);
+        mergeEntities (allEntities, classes, Collections.emptyList(), enumerations, UmlExportConfig.getInstance().getComponentPackageNames());
+        return allEntities;
+    }
+
+    List<ClassInfo> getClasses() {
+        return classes;
+    }
+
+    private static String simpleName (String umlQualifiedName) {
+        return umlQualifiedName.substring (umlQualifiedName.lastIndexOf ("::") + 2);
+    }
+
+    private ParsedComment parseComment (String comment) {
+        return comment == null ? ParsedComment.EMPTY : ParsedComment.parse (Collections.singletonList (comment), formatter);
+    }
+
+    /**
+     * Declaration of a class, whose features are built as they are declared.
+     */
+    class ClassDeclaration {
+        private final ClassInfo classInfo;
+
+        private ClassDeclaration (String metaType, String umlQualifiedName, String comment) {
+            String className = simpleName (umlQualifiedName);
+            classInfo = new ClassInfo(metaType)
+                    .setClassTypeName (className)
+                    .setDocumentation (parseComment (comment).getDocumentation());
+
+            // the hierarchy is taken from the name without formal parameters, as MagicDraw names a generic class
+            int tplStart = umlQualifiedName.indexOf ('<');
+            setHierarchy (tplStart < 0 ? umlQualifiedName : umlQualifiedName.substring (0, tplStart), UmlExportConfig.getInstance().getPackageDepth(), classInfo);
+        }
+
+        ClassDeclaration isAbstract() {
+            classInfo.setAbstractClass (true);
+            return this;
+        }
+
+        ClassDeclaration inherit (String umlQualifiedParentName) {
+            classInfo.addQualifiedParentClassName (convertToQualified (umlQualifiedParentName).getQualifiedName());
+            return this;
+        }
+
+        /**
+         * Add an attribute.
+         * @param upper upper value of occurrences; -1 for unbounded.
+         */
+        ClassDeclaration attribute (String name, String umlTypeName, int lower, int upper, String comment) {
+            Signature typeInfo = new Signature().append (correctType (convertToQualified (umlTypeName), null, null, lower, upper));
+            classInfo.getAttributes().add (buildAttribute (name, parseComment (comment).getDocumentation(), OperationStatus.DEFINED, typeInfo, lower, upper));
+            return this;
+        }
+
+        /**
+         * Add a qualified attribute, i.e. a Hash keyed by the qualifier.
+         */
+        ClassDeclaration hashAttribute (String name, String umlTypeName, String qualifierName, String umlQualifierTypeName, String comment) {
+            Signature typeInfo = new Signature().append (correctType (convertToQualified (umlTypeName), qualifierName,
+                    convertToQualified (umlQualifierTypeName), 0, -1));
+            classInfo.getAttributes().add (buildAttribute (name, parseComment (comment).getDocumentation(), OperationStatus.DEFINED, typeInfo, 0, -1));
+            return this;
+        }
+
+        /**
+         * Add a constant.
+         * @param value literal value, escaped as the builders escape a string literal.
+         */
+        ClassDeclaration constant (String name, String umlTypeName, String value, String comment) {
+            Signature typeInfo = new Signature().append (correctType (convertToQualified (umlTypeName), null, null, 1, 1));
+            addDefaultValue (typeInfo, true, formatter.escapeLiteral (value));
+            classInfo.getConstants().add (buildAttribute (name, parseComment (comment).getDocumentation(), OperationStatus.DEFINED, typeInfo, 1, 1));
+            return this;
+        }
+
+        /**
+         * Start the declaration of an operation, ended by OperationDeclaration.end().
+         * @param umlReturnTypeName UML qualified name of the return type; null if there is none.
+         */
+        OperationDeclaration operation (String name, OperationStatus status, String umlReturnTypeName, String comment) {
+            return new OperationDeclaration (this, name, status, umlReturnTypeName, comment);
+        }
+
+        ClassDeclaration invariant (String name, String... bodyLines) {
+            classInfo.getConstraints().add (new ConstraintInfo().setDocumentation (formatConstraint (name, Arrays.asList (bodyLines))));
+            return this;
+        }
+
+        /**
+         * End the declaration, adding the class to the model.
+         */
+        ClassInfo build() {
+            classes.add (classInfo);
+            return classInfo;
+        }
+    }
+
+    /**
+     * Declaration of an operation of a class, built as the builders build an operation.
+     */
+    class OperationDeclaration {
+        private final ClassDeclaration owner;
+        private final String name;
+        private final OperationStatus status;
+        private final String umlReturnTypeName;
+        private final ParsedComment parsedComment;
+        private final List<Signature> formattedParameters = new ArrayList<>();
+        private final List<String> paramNames = new ArrayList<>();
+        private final List<String> paramComments = new ArrayList<>();
+        private final List<String> constraintNames = new ArrayList<>();
+        private final List<String> formattedConstraints = new ArrayList<>();
+
+        private OperationDeclaration (ClassDeclaration owner, String name, OperationStatus status, String umlReturnTypeName, String comment) {
+            this.owner = owner;
+            this.name = name;
+            this.status = status;
+            this.umlReturnTypeName = umlReturnTypeName;
+            this.parsedComment = parseComment (comment);
+        }
+
+        OperationDeclaration parameter (String paramName, String umlTypeName, String comment) {
+            formattedParameters.add (formatSignatureParameter (paramName, convertToQualified (umlTypeName), 1, 1));
+            paramNames.add (paramName);
+            paramComments.add (parseComment (comment).getDocumentation());
+            return this;
+        }
+
+        /**
+         * Add a pre- or post-condition, named e.g. "Pre_valid_path".
+         */
+        OperationDeclaration condition (String constraintName, String... bodyLines) {
+            constraintNames.add (constraintName);
+            formattedConstraints.add (formatConstraint (constraintName, Arrays.asList (bodyLines)));
+            return this;
+        }
+
+        /**
+         * End the declaration, adding the operation to its class.
+         */
+        ClassDeclaration end() {
+            // as in the model, an operation owns parameters if it has any, or a return type, given by its return parameter
+            boolean ownsParameters = umlReturnTypeName != null || !formattedParameters.isEmpty();
+            Signature signature = formatOperationSignature (name, "", ownsParameters ? formattedParameters : null,
+                    umlReturnTypeName == null ? null : convertToQualified (umlReturnTypeName), 1, 1, constraintNames, formattedConstraints);
+            owner.classInfo.getOperations().add (buildOperation (formatOperationDocumentation (parsedComment, ownsParameters ? paramNames : null, paramComments),
+                    status, signature, 1, 1));
+            return owner;
+        }
+    }
+}
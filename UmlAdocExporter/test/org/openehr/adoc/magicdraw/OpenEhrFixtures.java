@@ -0,0 +1,216 @@
+package org.openehr.adoc.magicdraw;
+
+/**
+ * openEHR-shaped fixtures for the tests and benchmarks: a slice of the BASE and RM components, with
+ * inheritance across components, generic and container types, Hash attributes, constants,
+ * operations with pre- and post-conditions, invariants and enumerations, documented in the style
+ * of the specifications, i.e. with listing blocks, hard line breaks, table separators, '&lt;='
+ * and @TYPE@ links in the text.
+ */
+final class OpenEhrFixtures {
+
+    static final String FOUNDATION_TYPES = "BASE::org::openehr::base::foundation_types::";
+    static final String BASE_TYPES = "BASE::org::openehr::base::base_types::";
+    static final String RM_COMMON = "RM::org::openehr::rm::common::";
+    static final String RM_DATA_TYPES = "RM::org::openehr::rm::data_types::";
+    static final String RM_DATA_STRUCTURES = "RM::org::openehr::rm::data_structures::";
+    static final String RM_COMPOSITION = "RM::org::openehr::rm::composition::";
+
+    static final String STRING = FOUNDATION_TYPES + "primitive_types::String";
+    static final String INTEGER = FOUNDATION_TYPES + "primitive_types::Integer";
+    static final String BOOLEAN = FOUNDATION_TYPES + "primitive_types::Boolean";
+    static final String REAL = FOUNDATION_TYPES + "primitive_types::Real";
+    static final String ANY = FOUNDATION_TYPES + "primitive_types::Any";
+
+    static final String UID_BASED_ID = BASE_TYPES + "identification::UID_BASED_ID";
+    static final String OBJECT_REF = BASE_TYPES + "identification::OBJECT_REF";
+    static final String PATHABLE = RM_COMMON + "archetyped::PATHABLE";
+    static final String LOCATABLE = RM_COMMON + "archetyped::LOCATABLE";
+    static final String ARCHETYPED = RM_COMMON + "archetyped::ARCHETYPED";
+    static final String LINK = RM_COMMON + "archetyped::LINK";
+    static final String FEEDER_AUDIT = RM_COMMON + "archetyped::FEEDER_AUDIT";
+    static final String DATA_VALUE = RM_DATA_TYPES + "basic::DATA_VALUE";
+    static final String DV_TEXT = RM_DATA_TYPES + "text::DV_TEXT";
+    static final String DV_CODED_TEXT = RM_DATA_TYPES + "text::DV_CODED_TEXT";
+    static final String CODE_PHRASE = RM_DATA_TYPES + "text::CODE_PHRASE";
+    static final String DV_ORDERED = RM_DATA_TYPES + "quantity::DV_ORDERED";
+    static final String DV_INTERVAL = RM_DATA_TYPES + "quantity::DV_INTERVAL";
+    static final String DV_QUANTITY = RM_DATA_TYPES + "quantity::DV_QUANTITY";
+    static final String DV_DATE_TIME = RM_DATA_TYPES + "quantity::date_time::DV_DATE_TIME";
+    static final String PROPORTION_KIND = RM_DATA_TYPES + "quantity::PROPORTION_KIND";
+    static final String ITEM_STRUCTURE = RM_DATA_STRUCTURES + "item_structure::ITEM_STRUCTURE";
+    static final String HISTORY = RM_DATA_STRUCTURES + "history::HISTORY";
+    static final String ENTRY = RM_COMPOSITION + "content::entry::ENTRY";
+    static final String CARE_ENTRY = RM_COMPOSITION + "content::entry::CARE_ENTRY";
+    static final String OBSERVATION = RM_COMPOSITION + "content::entry::OBSERVATION";
+
+    private OpenEhrFixtures() {}
+
+    /**
+     * Declare the fixture classes in a builder.
+     */
+    static void declare (FixtureInfoBuilder builder) {
+        builder.bindTemplate (DV_INTERVAL + "<DV_QUANTITY>", DV_QUANTITY);
+        builder.bindTemplate (DV_INTERVAL + "<DV_DATE_TIME>", DV_DATE_TIME);
+        builder.bindTemplate (HISTORY + "<ITEM_STRUCTURE>", ITEM_STRUCTURE);
+        builder.bindTemplate (FOUNDATION_TYPES + "structures::List<Any>", ANY);
+
+        for (String primitiveType : new String[] {STRING, INTEGER, BOOLEAN, REAL, ANY})
+            builder.addClass (primitiveType, "Primitive type of the openEHR type system.").build();
+        builder.addClass (FOUNDATION_TYPES + "structures::List<T>", "Ordered container of items of type T.").build();
+        builder.addClass (FOUNDATION_TYPES + "structures::Hash<K,V>", "Container of items of type V, keyed by values of type K.").build();
+
+        builder.addClass (UID_BASED_ID, "Abstract model of UID-based identifiers consisting of a root part and an optional extension; lexical form: `root '::' extension`.")
+                .isAbstract()
+                .attribute ("value", STRING, 1, 1, "The identifier value in the form `root::extension`.")
+                .operation ("root", OperationStatus.DEFINED, STRING, "The identifier of the conceptual namespace in which the object exists, within the identification scheme. Returns the part to the left of the first '::' separator, if any, or else the whole string.").end()
+                .operation ("has_extension", OperationStatus.DEFINED, BOOLEAN, "True if `extension /= Void`.").end()
+                .build();
+        builder.addClass (OBJECT_REF, "Class describing a reference to another object, which may exist locally or be maintained outside the current namespace, e.g. in another service.")
+                .attribute ("namespace", STRING, 1, 1, "Namespace to which this identifier belongs in the local system context (and possibly in any other openEHR compliant environment) e.g. `terminology`, `demographic`. These names are not yet standardised. Legal values for `namespace` are: +\n\n* `\"local\"` +\n* `\"unknown\"` +\n* a string matching the standard regex `[a-zA-Z][a-zA-Z0-9_.:\\/&?=+-]*`.")
+                .attribute ("type", STRING, 1, 1, "Name of the class (concrete or abstract) of object to which this identifier type refers, e.g. `PARTY`, `PERSON`, `GUIDELINE` etc.")
+                .invariant ("Namespace_exists", "not namespace.is_empty")
+                .invariant ("Type_exists", "not type.is_empty")
+                .build();
+
+        builder.addClass (PATHABLE, "Abstract parent of all classes whose instances are reachable by paths, and which know how to locate child object by paths. The parent feature may be implemented as a function or attribute.")
+                .isAbstract()
+                .operation ("parent", OperationStatus.ABSTRACT, PATHABLE, "Parent of this node in a compositional hierarchy.").end()
+                .operation ("item_at_path", OperationStatus.ABSTRACT, ANY, "The item at a path (relative to this item); only valid for unique paths, i.e. paths that resolve to a single item.\n.Errors\nFails with an exception if the path is not unique.")
+                    .parameter ("a_path", STRING, "The path, e.g. `/items[at0001]/value`.")
+                    .condition ("Pre_valid_path", "path_unique (a_path)")
+                    .end()
+                .operation ("items_at_path", OperationStatus.ABSTRACT, FOUNDATION_TYPES + "structures::List<Any>", "List of items corresponding to a non-unique path.")
+                    .parameter ("a_path", STRING, "The path.")
+                    .condition ("Pre_valid_path", "path_exists (a_path)")
+                    .condition ("Post_result", "Result /= Void and then not Result.is_empty")
+                    .end()
+                .operation ("path_exists", OperationStatus.ABSTRACT, BOOLEAN, "True if the path exists in the data with respect to the current item.")
+                    .parameter ("a_path", STRING, null)
+                    .end()
+                .build();
+        builder.addClass (LOCATABLE, "Root class of all information model classes that can be archetyped. Most classes in the openEHR reference model inherit from the `LOCATABLE` class, which defines the idea of locatability in an archetyped structure. `LOCATABLE` defines a runtime name and an `archetype_node_id`.")
+                .isAbstract()
+                .inherit (PATHABLE)
+                .attribute ("name", DV_TEXT, 1, 1, "Runtime name of this fragment, used to build runtime paths. This is the term provided via a clinical application or batch process to name this EHR construct: its retention in the EHR faithfully preserves the original label by which this entry was known to end users.")
+                .attribute ("archetype_node_id", STRING, 1, 1, "Design-time archetype identifier of this node taken from its generating archetype; used to build archetype paths. Always in the form of an at-code, e.g. `at0005`. This value enables a 'standardised' name for this node to be generated, by referring to the generating archetype local terminology.\n\nAt an archetype root point, the value of this attribute is always the stringified form of the `archetype_id` found in the `archetype_details` object.")
+                .attribute ("uid", UID_BASED_ID, 0, 1, "Optional globally unique object identifier for root points of archetyped structures.")
+                .attribute ("links", LINK, 0, -1, "Links to other archetyped structures (data whose root object inherits from `ARCHETYPED`, such as `ENTRY`, `SECTION` and so on). Links may be to structures in other compositions.")
+                .attribute ("archetype_details", ARCHETYPED, 0, 1, "Details of archetyping used on this node.")
+                .attribute ("feeder_audit", FEEDER_AUDIT, 0, 1, "Audit trail from non-openEHR system of original commit of information forming the content of this node, or from a conversion gateway which has synthesised this node.")
+                .operation ("parent", OperationStatus.EFFECTED, PATHABLE, null).end()
+                .operation ("concept", OperationStatus.DEFINED, DV_TEXT, "Clinical concept of the archetype as a whole (= derived from the `archetype_node_id` of the root node).")
+                    .condition ("Pre_archetype_root", "is_archetype_root")
+                    .end()
+                .operation ("is_archetype_root", OperationStatus.DEFINED, BOOLEAN, "True if this node is the root of an archetyped structure.").end()
+                .invariant ("Links_valid", "links /= Void implies not links.is_empty")
+                .invariant ("Archetyped_valid", "is_archetype_root xor archetype_details = Void")
+                .invariant ("Archetype_node_id_valid", "not archetype_node_id.is_empty")
+                .build();
+        builder.addClass (ARCHETYPED, "Archetypes act as the configuration basis for the particular structures of instances defined by the reference model. To enable archetypes to be used to create valid data, key classes in the reference model act as root points for archetyping; accordingly, these classes have the `archetype_details` attribute set.")
+                .attribute ("rm_version", STRING, 1, 1, "Version of the openEHR reference model used to create this object. Expressed in terms of the release version string, e.g. `1.0`, `1.2.4`.")
+                .invariant ("Rm_version_valid", "not rm_version.is_empty")
+                .build();
+        builder.addClass (LINK, "The `LINK` type defines a logical relationship between two items, such as two `ENTRY` objects or an `ENTRY` and a `COMPOSITION`. Links can be used across compositions, and across EHRs. Links can potentially be used between interior (i.e. non archetype root) nodes, although this probably should be prevented in archetypes.")
+                .attribute ("meaning", DV_TEXT, 1, 1, "Used to describe the relationship, usually in clinical terms, such as `in response to` (the relationship between test results and an order), `follow-up to` and so on.")
+                .attribute ("type", DV_TEXT, 1, 1, "The type attribute is used to indicate a clinical or domain-level meaning for the kind of link, for example `problem` or `issue`.")
+                .build();
+        builder.addClass (FEEDER_AUDIT, "The `FEEDER_AUDIT` class defines the semantics of an audit trail which is constructed to describe the origin of data that have been transformed into openEHR form and committed to the system.")
+                .attribute ("originating_system_item_ids", DV_TEXT, 0, -1, "Identifiers used for the item in the originating system, e.g. filler and placer ids.")
+                .build();
+
+        builder.addClass (DATA_VALUE, "Abstract parent of all `DV_` data value types. Serves as a common ancestor of all data value types in openEHR models.")
+                .isAbstract()
+                .build();
+        builder.addClass (DV_TEXT, "A text item, which may contain any amount of legal characters arranged as e.g. words, sentences etc (i.e. one `DV_TEXT` may be more than one word). Visual formatting and hyperlinks may be included via markdown.")
+                .inherit (DATA_VALUE)
+                .attribute ("value", STRING, 1, 1, "Displayable rendition of the item, regardless of its underlying structure. For `DV_CODED_TEXT`, this is the rubric of the complete term as provided by the terminology service.")
+                .attribute ("formatting", STRING, 0, 1, "A format string of the form `\"name:value; name:value...\"`, e.g. `\"font-weight : bold; font-family : Arial; font-size : 12pt;\"`. Values taken from W3C CSS2 properties lists for background and font.")
+                .attribute ("language", CODE_PHRASE, 0, 1, "Optional indicator of the localised language in which the value is written. Coded from openEHR Code Set `languages`. Only used when either the text object is in a different language from the enclosing `ENTRY`, or else the text object is being used outside of an `ENTRY` or other enclosing structure which indicates the language.")
+                .invariant ("Value_valid", "not value.is_empty and not (value.has('%N') or value.has('%R'))")
+                .build();
+        builder.addClass (DV_CODED_TEXT, "A text item whose value must be the rubric from a controlled terminology, the key (i.e. the 'code') of which is the `defining_code` attribute. In other words: a `DV_CODED_TEXT` is a combination of a `CODE_PHRASE` (effectively a code) and the rubric of that term, from a terminology service, in the language in which the data were authored.")
+                .inherit (DV_TEXT)
+                .attribute ("defining_code", CODE_PHRASE, 1, 1, null)
+                .build();
+        builder.addClass (CODE_PHRASE, "A fully coordinated (i.e. all coordination has been performed) term from a terminology service (as distinct from a particular terminology).")
+                .attribute ("code_string", STRING, 1, 1, "The key used by the terminology service to identify a concept or coordination of concepts. This string is most likely parsable inside the terminology service, but nothing can be assumed about its syntax outside that context.")
+                .attribute ("preferred_term", STRING, 0, 1, "Optional attribute to carry preferred term corresponding to the code or expression in `code_string`. Typical use in integration situations which create mappings, and representing data for which both a (non-preferred) actual term and a preferred term are both required.")
+                .build();
+        builder.addClass (DV_ORDERED + "<T>", "Abstract class defining the concept of ordered values, which includes ordinals as well as true quantities. It defines the functions `<` and `is_strictly_comparable_to()`, the latter of which must evaluate to `True` for instances being compared with the `<` function, or used as limits in the `DV_INTERVAL<T>` class.\n\nData value types which are to be used as limits in the `DV_INTERVAL<T>` class must inherit from this class, and implement the function `is_strictly_comparable_to()` to ensure that instances compare meaningfully. For example, instances of `DV_QUANTITY` can only be compared if they measure the same kind of physical quantity.")
+                .isAbstract()
+                .inherit (DATA_VALUE)
+                .attribute ("normal_status", CODE_PHRASE, 0, 1, "Optional normal status indicator of value with respect to normal range for this value. Often included by lab, even if the normal range itself is not included. Coded by ordinals in series HHH, HH, H, (nothing), L, LL, LLL; see openEHR terminology group `normal_status`.")
+                .attribute ("normal_range", DV_INTERVAL + "<DV_QUANTITY>", 0, 1, "Optional normal range.")
+                .operation ("is_simple", OperationStatus.DEFINED, BOOLEAN, "Test if this quantity has no reference ranges.").end()
+                .operation ("is_normal", OperationStatus.DEFINED, BOOLEAN, "Value is in the normal range, determined by comparison of the value to `normal_range` if present, or by the `normal_status` marker if present.")
+                    .condition ("Pre_normal_range", "normal_range /= Void or normal_status /= Void")
+                    .condition ("Post_range", "normal_range /= Void implies Result = normal_range.has (Current)")
+                    .condition ("Post_status", "normal_status /= Void implies normal_status.code_string.is_equal (\"N\")")
+                    .end()
+                .operation ("less_than", OperationStatus.ABSTRACT, BOOLEAN, "True if this Ordered object is less than `other`, i.e. `self <= other and self /= other`.")
+                    .parameter ("other", DV_ORDERED, "The value to compare against.")
+                    .end()
+                .invariant ("Normal_status_validity", "normal_status /= Void implies code_set (Code_set_id_normal_statuses).has_code (normal_status)")
+                .invariant ("Normal_range_and_status_consistency", "(normal_range /= Void and normal_status /= Void) implies (normal_status.code_string.is_equal (\"N\") xor not normal_range.has (self))")
+                .build();
+        builder.addClass (DV_INTERVAL + "<T>", "Generic class defining an interval (i.e. range) of a comparable type. An interval is a contiguous subrange of a comparable base type. Used to define intervals of dates, times, quantities (whose units match) and so on. The type parameter, `T`, must be a descendant of the type `DV_ORDERED`, which is necessary (but not sufficient) for instances to be compared (`strictly_comparable` is also needed).")
+                .inherit (DATA_VALUE)
+                .attribute ("lower", "T", 0, 1, "Lower bound.")
+                .attribute ("upper", "T", 0, 1, "Upper bound.")
+                .attribute ("lower_included", BOOLEAN, 1, 1, "True if `lower` boundary value included in range, i.e. `lower <= x`.")
+                .build();
+        builder.addClass (DV_QUANTITY, "Quantitified type representing scientific quantities, i.e. quantities expressed as a magnitude and units. Units are expressed in the UCUM syntax ([case-sensitive form](http://unitsofmeasure.org/ucum.html)) by default.")
+                .inherit (DV_ORDERED)
+                .attribute ("magnitude", REAL, 1, 1, "Numeric magnitude of the quantity.")
+                .attribute ("units", STRING, 1, 1, "Quantity units, expressed as a code or syntax string from either UCUM (the default) or the units system specified in `units_system`, when set.")
+                .attribute ("precision", INTEGER, 0, 1, "Precision to which the value of the quantity is expressed, in terms of number of decimal places. The value 0 implies an integral quantity. The value -1 implies no limit, i.e. any number of decimal places.")
+                .constant ("Default_units_system", STRING, "UCUM | ISO 80000", "Units system used by default.")
+                .operation ("less_than", OperationStatus.EFFECTED, BOOLEAN, null)
+                    .parameter ("other", DV_QUANTITY, null)
+                    .end()
+                .invariant ("Precision_validity", "precision = 0 implies is_integral")
+                .build();
+        builder.addClass (DV_DATE_TIME, "Represents an absolute point in time, specified to the second. Semantics defined by ISO 8601. Used for recording a precise point in real world time, and for approximate time stamps, e.g. the origin of a `HISTORY` in an `OBSERVATION` which is only partially known.")
+                .inherit (DV_ORDERED)
+                .attribute ("value", STRING, 1, 1, "ISO8601 date/time string; see @ISO8601_DATE_TIME@.")
+                .build();
+        builder.addEnumeration (PROPORTION_KIND, "Enumeration of the kinds of proportion, e.g. `pk_ratio`, used in `DV_PROPORTION`.",
+                "pk_ratio", "pk_unitary", "pk_percent", "pk_fraction", "pk_integer_fraction");
+
+        builder.addClass (ITEM_STRUCTURE, "Abstract parent class of all spatial data types.")
+                .isAbstract()
+                .inherit (LOCATABLE)
+                .build();
+        builder.addClass (HISTORY + "<T>", "Root object of a linear history, i.e. time series structure. This is a generic class whose type parameter must be a descendant of `ITEM_STRUCTURE`, ensuring that each Event in the `events` of a given instance is of the same structural type, i.e. `ITEM_TREE`, `ITEM_LIST` etc.")
+                .inherit (LOCATABLE)
+                .attribute ("origin", DV_DATE_TIME, 1, 1, "Time origin of this event history. The first event is not necessarily at the origin point.")
+                .attribute ("period", DV_INTERVAL + "<DV_DATE_TIME>", 0, 1, "Period between samples in this segment if periodic.")
+                .hashAttribute ("events_by_time", ITEM_STRUCTURE, "time", DV_DATE_TIME, "The events in the series, keyed by time; see @DV_DATE_TIME@.")
+                .operation ("is_periodic", OperationStatus.DEFINED, BOOLEAN, "Indicates whether history is periodic.").end()
+                .invariant ("Periodic_validity", "is_periodic xor period = Void")
+                .build();
+        builder.addClass (ENTRY, "The abstract parent of all `ENTRY` subtypes. An `ENTRY` is the root of a logical item of hard clinical information created in the clinical statement context, within a clinical session.\n\n----\nENTRY <= CARE_ENTRY <= OBSERVATION | EVALUATION | INSTRUCTION | ACTION\n----")
+                .isAbstract()
+                .inherit (LOCATABLE)
+                .attribute ("language", CODE_PHRASE, 1, 1, "Mandatory indicator of the localised language in which this Entry is written. Coded from openEHR Code Set `languages`.")
+                .attribute ("encoding", CODE_PHRASE, 1, 1, "Name of character set in which text values in this Entry are encoded. Coded from openEHR Code Set `character sets`.")
+                .attribute ("other_participations", OBJECT_REF, 0, -1, "Other participations at `ENTRY` level.")
+                .operation ("subject_is_self", OperationStatus.DEFINED, BOOLEAN, "Returns True if this Entry is about the subject of the EHR, in which case the subject attribute is of type `PARTY_SELF`.").end()
+                .invariant ("Language_valid", "code_set (Code_set_id_languages).has_code (language)")
+                .invariant ("Encoding_valid", "code_set (Code_set_id_character_sets).has_code (encoding)")
+                .build();
+        builder.addClass (CARE_ENTRY, "The abstract parent of all clinical `ENTRY` subtypes. A `CARE_ENTRY` defines protocol and guideline attributes for all clinical Entry subtypes.")
+                .isAbstract()
+                .inherit (ENTRY)
+                .attribute ("protocol", ITEM_STRUCTURE, 0, 1, "Description of the method (i.e. how) the information in this entry was arrived at. For `OBSERVATIONs`, this is a description of the method or instrument used.")
+                .attribute ("guideline_id", OBJECT_REF, 0, 1, "Optional external identifier of guideline creating this Entry if relevant.")
+                .build();
+        builder.addClass (OBSERVATION, "Entry subtype for all clinical data in the past or present, i.e. which (by the time it is recorded) has already occurred. `OBSERVATION` data is expressed using the class `HISTORY<T>`, which guarantees that it is situated in time.")
+                .inherit (CARE_ENTRY)
+                .attribute ("data", HISTORY + "<ITEM_STRUCTURE>", 1, 1, "The data of this observation, in the form of a history of values which may be of any complexity.")
+                .attribute ("state", HISTORY + "<ITEM_STRUCTURE>", 0, 1, "Optional recording of the state of subject of this observation during the observation process, in the form of a separate history of values which may be of any complexity.")
+                .operation ("subject_is_self", OperationStatus.REDEFINED, BOOLEAN, null).end()
+                .build();
+    }
+}
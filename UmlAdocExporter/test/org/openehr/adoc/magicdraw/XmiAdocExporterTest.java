@@ -0,0 +1,108 @@
+package org.openehr.adoc.magicdraw;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests of the export of a UML model read from XMI, without MagicDraw: the openEHR fixtures, as an
+ * XMI file and as an .mdzip project, are read by XmiModelReader and built by XmiInfoBuilder, and
+ * each class document must match the golden file of ClassDocumentPublisherTest, i.e. the document
+ * rendered from the same classes built by FixtureInfoBuilder.
+ * <p>
+ * xmi/openehr_fixtures.xmi holds the classes of OpenEhrFixtures, written in the XMI of a MagicDraw
+ * model; a change to either must be made to both.
+ */
+class XmiAdocExporterTest {
+
+    private static final String FIXTURES_XMI = "xmi/openehr_fixtures.xmi";
+
+    // name of the .mdzip entry holding the project's own model
+    private static final String MODEL_ENTRY = "com.nomagic.magicdraw.uml_model.model";
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        UmlExportConfig.reset();
+    }
+
+    @Test
+    void exportXmiMatchesGoldenFiles() throws IOException, InterruptedException {
+        Path xmiFile = tempDir.resolve ("openehr_fixtures.xmi");
+        try (OutputStream out = Files.newOutputStream (xmiFile)) {
+            copyFixtures (out);
+        }
+        assertMatchesGoldenFiles (export (xmiFile));
+    }
+
+    /**
+     * The project's model is read from its entry wherever it is in the zip, and entries that are not
+     * XMI are skipped.
+     */
+    @Test
+    void exportMdzipMatchesGoldenFiles() throws IOException, InterruptedException {
+        Path mdzipFile = tempDir.resolve ("openehr_fixtures.mdzip");
+        try (ZipOutputStream out = new ZipOutputStream (Files.newOutputStream (mdzipFile))) {
+            out.putNextEntry (new ZipEntry ("com.nomagic.ci.metamodel.project"));
+            out.write (new byte[] {0, 1, 2, 3});
+            out.putNextEntry (new ZipEntry (MODEL_ENTRY));
+            copyFixtures (out);
+            out.closeEntry();
+        }
+        assertMatchesGoldenFiles (export (mdzipFile));
+    }
+
+    private EntityRegistry export (Path modelPath) throws InterruptedException {
+        XmiAdocExporter exporter = new XmiAdocExporter();
+        exporter.exportModel (tempDir.resolve ("out").toFile(), modelPath);
+        assertTrue (exporter.getDocumentsWrittenCount() > 0);
+        return exporter.getAllEntities();
+    }
+
+    private void assertMatchesGoldenFiles (EntityRegistry allEntities) throws IOException {
+        // the same classes as the fixtures
+        FixtureInfoBuilder builder = new FixtureInfoBuilder (new AsciidocFormatter(), new SymbolTable());
+        OpenEhrFixtures.declare (builder);
+        assertEquals (qualifiedClassNames (builder.buildRegistry()), qualifiedClassNames (allEntities));
+
+        ClassDocumentPublisher documentPublisher = new ClassDocumentPublisher (new AsciidocFormatter(), UmlExportConfig.getInstance(), allEntities, null);
+        List<String> mismatches = new ArrayList<>();
+        for (ClassInfo classInfo : allEntities.values()) {
+            String fileName = classInfo.getQualifiedClassName().toLowerCase() + ".adoc";
+            String rendered = documentPublisher.renderClass (classInfo).replace (System.lineSeparator(), "\n");
+            if (!rendered.equals (ClassDocumentPublisherTest.readGolden (fileName)))
+                mismatches.add (fileName);
+        }
+        assertTrue (mismatches.isEmpty(), () -> "Rendered documents differ from the golden files: " + mismatches);
+    }
+
+    private static Set<String> qualifiedClassNames (EntityRegistry allEntities) {
+        Set<String> names = new TreeSet<>();
+        for (ClassInfo classInfo : allEntities.values())
+            names.add (classInfo.getQualifiedClassName());
+        return names;
+    }
+
+    private static void copyFixtures (OutputStream out) throws IOException {
+        try (InputStream in = XmiAdocExporterTest.class.getResourceAsStream (FIXTURES_XMI)) {
+            assertNotNull (in, "No fixtures " + FIXTURES_XMI);
+            in.transferTo (out);
+        }
+    }
+}